@@ -6,6 +6,7 @@ import com.energytwin.microgrid.service.EventControlService;
 import com.energytwin.microgrid.service.LogAggregatorService;
 import com.energytwin.microgrid.service.SimulationConfigService;
 import com.energytwin.microgrid.service.SimulationControlService;
+import com.energytwin.microgrid.service.StartupTimingService;
 import com.energytwin.microgrid.ws.dto.TickDataMessage;
 import com.energytwin.microgrid.ws.simulation.SimulationControlServiceWS;
 import jade.core.Agent;
@@ -28,12 +29,21 @@ public abstract class SpringAgent extends Agent {
   protected AgentStateRegistry registry;
   protected SimulationControlServiceWS simulationControlServiceWS;
   protected EventControlService eventControlService;
+  protected StartupTimingService startupTiming;
   private static final Logger logger = LoggerFactory.getLogger(SpringAgent.class);
 
   @Override
   protected final void setup() {
+    long start = System.nanoTime();
     initSpring();
-    onAgentSetup();
+    try {
+      onAgentSetup();
+    } finally {
+      if (startupTiming != null) {
+        startupTiming.record(StartupTimingService.Phase.AGENT_SETUP, System.nanoTime() - start);
+        startupTiming.agentReady(getLocalName());
+      }
+    }
   }
 
   /**
@@ -48,6 +58,7 @@ public abstract class SpringAgent extends Agent {
       registry = ctx.getBean(AgentStateRegistry.class);
       simulationControlServiceWS = ctx.getBean(SimulationControlServiceWS.class);
       eventControlService = ctx.getBean(EventControlService.class);
+      startupTiming = ctx.getBean(StartupTimingService.class);
     } else {
       System.err.println("Spring ApplicationContext is not initialized!");
     }
@@ -1,9 +1,15 @@
 package com.energytwin.microgrid.controller;
 
+import com.energytwin.microgrid.core.forecast.Backtest;
+import com.energytwin.microgrid.service.BacktestService;
+import com.energytwin.microgrid.service.ForecastService;
 import com.energytwin.microgrid.service.JadeContainerService;
+import com.energytwin.microgrid.service.JadeContainerService.AgentSpec;
 import com.energytwin.microgrid.service.LogAggregatorService;
 import com.energytwin.microgrid.service.SimulationConfigService;
 import com.energytwin.microgrid.service.SimulationControlService;
+import com.energytwin.microgrid.service.StartupTimingService;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -25,6 +31,17 @@ public class SimulationController {
 
   @Autowired private LogAggregatorService logAggregatorService;
 
+  @Autowired private StartupTimingService startupTimingService;
+
+  @Autowired private ForecastService forecastService;
+
+  @Autowired private BacktestService backtestService;
+
+  private static final Object[] NO_ARGS = new Object[] {};
+
+  /** How long a start waits for agent setup before the first tick is sent anyway. */
+  private static final long AGENT_SETUP_TIMEOUT_MILLIS = 30_000;
+
   /**
    * Starts the simulation by receiving a startup configuration (JSON) via the request body,
    * updating the SimulationConfigService with it, and then launching agents accordingly.
@@ -37,14 +54,23 @@ public class SimulationController {
     try {
       // Update the simulation configuration with the provided JSON
       simulationConfigService.setConfigFromString(configJson);
+      simulationControlService.resetRun();
+      simulationControlService.setLockStep(isLockStep(simulationConfigService.getTickMode()));
+      simulationControlService.setLockStepTimeoutMillis(
+          simulationConfigService.getLockStepTimeoutMillis());
 
-      // Start the JADE container and launch core agents
-      jadeContainerService.startContainer();
+      // Collect core agents; the orchestrator is started last, once everyone is subscribed
       String AGENT_BASE_PATH = "com.energytwin.microgrid.core.agents.";
-      jadeContainerService.launchAgent("OrchestratorAgent", AGENT_BASE_PATH + "OrchestratorAgent");
-      jadeContainerService.launchAgent("AggregatorAgent", AGENT_BASE_PATH + "AggregatorAgent");
-      jadeContainerService.launchAgent("ExternalSupply", AGENT_BASE_PATH + "ExternalEnergySourceAgent");
-      jadeContainerService.launchAgent("WeatherAgent", AGENT_BASE_PATH + "WeatherAgent");
+      List<AgentSpec> specs = new ArrayList<>();
+      specs.add(new AgentSpec("AggregatorAgent", AGENT_BASE_PATH + "AggregatorAgent", NO_ARGS));
+      specs.add(
+          new AgentSpec("ExternalSupply", AGENT_BASE_PATH + "ExternalEnergySourceAgent", NO_ARGS));
+      specs.add(new AgentSpec("WeatherAgent", AGENT_BASE_PATH + "WeatherAgent", NO_ARGS));
+      for (Map<String, Object> feeder : simulationConfigService.getFeederDefinitions()) {
+        specs.add(
+            new AgentSpec(
+                (String) feeder.get("name"), AGENT_BASE_PATH + "FeederAggregatorAgent", NO_ARGS));
+      }
 
       // Load agent configuration from the updated configuration
       Object agentsObj =
@@ -68,16 +94,35 @@ public class SimulationController {
               case "load":
                 className = AGENT_BASE_PATH + "LoadAgent";
                 break;
+              case "fleet":
+                className = AGENT_BASE_PATH + "BulkFleetAgent";
+                break;
               default:
                 continue; // Unknown type, skip
             }
-            jadeContainerService.launchAgent(name, className);
+            // the definition is handed over so the agent does not have to look it up
+            specs.add(new AgentSpec(name, className, new Object[] {agentConfig}));
           }
         }
       }
+
+      // Start the JADE containers and launch all agents in one concurrent batch
+      startupTimingService.reset(specs.stream().map(AgentSpec::name).toList());
+      jadeContainerService.startContainers(
+          simulationConfigService.getAgentContainers(),
+          JadeContainerService.Placement.fromConfig(simulationConfigService.getAgentPlacement()));
+      jadeContainerService.launchAgents(specs);
+      boolean ready = startupTimingService.awaitReady(AGENT_SETUP_TIMEOUT_MILLIS);
+
       int tickInterval = simulationConfigService.getTickIntervalMillis();
       simulationControlService.setTickIntervalMillis(tickInterval);
-      return ResponseEntity.ok("Simulation started.");
+      jadeContainerService.launchAgent("OrchestratorAgent", AGENT_BASE_PATH + "OrchestratorAgent");
+      return ResponseEntity.ok(
+          ready
+              ? "Simulation started."
+              : "Simulation started; not all agents finished setup within "
+                  + AGENT_SETUP_TIMEOUT_MILLIS
+                  + " ms.");
     } catch (Exception e) {
       return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
           .body("Error starting simulation: " + e.getMessage());
@@ -114,6 +159,72 @@ public class SimulationController {
     return ResponseEntity.ok("Simulation resumed.");
   }
 
+  /**
+   * Switches between realtime ticks (paced by the tick interval and speed factor) and lock-step
+   * ticks (next tick as soon as all agents acknowledged the previous one).
+   *
+   * @param mode either {@code realtime} or {@code lockstep}
+   * @return HTTP response indicating success or error
+   */
+  @PostMapping("/control/mode")
+  public ResponseEntity<String> setTickMode(@RequestParam("mode") String mode) {
+    if (!"realtime".equalsIgnoreCase(mode) && !isLockStep(mode)) {
+      return ResponseEntity.badRequest().body("Mode must be 'realtime' or 'lockstep'");
+    }
+    simulationControlService.setLockStep(isLockStep(mode));
+    return ResponseEntity.ok("Tick mode set to " + mode.toLowerCase());
+  }
+
+  /**
+   * Returns the timings of the last start: container creation, agent creation, agent setup and
+   * topic subscription, plus the time until all agents were set up.
+   *
+   * @return per-phase timings in milliseconds
+   */
+  @GetMapping("/startup-timing")
+  public ResponseEntity<Map<String, Object>> getStartupTiming() {
+    return ResponseEntity.ok(startupTimingService.snapshot());
+  }
+
+  /** Returns the latest q05/q50/q95 forecast of every load and PV source. */
+  @GetMapping("/forecast/devices")
+  public ResponseEntity<Map<String, Map<String, double[]>>> getDeviceForecasts() {
+    return ResponseEntity.ok(forecastService.getForecasts());
+  }
+
+  /** Returns the latest q05/q50/q95 forecast of one device. */
+  @GetMapping("/forecast/devices/{agentName}")
+  public ResponseEntity<Map<String, double[]>> getDeviceForecast(@PathVariable String agentName) {
+    double[][] q = forecastService.getForecast(agentName);
+    return q == null
+        ? ResponseEntity.notFound().build()
+        : ResponseEntity.ok(ForecastService.named(q));
+  }
+
+  /** Returns the number of forecast devices and the last update and forecast times. */
+  @GetMapping("/forecast/devices-timing")
+  public ResponseEntity<Map<String, Object>> getDeviceForecastTiming() {
+    return ResponseEntity.ok(forecastService.timings());
+  }
+
+  /**
+   * Backtests forecaster configurations against the recorded history and returns per-horizon
+   * pinball loss, CRPS, interval coverage and fit/predict times per model.
+   *
+   * @param request optional settings, see {@link BacktestService#run}
+   * @return one result per model, or 400 if the request or the recording is not usable
+   */
+  @PostMapping("/forecast/backtest")
+  public ResponseEntity<?> runBacktest(@RequestBody(required = false) Map<String, Object> request) {
+    try {
+      List<Backtest.Result> results = backtestService.run(request);
+      return ResponseEntity.ok(results);
+    } catch (IllegalArgumentException | ClassCastException e) {
+      return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+          .body("Invalid backtest: " + e.getMessage());
+    }
+  }
+
   @PostMapping("/weather/update")
   public ResponseEntity<String> updateWeather(@RequestBody Map<String,Object> weatherJson) {
     try {
@@ -125,6 +236,10 @@ public class SimulationController {
     }
   }
 
+  private static boolean isLockStep(String mode) {
+    return "lockstep".equalsIgnoreCase(mode);
+  }
+
   /** Returns all logs grouped by agent name. */
   @GetMapping("/logs")
   public ResponseEntity<Map<String, List<String>>> getAllLogs() {
@@ -1,20 +1,27 @@
 package com.energytwin.microgrid.core.agents;
 
-import com.energytwin.microgrid.core.aggregator.AggregatorMetaStore;
-import com.energytwin.microgrid.core.base.AbstractSimAgent;
+import com.energytwin.microgrid.agentfusion.util.SpringContext;
+import com.energytwin.microgrid.core.base.AbstractAggregatorAgent;
 import com.energytwin.microgrid.core.behaviours.aggregator.HandleShortfallCNP;
 import com.energytwin.microgrid.core.behaviours.aggregator.HandleSurplusCNP;
 import com.energytwin.microgrid.core.behaviours.aggregator.ProductionConsumptionListener;
 import com.energytwin.microgrid.core.behaviours.tick.TickSubscriberBehaviour;
+import com.energytwin.microgrid.core.codec.MessageCodec;
+import com.energytwin.microgrid.core.forecast.ForecastSnapshot;
+import com.energytwin.microgrid.core.forecast.ForecastTrainer;
+import com.energytwin.microgrid.core.forecast.Forecaster;
 import com.energytwin.microgrid.core.forecast.ProbabilisticForecaster;
 import com.energytwin.microgrid.core.history.HistoryBuffer;
 import com.energytwin.microgrid.core.planner.Action;
-import com.energytwin.microgrid.core.planner.ActionQueue;
-import com.energytwin.microgrid.core.planner.DeterministicPlanner;
+import com.energytwin.microgrid.core.planner.ActionSchedule;
+import com.energytwin.microgrid.core.planner.AsyncPlanner;
+import com.energytwin.microgrid.core.planner.Planner;
 import com.energytwin.microgrid.core.scenario.MonteCarloGenerator;
 import com.energytwin.microgrid.core.scenario.QuantileTreeGenerator;
 import com.energytwin.microgrid.core.scenario.Scenario;
 import com.energytwin.microgrid.core.scenario.ScenarioGenerator;
+import com.energytwin.microgrid.service.BacktestService;
+import com.energytwin.microgrid.service.ForecastService;
 import com.energytwin.microgrid.ws.dto.TickDataMessage;
 import jade.core.AID;
 import jade.core.behaviours.CyclicBehaviour;
@@ -22,32 +29,47 @@ import jade.core.messaging.TopicManagementHelper;
 import jade.lang.acl.ACLMessage;
 import jade.lang.acl.MessageTemplate;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
-public final class AggregatorAgent extends AbstractSimAgent {
-
-  /* ---------------- cumulative per-tick ---------------- */
-  public double totalProductionThisTick = 0;
-  public double totalConsumptionThisTick = 0;
-  public Map<String, Double> productionMap = new HashMap<>();
-  public Map<String, Double> consumptionMap = new HashMap<>();
+public final class AggregatorAgent extends AbstractAggregatorAgent {
 
   /* ---------------- forecasting buffers ---------------- */
   private boolean predictiveEnabled;
   private HistoryBuffer hist;
-  private AggregatorMetaStore meta;
   private int H_hist;
-  private ProbabilisticForecaster forecaster;
-  private final ActionQueue queue = new ActionQueue();
+  private Forecaster forecaster;
+  private ForecastTrainer trainer;    // fits a batch forecaster off the agent thread
+  private ForkJoinPool forecastPool;  // parallel training/inference, null = single-threaded
+  private Path snapshotPath;          // warm-restart snapshot, null = disabled
+  private ThreadPoolExecutor snapshotWriter;  // writes snapshots off the tick thread
+  private ForecastService deviceForecasts;   // per-device forecasts, null = disabled
+  private BacktestService backtests;  // records the aggregate history, null = disabled
+  private boolean planned;            // planLoad/planPv hold a forecast
+  private long snapshotModelAt = -1;  // publish time of the model last written to the snapshot
+  private double[] fanLevels;         // quantile levels of the published fan chart
+  private double[] forecastLevels;    // fan levels plus the planner's q05/q50/q95
+  private ActionSchedule schedule;   // planned actions by due tick
+  private AsyncPlanner planning;      // planner thread with a greedy fallback
+  private ForkJoinPool plannerPool;   // scenario subproblems, null = single-threaded
+  private long planBudgetMs;          // wall-clock budget per replan
   private int H_pred;                 // horizon
   private int planEvery;              // re-plan cadence (ticks)
   private double epsilonBreak;        // Threshold to fallback to live-CNP
   private double[] planLoad;          // length H_pred
   private double[] planPv;
   private int  planPtr = 0;
+  private double[] lateLoad;          // forecast of the overrunning solve, if any
+  private double[] latePv;
 
   private int ticksSincePlan = 0;
 
@@ -88,9 +110,9 @@ public final class AggregatorAgent extends AbstractSimAgent {
       surplusTopic   = tph.createTopic(CNP_SURPLUS_TOPIC);
       irrTopic   = tph.createTopic(IRRADIANCE_TOPIC);
 
-      tph.register(shortfallTopic);
-      tph.register(surplusTopic);
-      tph.register(irrTopic);
+      subscribe(shortfallTopic);
+      subscribe(surplusTopic);
+      subscribe(irrTopic);
 
     } catch (Exception e) {
       log("Topic init error: {}", e.getMessage(), e);
@@ -104,17 +126,69 @@ public final class AggregatorAgent extends AbstractSimAgent {
     planEvery = (int) fp.getOrDefault("replanEvery", 2);
     epsilonBreak = (double) fp.getOrDefault("epsilonBreak", 20.0);
     hist = new HistoryBuffer(H_hist);
-    meta = new AggregatorMetaStore();
-    loadBatteryMetaFromConfig();
+    initNegotiation();
     boolean useMc = (int) simulationConfigService.getForecastParams()
             .getOrDefault("useMC",0) == 1;
-    scenGen = useMc ? new MonteCarloGenerator(H_pred,50)
-            : new QuantileTreeGenerator(H_pred);
     predictiveEnabled = (int) fp.getOrDefault("enablePredictive", 1) == 1;
 
-    forecaster = new ProbabilisticForecaster(H_pred);
+    int parallelism = (int) fp.getOrDefault("parallelism", 1);
+    forecastPool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+    scenGen = useMc ? new MonteCarloGenerator(H_pred, (int) fp.getOrDefault("mcDraws", 50),
+            forecastPool)
+            : new QuantileTreeGenerator(H_pred);
+    forecaster = Forecaster.create(String.valueOf(fp.getOrDefault("model", Forecaster.FOREST)),
+            H_pred, forecastPool);
+    trainer = new ForecastTrainer(forecaster,
+            (int) fp.getOrDefault("trainQueueSize", 1), getLocalName() + "-forecast-trainer");
+    fanLevels = levels(fp.get("fanLevels"), new double[] {0.05, 0.10, 0.25, 0.75, 0.90, 0.95});
+    forecastLevels = Forecaster.union(fanLevels, Forecaster.LEVELS);
     planLoad = new double[H_pred];
     planPv   = new double[H_pred];
+    schedule = new ActionSchedule(H_pred);
+
+    if ((int) fp.getOrDefault("perDevice", 0) == 1) {
+      deviceForecasts = SpringContext.getBean(ForecastService.class);
+      deviceForecasts.start(H_pred, (int) fp.getOrDefault("deviceParallelism",
+              Runtime.getRuntime().availableProcessors()));
+    }
+
+    String plannerKind = String.valueOf(fp.getOrDefault("planner", Planner.DETERMINISTIC));
+    int plannerParallelism = (int) fp.getOrDefault("plannerParallelism",
+            Runtime.getRuntime().availableProcessors());
+    plannerPool = Planner.STOCHASTIC.equalsIgnoreCase(plannerKind) && plannerParallelism > 1
+            ? new ForkJoinPool(plannerParallelism) : null;
+    Planner.Options plannerOptions = new Planner.Options(plannerPool,
+            (int) fp.getOrDefault("mpcFineSteps", Planner.Options.DEFAULT.fineSteps()),
+            (int) fp.getOrDefault("mpcBlock", Planner.Options.DEFAULT.blockTicks()),
+            (int) fp.getOrDefault("virtualClusters", Planner.Options.DEFAULT.clusters()),
+            (int) fp.getOrDefault("virtualCheckEvery", Planner.Options.DEFAULT.checkEvery()),
+            new Planner.Mip(
+                    ((Number) fp.getOrDefault("mipTimeLimitMs", Planner.Mip.DEFAULT.timeLimitMs()))
+                            .longValue(),
+                    (int) fp.getOrDefault("mipWorkers", Planner.Mip.DEFAULT.workers()),
+                    ((Number) fp.getOrDefault("minDispatchKw", 0)).doubleValue(),
+                    ((Number) fp.getOrDefault("minImportKw", 0)).doubleValue()));
+    planning = new AsyncPlanner(plannerKind, plannerOptions, getLocalName() + "-planner");
+    planBudgetMs = ((Number) fp.getOrDefault("planBudgetMs", 250)).longValue();
+
+    int backtestRecord = (int) fp.getOrDefault("backtestRecord", 0);
+    if (backtestRecord > 0) {
+      backtests = SpringContext.getBean(BacktestService.class);
+      backtests.start(backtestRecord);
+    }
+
+    String snap = String.valueOf(fp.getOrDefault("snapshotPath", ""));
+    snapshotPath = snap.isBlank() ? null : Path.of(snap);
+    if (snapshotPath != null) {
+      // one write at a time; a newer model replaces a write that has not started yet
+      snapshotWriter = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+              new ArrayBlockingQueue<>(1), r -> {
+                Thread t = new Thread(r, getLocalName() + "-snapshot-writer");
+                t.setDaemon(true);
+                return t;
+              }, new ThreadPoolExecutor.DiscardOldestPolicy());
+    }
+    restoreSnapshot();
 
     /* ------------ standard behaviours ------------ */
     AID tickTopic = new AID("TICK_TOPIC", AID.ISLOCALNAME);
@@ -128,26 +202,44 @@ public final class AggregatorAgent extends AbstractSimAgent {
     if (predictiveEnabled && hist.isFull() && planPtr < planLoad.length) {
       registry.setForecast(planLoad[planPtr],          // kW load prediction
               planPv  [planPtr]);         // kW pv  prediction
+      if (planned) {                                   // score the forecast for this tick
+        registry.addErrorSample(totalConsumptionThisTick - planLoad[planPtr],
+                totalProductionThisTick - planPv[planPtr]);
+      }
     } else {
       registry.setForecast(0, 0);                      // “no forecast yet”
     }
 
-    if (!queue.isEmpty()) {
-      Action a = queue.pop();                // tickOffset == 0
-      dispatch(a);                           // send ACCEPT_PROPOSALs
+    net = totalProductionThisTick - totalConsumptionThisTick;
+
+    AsyncPlanner.Result late = planning.poll();       // a solve that overran its budget
+    if (late != null) {
+      schedule.replace(late.actions(), late.tick() + 1);   // past ticks are dropped
+      planLoad = lateLoad;                            // the forecast it was planned on
+      planPv   = latePv;
+      planPtr  = (int) Math.min(simulationTime - late.tick() - 1, H_pred - 1);
+      publishPlan(late);
+      log("Adopted late {} plan from tick {}.", late.status(), late.tick());
     }
 
+    List<Action> due = schedule.due(simulationTime);
+    if (!due.isEmpty()) dispatch(due);                // one ACCEPT_PROPOSAL per target
+
     /* ----------- decide via CNP ----------- */
-    net = totalProductionThisTick - totalConsumptionThisTick;
     log("Tick {}  P={}  L={}  Net={}", simulationTime,
             totalProductionThisTick, totalConsumptionThisTick, net);
 
     registry.setPvProduction(totalProductionThisTick);
 
+    int batteries = meta.allBatteries().size();
     if (net < 0)
-      addBehaviour(new HandleShortfallCNP(this, -net, shortfallTopic));
+      addBehaviour(new HandleShortfallCNP(this, -net, shortfallTopic,
+              batteries + 1, cnpDeadlineMillis, simulationTime));   // + ExternalSupply
     else if (net > 0)
-      addBehaviour(new HandleSurplusCNP(this,  net, surplusTopic));
+      addBehaviour(new HandleSurplusCNP(this,  net, surplusTopic,
+              batteries, cnpDeadlineMillis, simulationTime));
+    else
+      acknowledgeTick(simulationTime);              // no CNP round this tick
 
     /* ----------- push to history buffer ----------- */
     double totSoc = meta.allBatteries().keySet().stream()
@@ -159,106 +251,170 @@ public final class AggregatorAgent extends AbstractSimAgent {
     /* ===== add sample to history ===== */
     hist.push(totalConsumptionThisTick, totalProductionThisTick,
             latestG, latestTa, totSoc);
+    forecaster.observe(totalConsumptionThisTick, totalProductionThisTick, latestTa,
+            hist.getLastHour());
+    if (backtests != null)
+      backtests.record(totalConsumptionThisTick, totalProductionThisTick, latestTa);
+    if (deviceForecasts != null) deviceForecasts.observe(latestTa);
 
     planPtr++;
     if (planPtr >= H_pred) planPtr = H_pred - 1;   // clamp
 
     ticksSincePlan = (ticksSincePlan + 1) % planEvery;
-    if (hist.isFull() && ticksSincePlan == 0) {
+    if (forecaster.isBatch() && hist.isFull() && ticksSincePlan == 0) {
 
-      /* ------------------- fit models ------------------- */
-      forecaster.update(hist.getLoad(),                // kW
-              hist.getPv(),                  // kW
-              hist.getTemp());               // °C
+      /* -------- fit models in the background ------------ */
+      trainer.submit(simulationTime, hist.window());   // series and feature columns
+    }
+    registry.setForecastTraining(trainer.getLastTrainingMs(), trainer.getQueueDepth(),
+            forecaster.isBatch() ? trainer.modelAgeTicks(simulationTime) : 0);
+    registry.setForecastUtilization(forecaster.getLastTrainingUtilization(),
+            forecaster.getLastPredictionUtilization());
+
+    /* plan with the latest completed model; nothing to plan with before the first fit */
+    if (ticksSincePlan == 0 && forecaster.hasModel()) {
 
       /* ------------------- get forecasts ---------------- */
-      double[][] loadQ = forecaster.predictLoad();     // [q05,q50,q95][H_pred]
-      double[][] pvQ   = forecaster.predictPv();
+      double[][][] both = forecaster.predictBoth(forecastLevels);
+      double[][] loadQ = Forecaster.rows(both[0], forecastLevels, Forecaster.LEVELS); // q05,q50,q95
+      double[][] pvQ   = Forecaster.rows(both[1], forecastLevels, Forecaster.LEVELS);
 
       log("Fan chart: " + Arrays.toString(pvQ[0]) + Arrays.toString(pvQ[1]) + Arrays.toString(loadQ[0]));
-      registry.setFanChart(loadQ[0], loadQ[2], pvQ[0], pvQ[2]);
+      registry.setFanChart(fanLevels, Forecaster.rows(both[0], forecastLevels, fanLevels),
+              Forecaster.rows(both[1], forecastLevels, fanLevels));
 
       // build discrete scenarios
       scenarios = scenGen.generate(loadQ,pvQ);
       log("Fan chart: " + Arrays.toString(loadQ[0]) + " Q95: " + Arrays.toString(loadQ[2]));
 
-      DeterministicPlanner planner = new DeterministicPlanner(
-              H_pred, meta.allBatteries(), simulationConfigService.getExternalSourceCap());
-
-      double socNow = meta.allBatteries().keySet().stream()
-              .mapToDouble(id -> registry.all()
-                      .getOrDefault(id,new TickDataMessage.AgentState()).getStateOfCharge())
-              .sum();
+      Map<String, Double> socNow = new HashMap<>();
+      for (String id : meta.allBatteries().keySet()) {
+        socNow.put(id, registry.all()
+                .getOrDefault(id, new TickDataMessage.AgentState()).getStateOfCharge());
+      }
 
-      List<Action> plan = planner.solve(scenarios.get(1), socNow);
-      queue.clear(); queue.addAll(plan);
-      log("Planned "+plan.size()+" actions for next "+H_pred+" ticks.");
+      // all scenarios, weighted by prob; greedy dispatch if the budget runs out
+      AsyncPlanner.Result plan = planning.plan(simulationTime, H_pred, meta.allBatteries(),
+              simulationConfigService.getExternalSourceCap(), scenarios, socNow, planBudgetMs);
+      schedule.replace(plan.actions(), simulationTime + 1);   // offset 0 is the next tick
+      if (plan.status() == AsyncPlanner.Status.TIMEOUT) {     // may still be adopted late
+        lateLoad = loadQ[1];
+        latePv   = pvQ[1];
+      }
+      publishPlan(plan);
+      log("Planned "+plan.actions().size()+" actions for next "+H_pred+" ticks ("
+              +plan.status()+", "+plan.solveMs()+" ms).");
 
       // select median scenario for the deterministic planner (stage 4)
       planLoad = loadQ[1];
       planPv   = pvQ[1];
       planPtr  = 0;
+      planned  = true;
 
       // immediate push so the UI sees it instantly
       registry.setForecast(planLoad[0], planPv[0]);
 
       log("New plan  L=" + Arrays.toString(planLoad) +
               "  PV=" + Arrays.toString(planPv));
+
+      saveSnapshot();
     }
+    if (deviceForecasts != null && ticksSincePlan == 0) deviceForecasts.forecast();
 
     /* reset per-tick accumulators --------------------------------- */
-    totalProductionThisTick  = 0;
-    totalConsumptionThisTick = 0;
-    productionMap.clear();
-    consumptionMap.clear();
+    resetTickTotals();
+  }
+
+  private void publishPlan(AsyncPlanner.Result plan) {
+    registry.setPlanner(plan.solveMs(), plan.status().name().toLowerCase(),
+            planning.getFallbacks());
+    if (!plan.note().isEmpty()) log("Planner: {}.", plan.note());
+  }
+
+  /** Sorted quantile levels in (0, 1) from a config list; {@code def} if there are none. */
+  private static double[] levels(Object cfg, double[] def) {
+    if (!(cfg instanceof List<?> list)) return def;
+    double[] lv = list.stream().mapToDouble(v -> ((Number) v).doubleValue())
+            .filter(v -> v > 0 && v < 1).sorted().distinct().toArray();
+    return lv.length == 0 ? def : lv;
+  }
+
+  /* ------------------- warm-restart snapshot ------------------- */
+  private void restoreSnapshot() {
+    if (snapshotPath == null || !(forecaster instanceof ProbabilisticForecaster forest)) return;
+    long start = System.nanoTime();
+    try {
+      if (ForecastSnapshot.load(snapshotPath, forest, hist)) {
+        registry.setForecastSnapshotLoadMs((System.nanoTime() - start) / 1e6);
+        snapshotModelAt = forecaster.getModelTrainedAtMillis();
+        ticksSincePlan = planEvery - 1;          // plan on the very first tick
+        log("Restored forecast snapshot {} ({} history samples).", snapshotPath, hist.size());
+      }
+    } catch (IOException e) {
+      log("Ignoring forecast snapshot {}: {}", snapshotPath, e.getMessage());
+    }
   }
 
-  /* ------------------------------------------------------------------ */
-  /* LOAD ALL STATIC CAPABILITIES DIRECTLY FROM SIMULATION CONFIG       */
-  private void loadBatteryMetaFromConfig() {
-
-    simulationConfigService.getValidatedAgentDefinitions().stream()
-            .filter(a -> "energyStorage".equalsIgnoreCase((String) a.get("type")))
-            .forEach(a -> {
-              String name = (String) a.get("name");
-              double cap  = dbl(a, "capacity",      0.0);
-              double ec   = dbl(a, "etaCharge",     0.95);
-              double ed   = dbl(a, "etaDischarge",  0.93);
-              double cr   = dbl(a, "cRate",         0.5);
-
-              meta.addBattery(name,
-                      new AggregatorMetaStore.BatteryMeta(cap, ec, ed, cr));
-              log("Loaded meta from config for battery {}", name);
-            });
+  /**
+   * Captures the model and history whenever a newer model than the one last saved has been
+   * published; the snapshot writer encodes and flushes it to disk.
+   */
+  private void saveSnapshot() {
+    long trainedAt = forecaster.getModelTrainedAtMillis();
+    if (snapshotPath == null || trainedAt == snapshotModelAt
+            || !(forecaster instanceof ProbabilisticForecaster forest)) return;
+    ForecastSnapshot.Capture capture = ForecastSnapshot.capture(forest, hist);
+    if (capture == null) return;
+    snapshotModelAt = capture.trainedAtMillis();
+    Path file = snapshotPath;
+    snapshotWriter.execute(() -> {
+      long start = System.nanoTime();
+      try {
+        capture.write(file);
+        registry.setForecastSnapshotSaveMs((System.nanoTime() - start) / 1e6);
+      } catch (IOException e) {
+        log("Forecast snapshot save failed: {}", e.getMessage(), e);
+      }
+    });
   }
 
-  private static double dbl(Map<String, Object> m, String k, double d){
-    Object v = m.get(k); return v==null ? d : Double.parseDouble(v.toString());
+  @Override protected void takeDown() {
+    if (trainer != null) trainer.shutdown();
+    if (forecastPool != null) forecastPool.shutdownNow();
+    if (deviceForecasts != null) deviceForecasts.stop();
+    if (planning != null) planning.shutdown();
+    if (plannerPool != null) plannerPool.shutdownNow();
+    if (snapshotWriter != null) snapshotWriter.shutdown();   // finish the pending write
   }
 
-  private void dispatch(Action a){
-    double plannedNet = planLoad[planPtr] - planPv[planPtr];
+  /** Sends this tick's actions, netted per target, unless the tick has drifted from the plan. */
+  private void dispatch(List<Action> due){
+    double plannedNet = planPv[planPtr] - planLoad[planPtr];
     if (Math.abs(net - plannedNet) > epsilonBreak) {
-      queue.clear();
+      schedule.cancel();
       planPtr = H_pred;
       log("Plan aborted – ε-break ("+epsilonBreak+" kW).");
       return;
     }
-    if ("External".equals(a.target())){
-      ACLMessage acc = new ACLMessage(ACLMessage.ACCEPT_PROPOSAL);
-      acc.setOntology(ONT_ACCEPT);
-      acc.setInReplyTo(ONT_CFP_SHORTFALL);
-      acc.setContent("acceptedAmount=" + Math.abs(a.extImportKw()));
-      acc.addReceiver(new AID("ExternalSupply", AID.ISLOCALNAME));
-      send(acc);
-    } else {
+    Map<String, Double> kw = new LinkedHashMap<>();   // battery charge (+) / external import
+    for (Action a : due) {
+      boolean ext = "External".equals(a.target());
+      kw.merge(a.target(), ext ? a.extImportKw() : a.chargeKw(), Double::sum);
+    }
+    kw.forEach((target, p) -> {
+      if (Math.abs(p) <= 1e-3) return;
       ACLMessage acc = new ACLMessage(ACLMessage.ACCEPT_PROPOSAL);
       acc.setOntology(ONT_ACCEPT);
-      acc.setInReplyTo(a.chargeKw()>0 ? ONT_CFP_SURPLUS : ONT_CFP_SHORTFALL);
-      acc.setContent("acceptedAmount=" + Math.abs(a.chargeKw()));
-      acc.addReceiver(new AID(a.target(), AID.ISLOCALNAME));
+      if ("External".equals(target)) {
+        acc.setInReplyTo(ONT_CFP_SHORTFALL);
+        acc.addReceiver(new AID("ExternalSupply", AID.ISLOCALNAME));
+      } else {
+        acc.setInReplyTo(p > 0 ? ONT_CFP_SURPLUS : ONT_CFP_SHORTFALL);
+        acc.addReceiver(new AID(target, AID.ISLOCALNAME));
+      }
+      MessageCodec.write(acc, MessageCodec.TYPE_ACCEPT, Math.abs(p));
       send(acc);
-    }
+    });
   }
 
   private final class IrradianceListener extends CyclicBehaviour {
@@ -266,15 +422,12 @@ public final class AggregatorAgent extends AbstractSimAgent {
       ACLMessage m = myAgent.receive(MessageTemplate.MatchOntology("IRRADIANCE"));
       if (m == null) { block(); return; }
 
-      double G = 0, Ta = 20;
-      for (String tok : m.getContent().split(";")) {
-        String[] kv = tok.split("=");
-        if (kv.length != 2) continue;
-        if ("G".equals(kv[0]))  G  = Double.parseDouble(kv[1]);
-        if ("T".equals(kv[0]))  Ta = Double.parseDouble(kv[1]);
+      try {
+        latestG  = MessageCodec.readDouble(m, MessageCodec.TYPE_IRRADIANCE, 0);
+        latestTa = MessageCodec.readDouble(m, MessageCodec.TYPE_IRRADIANCE, 1);
+      } catch (IllegalArgumentException e) {
+        log("Malformed irradiance message: " + e.getMessage());
       }
-      latestG  = G;
-      latestTa = Ta;
     }
   }
 }
@@ -0,0 +1,178 @@
+package com.energytwin.microgrid.core.agents;
+
+import com.energytwin.microgrid.core.base.AbstractSimAgent;
+import com.energytwin.microgrid.core.behaviours.energy.FleetCNPResponder;
+import com.energytwin.microgrid.core.behaviours.tick.TickSubscriberBehaviour;
+import com.energytwin.microgrid.core.codec.MessageCodec;
+import com.energytwin.microgrid.core.fleet.FleetKernel;
+import jade.core.AID;
+import jade.core.behaviours.CyclicBehaviour;
+import jade.lang.acl.ACLMessage;
+import jade.lang.acl.MessageTemplate;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One agent standing in for thousands of homogeneous devices.
+ *
+ * <p>Configured from the {@code "agents"} list as
+ *
+ * <pre>
+ * { "type": "fleet", "name": "Campus", "seed": 7,
+ *   "devices": [
+ *     { "type": "load",          "count": 5000, "nominalLoad": 20 },
+ *     { "type": "energySource",  "count": 2000, "noOfPanels": 10, "efficiency": 0.21 },
+ *     { "type": "energyStorage", "count":  500, "capacity": 13.5, "cRate": 0.5 } ] }
+ * </pre>
+ *
+ * Each group accepts the same keys (and defaults) as the corresponding single-device agent. The
+ * devices live in a {@link FleetKernel}; every tick the fleet sends one ENERGY_CONSUMPTION and one
+ * ENERGY_PRODUCTION aggregate to its parent aggregator and, if it has storage, answers CNP rounds
+ * as one large battery via {@link FleetCNPResponder}.
+ */
+public final class BulkFleetAgent extends AbstractSimAgent {
+
+  @Getter private FleetKernel kernel;
+  private double cnpNegotiations = 0;
+  private volatile double latestG = 0.0;   // W m⁻²
+  private volatile double latestTa = 25.0; // °C
+
+  @Override
+  protected void onAgentSetup() {
+    setConfigParams();
+
+    AID tickTopic = new AID("TICK_TOPIC", AID.ISLOCALNAME);
+    addBehaviour(new TickSubscriberBehaviour(this, tickTopic));
+
+    if (kernel.sourceCount() > 0) {
+      AID irrTopic = new AID(AggregatorAgent.IRRADIANCE_TOPIC, AID.ISLOCALNAME);
+      addBehaviour(new IrradianceListener(irrTopic));
+    }
+    if (kernel.batteryCount() > 0) {
+      AID shortfallTopic = cnpTopic(AggregatorAgent.CNP_SHORTFALL_TOPIC);
+      AID surplusTopic = cnpTopic(AggregatorAgent.CNP_SURPLUS_TOPIC);
+      addBehaviour(new FleetCNPResponder(this, shortfallTopic, surplusTopic));
+    }
+
+    log("Fleet: %d loads, %d PV devices, %d batteries (%.0f kWh)".formatted(
+            kernel.loadCount(), kernel.sourceCount(), kernel.batteryCount(),
+            kernel.totalCapacityKwh()));
+  }
+
+  private void setConfigParams() {
+    Map<String, Object> cfg = agentDefinition("fleet");
+    if (cfg == null || !(cfg.get("devices") instanceof List<?> groups))
+      throw new IllegalArgumentException("Fleet " + getLocalName()
+              + " missing 'devices' list in simulation config.");
+
+    int loads = 0, sources = 0, batteries = 0;
+    for (Object g : groups) {
+      Map<?, ?> group = (Map<?, ?>) g;
+      int count = (int) dbl(group, "count", 1);
+      switch (String.valueOf(group.get("type"))) {
+        case "load"          -> loads += count;
+        case "energySource"  -> sources += count;
+        case "energyStorage" -> batteries += count;
+        default -> log("Unknown fleet device type {} ignored", group.get("type"));
+      }
+    }
+
+    long seed = cfg.containsKey("seed")
+            ? Long.parseLong(cfg.get("seed").toString()) : System.nanoTime();
+    kernel = new FleetKernel(loads, sources, batteries, seed);
+
+    for (Object g : groups) {
+      Map<?, ?> group = (Map<?, ?>) g;
+      int count = (int) dbl(group, "count", 1);
+      for (int i = 0; i < count; i++) {
+        switch (String.valueOf(group.get("type"))) {
+          case "load" -> {
+            if (!group.containsKey("nominalLoad"))
+              throw new IllegalArgumentException("Fleet " + getLocalName()
+                      + " load group missing 'nominalLoad' parameter.");
+            kernel.addLoad(dbl(group, "nominalLoad", 0));
+          }
+          case "energySource" -> kernel.addSource(
+                  (int) dbl(group, "noOfPanels", 500),
+                  dbl(group, "efficiency", 0.20),
+                  dbl(group, "tempCoeff", -0.0038),
+                  dbl(group, "area", 1.6),
+                  dbl(group, "noct", 45.0));
+          case "energyStorage" -> {
+            double capacity = dbl(group, "capacity", 300.0);
+            kernel.addBattery(
+                    capacity,
+                    dbl(group, "etaCharge", 0.94),
+                    dbl(group, "etaDischarge", 0.92),
+                    dbl(group, "cRate", 0.5),
+                    dbl(group, "selfDischarge", 3.9e-4),
+                    dbl(group, "initialSoC", 0.10 * capacity));
+          }
+          default -> { }
+        }
+      }
+    }
+  }
+
+  private static double dbl(Map<?, ?> m, String k, double def) {
+    Object v = m.get(k); return v == null ? def : Double.parseDouble(v.toString());
+  }
+
+  /* ---------------- tick ---------------- */
+
+  @Override
+  public void onTick(long tick) {
+    boolean isBroken = eventControlService.isBroken(getLocalName());
+    int rate = eventControlService.checkLoadSpike(getLocalName());
+
+    double loadKw = kernel.stepLoads((int) (tick % 24), rate);
+    double pvKw = isBroken ? 0.0 : kernel.stepSources(latestG, latestTa);
+    kernel.selfDischarge();
+
+    if (kernel.loadCount() > 0) send(energy(AggregatorAgent.ONT_CONSUMPTION, loadKw));
+    if (kernel.sourceCount() > 0) send(energy(AggregatorAgent.ONT_PRODUCTION, pvKw));
+
+    reportState(loadKw, pvKw, kernel.totalSocKwh(), isBroken, cnpNegotiations);
+
+    log("t=%d  load=%.2f kW  PV=%.2f kW  SoC=%.2f kWh"
+            .formatted(tick, loadKw, pvKw, kernel.totalSocKwh()));
+  }
+
+  public void incrementCnpNegotiations() {
+    cnpNegotiations++;
+  }
+
+  private ACLMessage energy(String ontology, double kw) {
+    ACLMessage msg = new ACLMessage(ACLMessage.INFORM);
+    msg.setOntology(ontology);
+    MessageCodec.write(msg, MessageCodec.TYPE_ENERGY, kw);
+    msg.addReceiver(parentAggregator());
+    return msg;
+  }
+
+  /** Keeps the fleet-wide irradiance and ambient temperature up to date. */
+  private final class IrradianceListener extends CyclicBehaviour {
+
+    IrradianceListener(AID irradianceTopic) {
+      super(BulkFleetAgent.this);
+      try {
+        subscribe(irradianceTopic);
+      } catch (Exception e) {
+        log("Could not register IRRADIANCE_TOPIC: {}", e.getMessage(), e);
+      }
+    }
+
+    @Override public void action() {
+      ACLMessage m = myAgent.receive(MessageTemplate.MatchOntology("IRRADIANCE"));
+      if (m == null) { block(); return; }
+      try {
+        latestG  = MessageCodec.readDouble(m, MessageCodec.TYPE_IRRADIANCE, 0);
+        latestTa = MessageCodec.readDouble(m, MessageCodec.TYPE_IRRADIANCE, 1);
+      } catch (IllegalArgumentException e) {
+        log("Malformed IRRADIANCE message: {}", e.getMessage());
+      }
+    }
+  }
+}
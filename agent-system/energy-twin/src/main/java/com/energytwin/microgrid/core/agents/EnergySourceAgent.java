@@ -3,6 +3,7 @@ package com.energytwin.microgrid.core.agents;
 import com.energytwin.microgrid.core.base.AbstractEnergySourceAgent;
 import com.energytwin.microgrid.core.behaviours.source.RESReceiveBehaviour;
 import com.energytwin.microgrid.core.behaviours.tick.TickSubscriberBehaviour;
+import com.energytwin.microgrid.core.codec.MessageCodec;
 import jade.core.AID;
 import jade.lang.acl.ACLMessage;
 
@@ -12,8 +13,6 @@ import java.util.Map;
 public final class EnergySourceAgent extends AbstractEnergySourceAgent {
 
 
-  private static final double INV_EFF = 0.96;   // inverter efficiency
-
   @Override
   protected void onAgentSetup() {
     setConfigParams();
@@ -29,8 +28,7 @@ public final class EnergySourceAgent extends AbstractEnergySourceAgent {
 
   @Override
   protected void setConfigParams() {
-    Map<String, Object> cfg =
-            simulationConfigService.findAgentDefinition("energySource", getLocalName());
+    Map<String, Object> cfg = agentDefinition("energySource");
 
     noOfPanels = (int) get(cfg, "noOfPanels", 500);
     efficiency25 = get(cfg, "efficiency", 0.20);
@@ -56,12 +54,8 @@ public final class EnergySourceAgent extends AbstractEnergySourceAgent {
     double PkW = computePVPowerKW(latestIrradiance, ambientTemp);
     ACLMessage msg = new ACLMessage(ACLMessage.INFORM);
     msg.setOntology("ENERGY_PRODUCTION");
-    if( isBroken){
-      msg.setContent(String.valueOf(0));
-    }else{
-      msg.setContent(String.valueOf(PkW));
-    }
-    msg.addReceiver(new AID("AggregatorAgent", AID.ISLOCALNAME));
+    MessageCodec.write(msg, MessageCodec.TYPE_ENERGY, isBroken ? 0.0 : PkW);
+    msg.addReceiver(parentAggregator());
     send(msg);
 
     reportState(0.0, isBroken ? 0 : PkW, 0.0, isBroken ? true : false);
@@ -72,18 +66,6 @@ public final class EnergySourceAgent extends AbstractEnergySourceAgent {
   /* ---------- physics ---------- */
 
   private double computePVPowerKW(double G, double Ta) {
-    if (G <= 0) return 0.0;
-
-    // Cell temperature via NOCT model
-    double Tc = Ta + (G / 800.0) * (noct - 20.0);
-
-    // Temperature-corrected efficiency
-    double eta = efficiency25 * (1.0 + tempCoeff * (Tc - 25.0));
-
-    // DC power
-    double Pdc = G * areaM2 * eta;     // W
-
-    // AC power after inverter
-    return Math.max(0.0, Pdc * INV_EFF / 1000.0) * noOfPanels; // kW
+    return pvPowerKw(G, Ta, efficiency25, tempCoeff, areaM2, noct) * noOfPanels;
   }
 }
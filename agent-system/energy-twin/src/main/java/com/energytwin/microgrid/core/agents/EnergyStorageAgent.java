@@ -18,8 +18,8 @@ public final class EnergyStorageAgent extends AbstractEnergyStorageAgent {
   protected void onAgentSetup() {
       setConfigParams();
 
-      AID shortfallTopic = new AID("CNP_SHORTFALL_TOPIC", AID.ISLOCALNAME);
-      AID surplusTopic = new AID("CNP_SURPLUS_TOPIC", AID.ISLOCALNAME);
+      AID shortfallTopic = cnpTopic(AggregatorAgent.CNP_SHORTFALL_TOPIC);
+      AID surplusTopic = cnpTopic(AggregatorAgent.CNP_SURPLUS_TOPIC);
       AID tickTopic = new AID("TICK_TOPIC", AID.ISLOCALNAME);
 
       addBehaviour(new BatteryCNPResponder(this, shortfallTopic, surplusTopic));
@@ -31,8 +31,7 @@ public final class EnergyStorageAgent extends AbstractEnergyStorageAgent {
 
   @Override
   protected void setConfigParams() {
-    Map<String, Object> cfg =
-            simulationConfigService.findAgentDefinition("energyStorage", getLocalName());
+    Map<String, Object> cfg = agentDefinition("energyStorage");
     if (cfg == null)
       throw new IllegalArgumentException("No config for battery " + getLocalName());
 
@@ -0,0 +1,92 @@
+package com.energytwin.microgrid.core.agents;
+
+import static com.energytwin.microgrid.core.agents.AggregatorAgent.*;
+
+import com.energytwin.microgrid.core.base.AbstractAggregatorAgent;
+import com.energytwin.microgrid.core.behaviours.aggregator.HandleShortfallCNP;
+import com.energytwin.microgrid.core.behaviours.aggregator.HandleSurplusCNP;
+import com.energytwin.microgrid.core.behaviours.aggregator.ProductionConsumptionListener;
+import com.energytwin.microgrid.core.behaviours.tick.TickSubscriberBehaviour;
+import com.energytwin.microgrid.core.codec.MessageCodec;
+import jade.core.AID;
+import jade.core.messaging.TopicManagementHelper;
+import jade.lang.acl.ACLMessage;
+
+/**
+ * Feeder-level sub-aggregator declared under {@code simulation.feeders}:
+ *
+ * <pre>
+ * "feeders": [ { "name": "FeederA", "members": ["Building1", "SolarPanel1", "Battery1"] } ]
+ * </pre>
+ *
+ * Members report their production and consumption here instead of to the root aggregator. Each
+ * tick the feeder nets its members and clears the imbalance against its own batteries on feeder
+ * scoped CNP topics ({@code FeederA.CNP_SHORTFALL_TOPIC}, ...). Only the residual is escalated to
+ * the root, as a single ENERGY_CONSUMPTION (shortfall) or ENERGY_PRODUCTION (surplus) INFORM, so
+ * the root sees one pseudo-device per feeder.
+ */
+public final class FeederAggregatorAgent extends AbstractAggregatorAgent {
+
+  private static final AID ROOT = new AID(ROOT_NAME, AID.ISLOCALNAME);
+
+  private AID shortfallTopic, surplusTopic;
+
+  @Override protected void onAgentSetup() {
+    try {
+      TopicManagementHelper tph = (TopicManagementHelper) getHelper(
+              TopicManagementHelper.SERVICE_NAME);
+
+      shortfallTopic = tph.createTopic(scopedTopic(getLocalName(), CNP_SHORTFALL_TOPIC));
+      surplusTopic   = tph.createTopic(scopedTopic(getLocalName(), CNP_SURPLUS_TOPIC));
+      subscribe(shortfallTopic);
+      subscribe(surplusTopic);
+
+    } catch (Exception e) {
+      log("Topic init error: {}", e.getMessage(), e);
+      doDelete();  return;
+    }
+
+    initNegotiation();
+
+    AID tickTopic = new AID("TICK_TOPIC", AID.ISLOCALNAME);
+    addBehaviour(new TickSubscriberBehaviour(this, tickTopic));
+    addBehaviour(new ProductionConsumptionListener(this));
+
+    log("Feeder started with {} batteries.", meta.allBatteries().size());
+  }
+
+  @Override public void onTick(long simulationTime) {
+    double net = totalProductionThisTick - totalConsumptionThisTick;
+    int batteries = meta.allBatteries().size();
+    log("Tick {}  P={}  L={}  Net={}", simulationTime,
+            totalProductionThisTick, totalConsumptionThisTick, net);
+
+    if (net != 0 && batteries > 0) {
+      if (net < 0)
+        addBehaviour(new HandleShortfallCNP(this, -net, shortfallTopic,
+                batteries, cnpDeadlineMillis, simulationTime));
+      else
+        addBehaviour(new HandleSurplusCNP(this, net, surplusTopic,
+                batteries, cnpDeadlineMillis, simulationTime));
+    } else {
+      escalate(net < 0 ? ONT_CONSUMPTION : ONT_PRODUCTION, Math.abs(net));
+      acknowledgeTick(simulationTime);
+    }
+
+    resetTickTotals();
+  }
+
+  /** Passes whatever the feeder's batteries could not absorb or cover on to the root. */
+  @Override public void onRoundCleared(String cfpOntology, double remaining, long tick) {
+    escalate(ONT_CFP_SHORTFALL.equals(cfpOntology) ? ONT_CONSUMPTION : ONT_PRODUCTION,
+            remaining);
+  }
+
+  private void escalate(String ontology, double kw) {
+    ACLMessage msg = new ACLMessage(ACLMessage.INFORM);
+    msg.setOntology(ontology);
+    MessageCodec.write(msg, MessageCodec.TYPE_ENERGY, Math.max(0, kw));
+    msg.addReceiver(ROOT);
+    send(msg);
+  }
+}
@@ -2,6 +2,7 @@ package com.energytwin.microgrid.core.agents;
 
 import com.energytwin.microgrid.core.base.AbstractLoadAgent;
 import com.energytwin.microgrid.core.behaviours.tick.TickSubscriberBehaviour;
+import com.energytwin.microgrid.core.codec.MessageCodec;
 import jade.core.AID;
 import jade.lang.acl.ACLMessage;
 
@@ -33,8 +34,7 @@ public final class LoadAgent extends AbstractLoadAgent {
   /** Parse nominal load; all defaults handled by config-service. */
   @Override
   protected void setConfigParams() {
-    Map<String, Object> cfg =
-            simulationConfigService.findAgentDefinition("load", getLocalName());
+    Map<String, Object> cfg = agentDefinition("load");
 
     if (cfg == null || !cfg.containsKey("nominalLoad")) {
       throw new IllegalArgumentException("Load agent " + getLocalName()
@@ -54,23 +54,15 @@ public final class LoadAgent extends AbstractLoadAgent {
 
     // random Δ in [−0.10 , +0.30]
     double delta = -0.10 + 0.40 * RNG.nextDouble();
-    double frac = baselineFrac + delta;
-
-    // clamp within ±(10,30) pp of baseline
-    frac = Math.max(baselineFrac - 0.10, frac);
-    frac = Math.min(baselineFrac + 0.30, frac);
-
-    // global floor / ceiling
-    frac = Math.max(0.10, frac);
-    frac = Math.min(1.30, frac);
+    double frac = loadFraction(baselineFrac, delta);
 
     double consumedKw = frac * nominalLoadKw * rate;
 
     /* ---------- messaging ---------- */
     ACLMessage msg = new ACLMessage(ACLMessage.INFORM);
     msg.setOntology("ENERGY_CONSUMPTION");
-    msg.setContent(String.valueOf(consumedKw));
-    msg.addReceiver(new AID("AggregatorAgent", AID.ISLOCALNAME));
+    MessageCodec.write(msg, MessageCodec.TYPE_ENERGY, consumedKw);
+    msg.addReceiver(parentAggregator());
     send(msg);
 
     reportState(consumedKw, 0.0, 0.0);
@@ -78,12 +70,4 @@ public final class LoadAgent extends AbstractLoadAgent {
     log("t=%d  hour=%02d  baseline=%.0f%%  Δ=%.1f%%  load=%.2f kW"
             .formatted(tick, hour, baselineFrac * 100, delta * 100, consumedKw));
   }
-
-  /* ---------------- helpers ---------------- */
-
-  private double baselineFraction(int hour) {
-    if (hour >=  8 && hour < 18) return 0.80;   // working
-    if ((hour >= 6 && hour < 8) || (hour >= 18 && hour < 20)) return 0.50; // low-working
-    return 0.10;                                // night
-  }
 }
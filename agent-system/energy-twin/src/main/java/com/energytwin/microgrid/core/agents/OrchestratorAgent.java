@@ -1,22 +1,32 @@
 package com.energytwin.microgrid.core.agents;
 
 import com.energytwin.microgrid.agentfusion.SpringAgent;
+import com.energytwin.microgrid.core.behaviours.tick.LockStepTickBehaviour;
 import com.energytwin.microgrid.core.behaviours.tick.TickBroadcastBehaviour;
+import com.energytwin.microgrid.core.codec.MessageCodec;
 import jade.core.AID;
 import jade.core.messaging.TopicManagementHelper;
+import jade.lang.acl.ACLMessage;
 
 /**
  * OrchestratorAgent is responsible for broadcasting simulation tick messages to all subscribed
  * agents. It creates a tick topic using JADE's TopicManagementHelper and sends ticks only when the
  * simulation is active.
+ *
+ * <p>Ticks are driven either by the wall clock ({@link TickBroadcastBehaviour}) or, in lock-step
+ * mode, by the acknowledgements of the subscribed agents ({@link LockStepTickBehaviour}). Both
+ * behaviours are always installed and yield to each other depending on the current mode, so the
+ * mode can be switched at runtime.
  */
 public class OrchestratorAgent extends SpringAgent {
 
+  private AID tickTopic;
+  private long simulationTime = 0;
+
   @Override
   protected void onAgentSetup() {
     log("Orchestrator Agent started.");
 
-    AID tickTopic;
     try {
       TopicManagementHelper topicHelper =
           (TopicManagementHelper) getHelper(TopicManagementHelper.SERVICE_NAME);
@@ -31,11 +41,27 @@ public class OrchestratorAgent extends SpringAgent {
 
     TickBroadcastBehaviour tickBroadcastBehaviour =
         new TickBroadcastBehaviour(
-            this,
-            simulationControlService.getSimulationDelay(),
-            tickTopic,
-            simulationControlService,
-            simulationControlServiceWS);
+            this, simulationControlService.getSimulationDelay(), simulationControlService);
     addBehaviour(tickBroadcastBehaviour);
+    addBehaviour(new LockStepTickBehaviour(this, simulationControlService));
+  }
+
+  /**
+   * Advances the simulation clock by one tick and broadcasts it on the tick topic.
+   *
+   * @return the tick that was broadcast
+   */
+  public long broadcastTick() {
+    simulationTime += 1;
+    ACLMessage tickMsg = new ACLMessage(ACLMessage.INFORM);
+    tickMsg.setOntology("TICK");
+    MessageCodec.writeLong(tickMsg, MessageCodec.TYPE_TICK, simulationTime);
+    tickMsg.addReceiver(tickTopic);
+    send(tickMsg);
+    log("Broadcast tick: {}", simulationTime);
+
+    simulationControlService.recordTick();
+    simulationControlServiceWS.onTickCompleted(); // zbiera info z poprzedniego
+    return simulationTime;
   }
 }
@@ -2,6 +2,7 @@ package com.energytwin.microgrid.core.agents;
 
 import com.energytwin.microgrid.core.base.AbstractSimAgent;
 import com.energytwin.microgrid.core.behaviours.tick.TickSubscriberBehaviour;
+import com.energytwin.microgrid.core.codec.MessageCodec;
 import jade.core.AID;
 import jade.core.messaging.TopicManagementHelper;
 import jade.lang.acl.ACLMessage;
@@ -50,7 +51,7 @@ public final class WeatherAgent extends AbstractSimAgent {
               (TopicManagementHelper) getHelper(TopicManagementHelper.SERVICE_NAME);
       AID tickTopic = helper.createTopic("TICK_TOPIC");
       irradianceTopic = helper.createTopic("IRRADIANCE_TOPIC");
-      helper.register(irradianceTopic);
+      subscribe(irradianceTopic);
       addBehaviour(new TickSubscriberBehaviour(this, tickTopic));
       log("WeatherAgent initialised: sunrise=%02d sunset=%02d peak=%02d  G_peak=%.0f  T_day=%.1f °C  T_night=%.1f °C"
               .formatted(sunriseTick, sunsetTick, sunPeakTick, gPeak, tempMeanDay, tempMeanNight));
@@ -91,7 +92,7 @@ public final class WeatherAgent extends AbstractSimAgent {
 
     ACLMessage msg = new ACLMessage(ACLMessage.INFORM);
     msg.setOntology("IRRADIANCE");
-    msg.setContent("G=" + G + ";T=" + Ta);
+    MessageCodec.write(msg, MessageCodec.TYPE_IRRADIANCE, G, Ta);
     msg.addReceiver(irradianceTopic);
     send(msg);
 
@@ -0,0 +1,127 @@
+package com.energytwin.microgrid.core.base;
+
+import com.energytwin.microgrid.core.aggregator.AggregatorMetaStore;
+import com.energytwin.microgrid.core.behaviours.aggregator.MeritOrderClearing;
+import lombok.Getter;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Common base for the root aggregator and the feeder sub-aggregators: per-tick netting of the
+ * members' production and consumption, CNP bookkeeping and the storage meta of the members.
+ */
+public abstract class AbstractAggregatorAgent extends AbstractSimAgent {
+
+  /** Local name of the root aggregator; devices outside any feeder report to it. */
+  public static final String ROOT_NAME = "AggregatorAgent";
+
+  /* ---------------- cumulative per-tick ---------------- */
+  public double totalProductionThisTick = 0;
+  public double totalConsumptionThisTick = 0;
+  public Map<String, Double> productionMap = new HashMap<>();
+  public Map<String, Double> consumptionMap = new HashMap<>();
+
+  /* ---------------- CNP rounds ---------------- */
+  public final Set<String> openNegotiations = new HashSet<>();  // conversation ids
+  protected long cnpDeadlineMillis;
+  @Getter protected MeritOrderClearing.TieBreak cnpTieBreak;
+  protected AggregatorMetaStore meta;
+
+  /**
+   * Name of a CNP topic in the negotiation scope of the given aggregator. The root keeps the plain
+   * topic names, feeders prefix them with their own name so their rounds stay local.
+   */
+  public static String scopedTopic(String aggregatorName, String topic) {
+    return ROOT_NAME.equals(aggregatorName) ? topic : aggregatorName + "." + topic;
+  }
+
+  /** Reads the CNP settings and the storage meta of the members from the simulation config. */
+  protected void initNegotiation() {
+    cnpDeadlineMillis = simulationConfigService.getCnpDeadlineMillis();
+    cnpTieBreak = MeritOrderClearing.TieBreak.fromConfig(
+            simulationConfigService.getCnpTieBreak());
+    meta = new AggregatorMetaStore();
+    loadBatteryMetaFromConfig();
+  }
+
+  /** Publishes the wall-clock duration of a finished CNP round. */
+  public void recordNegotiationLatency(double millis) {
+    registry.recordNegotiationLatency(millis);
+  }
+
+  /**
+   * Called once a CNP round of the given tick has been cleared, before the tick is acknowledged.
+   *
+   * @param cfpOntology {@code CNP_SHORTFALL} or {@code CNP_SURPLUS}
+   * @param remaining quantity (kW) that could not be allocated
+   */
+  public void onRoundCleared(String cfpOntology, double remaining, long tick) {}
+
+  /** The tick is acknowledged by the CNP round started in {@link #onTick(long)}. */
+  @Override public boolean defersTickAck() { return true; }
+
+  /** Clears the per-tick accumulators. */
+  protected void resetTickTotals() {
+    totalProductionThisTick  = 0;
+    totalConsumptionThisTick = 0;
+    productionMap.clear();
+    consumptionMap.clear();
+  }
+
+  /* ------------------------------------------------------------------ */
+  /* LOAD ALL STATIC CAPABILITIES DIRECTLY FROM SIMULATION CONFIG       */
+  private void loadBatteryMetaFromConfig() {
+
+    simulationConfigService.getValidatedAgentDefinitions().stream()
+            .filter(a -> "energyStorage".equalsIgnoreCase((String) a.get("type")))
+            .filter(this::isMember)
+            .forEach(a -> {
+              String name = (String) a.get("name");
+              double cap  = dbl(a, "capacity",      0.0);
+              double ec   = dbl(a, "etaCharge",     0.95);
+              double ed   = dbl(a, "etaDischarge",  0.93);
+              double cr   = dbl(a, "cRate",         0.5);
+
+              meta.addBattery(name,
+                      new AggregatorMetaStore.BatteryMeta(cap, ec, ed, cr));
+              log("Loaded meta from config for battery {}", name);
+            });
+
+    /* a fleet's storage answers CNP and is planned as one capacity-weighted battery */
+    simulationConfigService.getValidatedAgentDefinitions().stream()
+            .filter(a -> "fleet".equalsIgnoreCase((String) a.get("type")))
+            .filter(this::isMember)
+            .forEach(a -> {
+              if (!(a.get("devices") instanceof List<?> groups)) return;
+              double cap = 0, ec = 0, ed = 0, cr = 0;
+              for (Object g : groups) {
+                @SuppressWarnings("unchecked")
+                Map<String, Object> grp = (Map<String, Object>) g;
+                if (!"energyStorage".equals(grp.get("type"))) continue;
+                double c = dbl(grp, "count", 1) * dbl(grp, "capacity", 300.0);
+                cap += c;
+                ec  += c * dbl(grp, "etaCharge",    0.94);
+                ed  += c * dbl(grp, "etaDischarge", 0.92);
+                cr  += c * dbl(grp, "cRate",        0.5);
+              }
+              if (cap <= 0) return;
+              String name = (String) a.get("name");
+              meta.addBattery(name,
+                      new AggregatorMetaStore.BatteryMeta(cap, ec / cap, ed / cap, cr / cap));
+              log("Loaded aggregate storage meta for fleet {} ({} kWh)", name, cap);
+            });
+  }
+
+  private boolean isMember(Map<String, Object> agentDef) {
+    return getLocalName().equals(
+            simulationConfigService.getParentAggregator((String) agentDef.get("name")));
+  }
+
+  protected static double dbl(Map<String, Object> m, String k, double d){
+    Object v = m.get(k); return v==null ? d : Double.parseDouble(v.toString());
+  }
+}
@@ -5,6 +5,8 @@ import lombok.Setter;
 
 @Setter
 public abstract class AbstractEnergySourceAgent extends AbstractSimAgent {
+  public static final double INV_EFF = 0.96;   // inverter efficiency
+
   protected int    noOfPanels;
   protected double efficiency25;     // η at 25 °C
   protected double areaM2;           // panel area
@@ -16,4 +18,24 @@ public abstract class AbstractEnergySourceAgent extends AbstractSimAgent {
   @Getter protected double ambientTemp = 25.0;
 
     protected abstract void setConfigParams();
+
+  /* ---------- physics (also used by the bulk fleet kernel) ---------- */
+
+  /** AC power (kW) of a single panel, NOCT cell-temperature model + temperature coefficient. */
+  public static double pvPowerKw(double G, double Ta, double efficiency25, double tempCoeff,
+                                 double areaM2, double noct) {
+    if (G <= 0) return 0.0;
+
+    // Cell temperature via NOCT model
+    double Tc = Ta + (G / 800.0) * (noct - 20.0);
+
+    // Temperature-corrected efficiency
+    double eta = efficiency25 * (1.0 + tempCoeff * (Tc - 25.0));
+
+    // DC power
+    double Pdc = G * areaM2 * eta;     // W
+
+    // AC power after inverter
+    return Math.max(0.0, Pdc * INV_EFF / 1000.0); // kW
+  }
 }
@@ -37,6 +37,18 @@ public abstract class AbstractEnergyStorageAgent extends AbstractSimAgent {
 
   /** Linear-derated discharge efficiency. */
   public double dischargeEffEff() {
+    return dischargeEff(socKwh, capacityKwh, dischargeEffBase);
+  }
+
+  /** Linear-derated charge efficiency. */
+  public double chargeEffEff() {
+    return chargeEff(socKwh, capacityKwh, chargeEffBase);
+  }
+
+  /* -------- battery physics (also used by the bulk fleet kernel) -------- */
+
+  /** Discharge efficiency, derated linearly below 10 % SoC. */
+  public static double dischargeEff(double socKwh, double capacityKwh, double dischargeEffBase) {
     if (socKwh < 0.10 * capacityKwh) {
       double eff = dischargeEffBase * (socKwh / (0.10 * capacityKwh));
       if (!Double.isFinite(eff) || eff < 1e-6) eff = 1e-6;
@@ -45,8 +57,8 @@ public abstract class AbstractEnergyStorageAgent extends AbstractSimAgent {
     return dischargeEffBase;
   }
 
-  /** Linear-derated charge efficiency. */
-  public double chargeEffEff() {
+  /** Charge efficiency, derated linearly above 90 % SoC. */
+  public static double chargeEff(double socKwh, double capacityKwh, double chargeEffBase) {
     if (socKwh > 0.90 * capacityKwh) {
       double eff = chargeEffBase * ((capacityKwh - socKwh) / (0.10 * capacityKwh));
       if (!Double.isFinite(eff) || eff < 1e-6) eff = 1e-6;
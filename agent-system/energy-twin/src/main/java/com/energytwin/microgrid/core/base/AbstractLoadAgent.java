@@ -13,4 +13,29 @@ public abstract class AbstractLoadAgent extends AbstractSimAgent {
 
   /** Implementations must populate nominalLoadKw from config. */
   protected abstract void setConfigParams();
+
+  /* -------- shared load profile (also used by the bulk fleet kernel) -------- */
+
+  /** Baseline fraction of P<sub>nom</sub>: working 08–18, low-working 06–08/18–20, night. */
+  public static double baselineFraction(int hour) {
+    if (hour >=  8 && hour < 18) return 0.80;   // working
+    if ((hour >= 6 && hour < 8) || (hour >= 18 && hour < 20)) return 0.50; // low-working
+    return 0.10;                                // night
+  }
+
+  /**
+   * Applies a random Δ to the baseline and clamps the result to [-10, +30] pp around the baseline
+   * and to the global range [0.10, 1.30].
+   */
+  public static double loadFraction(double baselineFrac, double delta) {
+    double frac = baselineFrac + delta;
+
+    // clamp within ±(10,30) pp of baseline
+    frac = Math.max(baselineFrac - 0.10, frac);
+    frac = Math.min(baselineFrac + 0.30, frac);
+
+    // global floor / ceiling
+    frac = Math.max(0.10, frac);
+    return Math.min(1.30, frac);
+  }
 }
@@ -1,6 +1,13 @@
 package com.energytwin.microgrid.core.base;
 
 import com.energytwin.microgrid.agentfusion.SpringAgent;
+import com.energytwin.microgrid.core.codec.MessageCodec;
+import com.energytwin.microgrid.service.StartupTimingService;
+import jade.core.AID;
+import jade.core.ServiceException;
+import jade.core.messaging.TopicManagementHelper;
+import jade.lang.acl.ACLMessage;
+import java.util.Map;
 
 /**
  * Abstract base class for all simulation agents. Defines a common tick behavior that all simulation
@@ -8,6 +15,13 @@ import com.energytwin.microgrid.agentfusion.SpringAgent;
  */
 public abstract class AbstractSimAgent extends SpringAgent {
 
+  /** Ontology of the lock-step acknowledgement sent back to the orchestrator. */
+  public static final String ONT_TICK_ACK = "TICK_ACK";
+
+  private static final AID ORCHESTRATOR = new AID("OrchestratorAgent", AID.ISLOCALNAME);
+
+  private AID parentAggregator;
+
   /**
    * Called on every simulation tick.
    *
@@ -15,4 +29,78 @@ public abstract class AbstractSimAgent extends SpringAgent {
    */
   public abstract void onTick(long simulationTime);
 
+  /**
+   * Subscribes this agent to a topic and records the time spent in the startup timings.
+   *
+   * @param topic the topic AID
+   * @throws ServiceException if the TopicManagementService is not available
+   */
+  public void subscribe(AID topic) throws ServiceException {
+    long start = System.nanoTime();
+    ((TopicManagementHelper) getHelper(TopicManagementHelper.SERVICE_NAME)).register(topic);
+    if (startupTiming != null) {
+      startupTiming.record(
+          StartupTimingService.Phase.TOPIC_SUBSCRIPTION, System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * Returns this agent's definition from the "agents" config list. The launcher passes it as the
+   * first start-up argument; agents started without it fall back to a lookup by type and name.
+   *
+   * @param type the expected agent type (e.g. "energySource").
+   * @return the agent definition, or null if there is none.
+   */
+  @SuppressWarnings("unchecked")
+  protected Map<String, Object> agentDefinition(String type) {
+    Object[] args = getArguments();
+    if (args != null && args.length > 0 && args[0] instanceof Map<?, ?> definition) {
+      return (Map<String, Object>) definition;
+    }
+    return simulationConfigService.findAgentDefinition(type, getLocalName());
+  }
+
+  /**
+   * The aggregator this agent reports its production/consumption to: its feeder sub-aggregator if
+   * the config lists it as a feeder member, otherwise the root aggregator.
+   */
+  protected AID parentAggregator() {
+    if (parentAggregator == null) {
+      parentAggregator =
+          new AID(simulationConfigService.getParentAggregator(getLocalName()), AID.ISLOCALNAME);
+    }
+    return parentAggregator;
+  }
+
+  /** A CNP topic in the negotiation scope of this agent's parent aggregator. */
+  protected AID cnpTopic(String topic) {
+    return new AID(
+        AbstractAggregatorAgent.scopedTopic(parentAggregator().getLocalName(), topic),
+        AID.ISLOCALNAME);
+  }
+
+  /**
+   * Whether the agent acknowledges ticks itself once its per-tick work (e.g. a CNP round) has
+   * finished, instead of right after {@link #onTick(long)} returns.
+   */
+  public boolean defersTickAck() {
+    return false;
+  }
+
+  /**
+   * Tells the orchestrator that this agent is done with the given tick. Only sent in lock-step
+   * mode; in realtime mode ticks are paced by the wall clock.
+   *
+   * @param simulationTime the tick being acknowledged
+   */
+  public void acknowledgeTick(long simulationTime) {
+    if (simulationControlService == null || !simulationControlService.isLockStep()) {
+      return;
+    }
+    ACLMessage ack = new ACLMessage(ACLMessage.INFORM);
+    ack.setOntology(ONT_TICK_ACK);
+    MessageCodec.writeLong(ack, MessageCodec.TYPE_TICK, simulationTime);
+    ack.addReceiver(ORCHESTRATOR);
+    send(ack);
+  }
 }
@@ -0,0 +1,209 @@
+package com.energytwin.microgrid.core.behaviours.aggregator;
+
+import static com.energytwin.microgrid.core.agents.AggregatorAgent.*;
+
+import com.energytwin.microgrid.core.base.AbstractAggregatorAgent;
+import com.energytwin.microgrid.core.codec.MessageCodec;
+import com.energytwin.microgrid.core.models.Proposal;
+import jade.core.AID;
+import jade.core.behaviours.SimpleBehaviour;
+import jade.lang.acl.ACLMessage;
+import jade.lang.acl.MessageTemplate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Non-blocking contract-net round run by the root aggregator or a feeder sub-aggregator.
+ *
+ * <p>The CFP is sent when the behaviour starts; afterwards the behaviour only wakes up when a
+ * message arrives or the deadline expires. The round closes as soon as all expected responders
+ * have proposed or the deadline has passed, whichever comes first, and then hands the proposals to
+ * {@link MeritOrderClearing}; accepts and the (single, multi-receiver) reject are sent as one batch.
+ * Proposals are matched on the round's conversation id, so late answers to an
+ * earlier round are never mixed into the current one; they are discarded when the next round opens.
+ */
+public abstract class CNPNegotiationBehaviour extends SimpleBehaviour {
+
+  protected final AbstractAggregatorAgent agent;
+  protected final double requested;
+  protected final long tick;
+  private final AID topic;
+  private final String cfpOntology;
+  private final int expectedResponders;
+  private final long deadlineMillis;
+
+  protected final List<Proposal> proposals = new ArrayList<>();
+  private String conversationId;
+  private MessageTemplate proposalTemplate;
+  private long startedAtNanos;
+  private long deadlineAtMillis;
+  private boolean closed;
+
+  /**
+   * @param agent the aggregator running the round.
+   * @param requested amount (kW) put out to tender.
+   * @param topic topic the CFP is broadcast on.
+   * @param cfpOntology {@code CNP_SHORTFALL} or {@code CNP_SURPLUS}.
+   * @param expectedResponders number of agents subscribed to the topic that are expected to answer.
+   * @param deadlineMillis maximum time to wait for proposals.
+   * @param tick simulation tick the round belongs to.
+   */
+  protected CNPNegotiationBehaviour(
+      AbstractAggregatorAgent agent,
+      double requested,
+      AID topic,
+      String cfpOntology,
+      int expectedResponders,
+      long deadlineMillis,
+      long tick) {
+    super(agent);
+    this.agent = agent;
+    this.requested = requested;
+    this.topic = topic;
+    this.cfpOntology = cfpOntology;
+    this.expectedResponders = expectedResponders;
+    this.deadlineMillis = deadlineMillis;
+    this.tick = tick;
+  }
+
+  @Override
+  public void onStart() {
+    conversationId = cfpOntology + "-" + tick;
+    proposalTemplate =
+        MessageTemplate.and(
+            MessageTemplate.MatchOntology(ONT_PROPOSAL),
+            MessageTemplate.MatchConversationId(conversationId));
+    agent.openNegotiations.add(conversationId);
+    discardStaleProposals();
+
+    ACLMessage cfp = new ACLMessage(ACLMessage.CFP);
+    cfp.setOntology(cfpOntology);
+    cfp.setConversationId(conversationId);
+    MessageCodec.write(cfp, MessageCodec.TYPE_CFP, requested);
+    cfp.addReceiver(topic);
+    agent.send(cfp);
+
+    startedAtNanos = System.nanoTime();
+    deadlineAtMillis = System.currentTimeMillis() + deadlineMillis;
+  }
+
+  @Override
+  public void action() {
+    ACLMessage msg = agent.receive(proposalTemplate);
+    while (msg != null) {
+      proposals.add(parseProposal(msg, proposals.size()));
+      msg = agent.receive(proposalTemplate);
+    }
+
+    long remaining = deadlineAtMillis - System.currentTimeMillis();
+    if (proposals.size() >= expectedResponders || remaining <= 0) {
+      closed = true;
+    } else {
+      block(remaining);
+    }
+  }
+
+  @Override
+  public boolean done() {
+    return closed;
+  }
+
+  @Override
+  public int onEnd() {
+    agent.openNegotiations.remove(conversationId);
+    double latencyMs = (System.nanoTime() - startedAtNanos) / 1e6;
+    agent.recordNegotiationLatency(latencyMs);
+    agent.log(
+        "{} round for tick {} closed after {} ms with {}/{} proposals",
+        cfpOntology,
+        tick,
+        "%.1f".formatted(latencyMs),
+        proposals.size(),
+        expectedResponders);
+
+    double remaining = clear();
+    agent.onRoundCleared(cfpOntology, remaining, tick);
+    agent.acknowledgeTick(tick);
+    return 0;
+  }
+
+  /**
+   * Allocates the requested amount over the collected proposals and answers every responder.
+   *
+   * @return the quantity that could not be allocated
+   */
+  private double clear() {
+    long start = System.nanoTime();
+    double remaining = MeritOrderClearing.clear(proposals, requested, agent.getCnpTieBreak());
+
+    ACLMessage reject = new ACLMessage(ACLMessage.REJECT_PROPOSAL);
+    reject.setOntology(ONT_REJECT);
+    reject.setConversationId(conversationId);
+    MessageCodec.write(reject, MessageCodec.TYPE_REJECT);
+    int accepted = 0;
+    for (Proposal p : proposals) {
+      if (p.getAcceptedAmount() > 0) {
+        ACLMessage accept = new ACLMessage(ACLMessage.ACCEPT_PROPOSAL);
+        accept.setOntology(ONT_ACCEPT);
+        accept.setInReplyTo(cfpOntology);
+        accept.setConversationId(conversationId);
+        MessageCodec.write(accept, MessageCodec.TYPE_ACCEPT, p.getAcceptedAmount());
+        accept.addReceiver(p.getSender());
+        agent.send(accept);
+        accepted++;
+      } else {
+        reject.addReceiver(p.getSender());
+      }
+    }
+    if (accepted < proposals.size()) {
+      agent.send(reject);
+    }
+    agent.log(
+        "Cleared {} proposals in {} ms: {} accepted, {} rejected ({})",
+        proposals.size(),
+        "%.3f".formatted((System.nanoTime() - start) / 1e6),
+        accepted,
+        proposals.size() - accepted,
+        rejectReason());
+    onCleared(remaining);
+    return remaining;
+  }
+
+  /** Reason logged for the rejections of this round. */
+  protected abstract String rejectReason();
+
+  /** Called after clearing with the quantity that could not be allocated. */
+  protected abstract void onCleared(double remaining);
+
+  /** Drops proposals that belong to rounds which are no longer open. */
+  private void discardStaleProposals() {
+    MessageTemplate stale =
+        MessageTemplate.and(
+            MessageTemplate.MatchOntology(ONT_PROPOSAL),
+            new MessageTemplate(m -> !agent.openNegotiations.contains(m.getConversationId())));
+    int dropped = 0;
+    while (agent.receive(stale) != null) {
+      dropped++;
+    }
+    if (dropped > 0) {
+      agent.log("Discarded {} late proposals from closed CNP rounds", dropped);
+    }
+  }
+
+  /**
+   * Decodes a {@link MessageCodec#TYPE_PROPOSAL} payload (amount, cost). A malformed proposal is
+   * kept with a zero amount so that it still counts as an answer but is never accepted.
+   */
+  public static Proposal parseProposal(ACLMessage msg, int arrivalIndex) {
+    Proposal p = new Proposal();
+    p.setSender(msg.getSender());
+    p.setArrivalIndex(arrivalIndex);
+    try {
+      p.setAmount(MessageCodec.readDouble(msg, MessageCodec.TYPE_PROPOSAL, 0));
+      p.setCost(MessageCodec.readDouble(msg, MessageCodec.TYPE_PROPOSAL, 1));
+    } catch (IllegalArgumentException e) {
+      p.setAmount(0);
+    }
+    return p;
+  }
+}
@@ -0,0 +1,147 @@
+package com.energytwin.microgrid.core.behaviours.aggregator;
+
+import com.energytwin.microgrid.core.models.Proposal;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Merit-order clearing shared by the shortfall and surplus CNP rounds.
+ *
+ * <p>Proposals are ranked once by price (ascending), then by offered amount (descending), then by
+ * arrival. The requested quantity is filled in a single pass over that ranking; the marginal
+ * proposal may be filled partially. All bookkeeping is index based (primitive arrays in, accepted
+ * amount per index out), so clearing n proposals costs O(n log n) for the ranking plus O(n) for the
+ * allocation, independent of how many are accepted.
+ */
+public final class MeritOrderClearing {
+
+  /** How proposals offered at the same (marginal) price share the remaining quantity. */
+  public enum TieBreak {
+    /** Larger offers first, then earlier arrivals; the last one may be partially filled. */
+    LARGEST_FIRST,
+    /** All offers of the marginal price tier are filled by the same fraction. */
+    PRO_RATA;
+
+    public static TieBreak fromConfig(String value) {
+      return "proRata".equalsIgnoreCase(value) ? PRO_RATA : LARGEST_FIRST;
+    }
+  }
+
+  private MeritOrderClearing() {}
+
+  /**
+   * Clears a list of proposals and stores the result in {@link Proposal#setAcceptedAmount}. The
+   * list must be in arrival order.
+   *
+   * @return the quantity that could not be allocated
+   */
+  public static double clear(List<Proposal> proposals, double requested, TieBreak tieBreak) {
+    int n = proposals.size();
+    double[] amount = new double[n];
+    double[] cost = new double[n];
+    for (int i = 0; i < n; i++) {
+      Proposal p = proposals.get(i);
+      amount[i] = p.getAmount();
+      cost[i] = p.getCost();
+    }
+    double[] accepted = new double[n];
+    double remaining = clear(amount, cost, n, requested, tieBreak, accepted);
+    for (int i = 0; i < n; i++) {
+      proposals.get(i).setAcceptedAmount(accepted[i]);
+    }
+    return remaining;
+  }
+
+  /**
+   * Clears {@code n} proposals given as parallel arrays in arrival order.
+   *
+   * @param amount offered quantity per proposal; non-positive offers are never accepted
+   * @param cost price per proposal
+   * @param n number of proposals
+   * @param requested quantity to allocate
+   * @param tieBreak sharing rule for the marginal price tier
+   * @param accepted output: accepted quantity per proposal, 0 for rejected ones
+   * @return the quantity that could not be allocated
+   */
+  public static double clear(
+      double[] amount,
+      double[] cost,
+      int n,
+      double requested,
+      TieBreak tieBreak,
+      double[] accepted) {
+    int[] order = meritOrder(amount, cost, n);
+    Arrays.fill(accepted, 0, n, 0.0);
+
+    double remaining = requested;
+    int i = 0;
+    while (i < n && remaining > 0) {
+      if (tieBreak == TieBreak.PRO_RATA) {
+        int j = i;
+        double tier = 0;
+        double price = cost[order[i]];
+        while (j < n && cost[order[j]] == price) {
+          tier += Math.max(0, amount[order[j]]);
+          j++;
+        }
+        double share = tier > remaining ? remaining / tier : 1.0;
+        for (int k = i; k < j; k++) {
+          accepted[order[k]] = Math.max(0, amount[order[k]]) * share;
+        }
+        remaining = tier > remaining ? 0 : remaining - tier;
+        i = j;
+      } else {
+        int p = order[i++];
+        if (amount[p] <= 0) {
+          continue;
+        }
+        double used = Math.min(remaining, amount[p]);
+        accepted[p] = used;
+        remaining -= used;
+      }
+    }
+    return remaining;
+  }
+
+  /**
+   * Returns proposal indices ranked by cost ascending, then amount descending. The sort is stable,
+   * so equal proposals keep their arrival order.
+   */
+  static int[] meritOrder(double[] amount, double[] cost, int n) {
+    int[] order = new int[n];
+    for (int i = 0; i < n; i++) {
+      order[i] = i;
+    }
+    int[] buffer = new int[n];
+    for (int width = 1; width < n; width *= 2) {
+      for (int lo = 0; lo < n - width; lo += 2 * width) {
+        merge(order, buffer, lo, lo + width, Math.min(lo + 2 * width, n), amount, cost);
+      }
+    }
+    return order;
+  }
+
+  private static void merge(
+      int[] order, int[] buffer, int lo, int mid, int hi, double[] amount, double[] cost) {
+    System.arraycopy(order, lo, buffer, lo, hi - lo);
+    int a = lo;
+    int b = mid;
+    for (int k = lo; k < hi; k++) {
+      if (a >= mid) {
+        order[k] = buffer[b++];
+      } else if (b >= hi || !ranksBefore(buffer[b], buffer[a], amount, cost)) {
+        order[k] = buffer[a++];
+      } else {
+        order[k] = buffer[b++];
+      }
+    }
+  }
+
+  private static boolean ranksBefore(int x, int y, double[] amount, double[] cost) {
+    int byCost = Double.compare(cost[x], cost[y]);
+    if (byCost != 0) {
+      return byCost < 0;
+    }
+    return Double.compare(amount[x], amount[y]) > 0;
+  }
+}
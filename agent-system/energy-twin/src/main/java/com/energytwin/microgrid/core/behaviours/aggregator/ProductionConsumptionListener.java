@@ -1,15 +1,17 @@
 package com.energytwin.microgrid.core.behaviours.aggregator;
 
 import com.energytwin.microgrid.core.agents.AggregatorAgent;
+import com.energytwin.microgrid.core.base.AbstractAggregatorAgent;
+import com.energytwin.microgrid.core.codec.MessageCodec;
 import jade.core.behaviours.CyclicBehaviour;
 import jade.lang.acl.ACLMessage;
 import jade.lang.acl.MessageTemplate;
 
 public class ProductionConsumptionListener extends CyclicBehaviour {
 
-  AggregatorAgent agent;
+  AbstractAggregatorAgent agent;
 
-  public ProductionConsumptionListener(AggregatorAgent agent) {
+  public ProductionConsumptionListener(AbstractAggregatorAgent agent) {
     super(agent);
     this.agent = agent;
   }
@@ -21,16 +23,31 @@ public class ProductionConsumptionListener extends CyclicBehaviour {
     if (msg != null) {
       String ontology = msg.getOntology();
       if (AggregatorAgent.ONT_PRODUCTION.equals(ontology)) {
-        double produced = Double.parseDouble(msg.getContent());
-        agent.totalProductionThisTick += produced;
-        agent.productionMap.put(msg.getSender().getLocalName(), produced);
+        Double produced = readEnergy(msg);
+        if (produced != null) {
+          agent.totalProductionThisTick += produced;
+          agent.productionMap.put(msg.getSender().getLocalName(), produced);
+        }
       } else if (AggregatorAgent.ONT_CONSUMPTION.equals(ontology)) {
-        double consumed = Double.parseDouble(msg.getContent());
-        agent.totalConsumptionThisTick += consumed;
-        agent.consumptionMap.put(msg.getSender().getLocalName(), consumed);
+        Double consumed = readEnergy(msg);
+        if (consumed != null) {
+          agent.totalConsumptionThisTick += consumed;
+          agent.consumptionMap.put(msg.getSender().getLocalName(), consumed);
+        }
       }
     } else {
       block();
     }
   }
+
+  /* Read the reported energy safely; null if the message is malformed */
+  private Double readEnergy(ACLMessage msg) {
+    try {
+      return MessageCodec.readDouble(msg, MessageCodec.TYPE_ENERGY, 0);
+    } catch (IllegalArgumentException e) {
+      agent.log("Malformed energy report from " + msg.getSender().getLocalName() + ": "
+          + e.getMessage());
+      return null;
+    }
+  }
 }
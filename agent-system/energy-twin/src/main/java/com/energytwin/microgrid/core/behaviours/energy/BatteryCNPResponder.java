@@ -3,10 +3,10 @@ package com.energytwin.microgrid.core.behaviours.energy;
 import com.energytwin.microgrid.agentfusion.util.SpringContext;
 import com.energytwin.microgrid.core.agents.EnergyStorageAgent;
 import com.energytwin.microgrid.core.base.AbstractEnergyStorageAgent;
+import com.energytwin.microgrid.core.codec.MessageCodec;
 import com.energytwin.microgrid.service.EventControlService;
 import jade.core.AID;
 import jade.core.behaviours.CyclicBehaviour;
-import jade.core.messaging.TopicManagementHelper;
 import jade.lang.acl.ACLMessage;
 import jade.lang.acl.MessageTemplate;
 
@@ -26,9 +26,7 @@ public final class BatteryCNPResponder extends CyclicBehaviour {
     this.bat = bat;
     this.controlService = SpringContext.getBean(EventControlService.class);
     try {
-      TopicManagementHelper h = (TopicManagementHelper)
-              bat.getHelper(TopicManagementHelper.SERVICE_NAME);
-      h.register(shortfallTopic); h.register(surplusTopic);
+      bat.subscribe(shortfallTopic); bat.subscribe(surplusTopic);
     } catch (Exception e) { bat.log("Topic register error: {}", e.getMessage(), e); }
   }
 
@@ -58,28 +56,36 @@ public final class BatteryCNPResponder extends CyclicBehaviour {
   /* ---------- CFP ---------- */
   private void respondToCFP(ACLMessage cfp) {
     String ont = cfp.getOntology();
-    double req = Double.parseDouble(cfp.getContent());   // kWh demand or surplus
+    double req;                           // kWh demand or surplus
+    try {
+      req = MessageCodec.readDouble(cfp, MessageCodec.TYPE_CFP, 0);
+    } catch (IllegalArgumentException e) {
+      bat.log("Malformed CFP: " + e.getMessage());
+      return;
+    }
 
     ACLMessage prop = cfp.createReply();
     prop.setPerformative(ACLMessage.PROPOSE);
     prop.setOntology(ONT_PROP);
     prop.setInReplyTo(ont);
 
+    double amount;
+    double cost;
     if (CFP_SHORT.equals(ont)) {          // discharge request
       double avail = bat.getAvailableToDischarge();          // kWh deliverable
-      double supply = Math.min(avail, req);
-      double cost = 1.0 - bat.dischargeEffEff();             // fractional loss
-      prop.setContent("supply=" + supply + ";cost=" + cost);
+      amount = Math.min(avail, req);
+      cost = 1.0 - bat.dischargeEffEff();                    // fractional loss
 
     } else {                              // surplus storage request
       double room = bat.getAvailableToCharge();              // kWh storable (grid view)
-      double store = Math.min(room, req);
-      double cost = 1.0 - bat.chargeEffEff();
-      prop.setContent("store=" + store + ";cost=" + cost);
+      amount = Math.min(room, req);
+      cost = 1.0 - bat.chargeEffEff();
     }
+    MessageCodec.write(prop, MessageCodec.TYPE_PROPOSAL, amount, cost);
     ((EnergyStorageAgent) bat).incrementCnpNegotiations();
     bat.send(prop);
-    bat.log("Proposal sent: " + prop.getContent());
+    bat.log("Proposal sent: %s=%.3f cost=%.3f"
+            .formatted(CFP_SHORT.equals(ont) ? "supply" : "store", amount, cost));
   }
 
   /* ---------- Accept / Reject ---------- */
@@ -87,11 +93,11 @@ public final class BatteryCNPResponder extends CyclicBehaviour {
 
     boolean accepted = ONT_ACCEPT.equals(dec.getOntology());
     if (!accepted) {                      // it is a REJECT
-      bat.log("Proposal rejected: " + dec.getContent());
+      bat.log("Proposal rejected (" + dec.getInReplyTo() + ")");
       return;
     }
 
-    double amt = parseAccepted(dec.getContent());   // only for ACCEPT
+    double amt = parseAccepted(dec);      // only for ACCEPT
     if (dec.getInReplyTo() == null || amt == 0.0) return;
 
     if (CFP_SHORT.equals(dec.getInReplyTo())) {          // discharge accepted
@@ -114,13 +120,12 @@ public final class BatteryCNPResponder extends CyclicBehaviour {
     }
   }
 
-  /* Parse "acceptedAmount=5.0" safely */
-  private double parseAccepted(String content) {
-    if (!content.startsWith("acceptedAmount=")) return 0;
+  /* Read the accepted amount safely */
+  private double parseAccepted(ACLMessage dec) {
     try {
-      return Double.parseDouble(content.split("=")[1]);
-    } catch (NumberFormatException e) {
-      bat.log("Failed to parse accepted amount: " + content, e);
+      return MessageCodec.readDouble(dec, MessageCodec.TYPE_ACCEPT, 0);
+    } catch (IllegalArgumentException e) {
+      bat.log("Failed to parse accepted amount: " + e.getMessage());
       return 0;
     }
   }
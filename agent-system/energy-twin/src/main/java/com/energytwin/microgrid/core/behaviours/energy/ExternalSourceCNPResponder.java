@@ -1,9 +1,9 @@
 package com.energytwin.microgrid.core.behaviours.energy;
 
 import com.energytwin.microgrid.core.agents.ExternalEnergySourceAgent;
+import com.energytwin.microgrid.core.codec.MessageCodec;
 import jade.core.AID;
 import jade.core.behaviours.CyclicBehaviour;
-import jade.core.messaging.TopicManagementHelper;
 import jade.lang.acl.ACLMessage;
 import jade.lang.acl.MessageTemplate;
 
@@ -18,9 +18,7 @@ public class ExternalSourceCNPResponder extends CyclicBehaviour {
     super(agent);
     this.agent = agent;
     try {
-      TopicManagementHelper topicHelper =
-          (TopicManagementHelper) agent.getHelper(TopicManagementHelper.SERVICE_NAME);
-      topicHelper.register(shortfallTopic);
+      agent.subscribe(shortfallTopic);
       agent.log("Successfully subscribed to CFP topics: " + shortfallTopic.getLocalName());
     } catch (Exception e) {
       agent.log("Error subscribing to CFP topics: {}", e.getMessage(), e);
@@ -47,7 +45,13 @@ public class ExternalSourceCNPResponder extends CyclicBehaviour {
   }
 
   private void handleShortfallCFP(ACLMessage cfp) {
-    double requested = Double.parseDouble(cfp.getContent());
+    double requested;
+    try {
+      requested = MessageCodec.readDouble(cfp, MessageCodec.TYPE_CFP, 0);
+    } catch (IllegalArgumentException e) {
+      agent.log("Malformed CFP: " + e.getMessage());
+      return;
+    }
     double canSupply = Math.min(requested, agent.maxSupplyPerTick);
 
     if (agent.getEventControlService().getBlackoutRemaining() > 0) {
@@ -62,35 +66,31 @@ public class ExternalSourceCNPResponder extends CyclicBehaviour {
     proposal.setInReplyTo("CNP_SHORTFALL");
 
     if (canSupply > 0) {
-      proposal.setContent("supply=" + canSupply + ";cost=" + agent.cost);
+      MessageCodec.write(proposal, MessageCodec.TYPE_PROPOSAL, canSupply, agent.cost);
     } else {
       // we have 0 capacity or can't supply => respond with high cost
-      proposal.setContent("supply=0;cost=9999");
+      MessageCodec.write(proposal, MessageCodec.TYPE_PROPOSAL, 0.0, 9999.0);
     }
     agent.send(proposal);
   }
 
   private void handleDecision(ACLMessage msg) {
     if (ONT_ACCEPT.equals(msg.getOntology())) {
-      double accepted = parseAccepted(msg.getContent());
+      double accepted = parseAccepted(msg);
       agent.log("External source supplying " + accepted + " kW this tick.");
       agent.reportState(0.0, accepted, 0.0);
     } else if (ONT_REJECT.equals(msg.getOntology())) {
-      agent.log("Proposal from external source was rejected: " + msg.getContent());
+      agent.log("Proposal from external source was rejected.");
       agent.reportState(0.0, 0.0, 0.0);
     }
   }
 
-  private double parseAccepted(String content) {
-    double amt = 0;
-    String[] tokens = content.split("=");
-    if (tokens.length == 2) {
-      try {
-        amt = Double.parseDouble(tokens[1]);
-      } catch (NumberFormatException e) {
-        agent.log("Failed to parse accepted amount from: " + content, e);
-      }
+  private double parseAccepted(ACLMessage msg) {
+    try {
+      return MessageCodec.readDouble(msg, MessageCodec.TYPE_ACCEPT, 0);
+    } catch (IllegalArgumentException e) {
+      agent.log("Failed to parse accepted amount: " + e.getMessage());
+      return 0;
     }
-    return amt;
   }
 }
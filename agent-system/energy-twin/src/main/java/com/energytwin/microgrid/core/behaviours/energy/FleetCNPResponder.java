@@ -0,0 +1,116 @@
+package com.energytwin.microgrid.core.behaviours.energy;
+
+import com.energytwin.microgrid.agentfusion.util.SpringContext;
+import com.energytwin.microgrid.core.agents.BulkFleetAgent;
+import com.energytwin.microgrid.core.codec.MessageCodec;
+import com.energytwin.microgrid.core.fleet.FleetKernel;
+import com.energytwin.microgrid.service.EventControlService;
+import jade.core.AID;
+import jade.core.behaviours.CyclicBehaviour;
+import jade.lang.acl.ACLMessage;
+import jade.lang.acl.MessageTemplate;
+
+/**
+ * Answers shortfall/surplus CFPs for the storage of a bulk fleet with a single proposal, as if the
+ * fleet were one battery; accepted amounts are split over the individual batteries by the kernel.
+ */
+public final class FleetCNPResponder extends CyclicBehaviour {
+
+  private final BulkFleetAgent fleet;
+  private final EventControlService controlService;
+  private static final String CFP_SHORT = "CNP_SHORTFALL";
+  private static final String CFP_SURPL = "CNP_SURPLUS";
+  private static final String ONT_PROP  = "CNP_PROPOSAL";
+  private static final String ONT_ACCEPT = "CNP_ACCEPT";
+  private static final String ONT_REJECT = "CNP_REJECT";
+
+  public FleetCNPResponder(BulkFleetAgent fleet, AID shortfallTopic, AID surplusTopic) {
+    super(fleet);
+    this.fleet = fleet;
+    this.controlService = SpringContext.getBean(EventControlService.class);
+    try {
+      fleet.subscribe(shortfallTopic); fleet.subscribe(surplusTopic);
+    } catch (Exception e) { fleet.log("Topic register error: {}", e.getMessage(), e); }
+  }
+
+  @Override
+  public void action() {
+
+    if (controlService.isBroken(fleet.getLocalName())) {
+      block();
+      return;
+    }
+
+    ACLMessage msg = myAgent.receive(MessageTemplate.or(
+            MessageTemplate.MatchOntology(CFP_SHORT),
+            MessageTemplate.MatchOntology(CFP_SURPL)));
+
+    if (msg != null) { respondToCFP(msg); return; }
+
+    ACLMessage dec = myAgent.receive(MessageTemplate.or(
+            MessageTemplate.MatchOntology(ONT_ACCEPT),
+            MessageTemplate.MatchOntology(ONT_REJECT)));
+
+    if (dec != null) { handleDecision(dec); return; }
+
+    block();
+  }
+
+  /* ---------- CFP ---------- */
+  private void respondToCFP(ACLMessage cfp) {
+    String ont = cfp.getOntology();
+    double req;
+    try {
+      req = MessageCodec.readDouble(cfp, MessageCodec.TYPE_CFP, 0);
+    } catch (IllegalArgumentException e) {
+      fleet.log("Malformed CFP: " + e.getMessage());
+      return;
+    }
+
+    FleetKernel k = fleet.getKernel();
+    ACLMessage prop = cfp.createReply();
+    prop.setPerformative(ACLMessage.PROPOSE);
+    prop.setOntology(ONT_PROP);
+    prop.setInReplyTo(ont);
+
+    double amount;
+    double cost;
+    if (CFP_SHORT.equals(ont)) {          // discharge request
+      amount = Math.min(k.availableToDischarge(), req);
+      cost = k.dischargeCost();
+    } else {                              // surplus storage request
+      amount = Math.min(k.availableToCharge(), req);
+      cost = k.chargeCost();
+    }
+    MessageCodec.write(prop, MessageCodec.TYPE_PROPOSAL, amount, cost);
+    fleet.incrementCnpNegotiations();
+    fleet.send(prop);
+  }
+
+  /* ---------- Accept / Reject ---------- */
+  private void handleDecision(ACLMessage dec) {
+    if (!ONT_ACCEPT.equals(dec.getOntology())) {
+      return;                             // REJECT: nothing to do
+    }
+
+    double amt;
+    try {
+      amt = MessageCodec.readDouble(dec, MessageCodec.TYPE_ACCEPT, 0);
+    } catch (IllegalArgumentException e) {
+      fleet.log("Failed to parse accepted amount: " + e.getMessage());
+      return;
+    }
+    if (dec.getInReplyTo() == null || amt == 0.0) return;
+
+    FleetKernel k = fleet.getKernel();
+    if (CFP_SHORT.equals(dec.getInReplyTo())) {
+      double dsoc = k.discharge(amt);
+      fleet.log("Fleet delivered %.2f kWh (-%.2f kWh SoC)  new SoC=%.2f"
+              .formatted(amt, dsoc, k.totalSocKwh()));
+    } else if (CFP_SURPL.equals(dec.getInReplyTo())) {
+      double dsoc = k.charge(amt);
+      fleet.log("Fleet stored %.2f kWh (+%.2f kWh SoC)  new SoC=%.2f"
+              .formatted(amt, dsoc, k.totalSocKwh()));
+    }
+  }
+}
@@ -1,6 +1,7 @@
 package com.energytwin.microgrid.core.behaviours.source;
 
 import com.energytwin.microgrid.core.base.AbstractEnergySourceAgent;
+import com.energytwin.microgrid.core.codec.MessageCodec;
 import jade.core.AID;
 import jade.core.behaviours.CyclicBehaviour;
 import jade.lang.acl.ACLMessage;
@@ -16,9 +17,7 @@ public final class RESReceiveBehaviour extends CyclicBehaviour {
     this.pv = pv;
     // auto-subscribe
     try {
-      ((jade.core.messaging.TopicManagementHelper)
-              pv.getHelper(jade.core.messaging.TopicManagementHelper.SERVICE_NAME))
-              .register(irradianceTopic);
+      pv.subscribe(irradianceTopic);
     } catch (Exception e) {
       pv.log("Could not register IRRADIANCE_TOPIC: {}", e.getMessage(), e);
     }
@@ -29,16 +28,11 @@ public final class RESReceiveBehaviour extends CyclicBehaviour {
     ACLMessage m = myAgent.receive(MessageTemplate.MatchOntology("IRRADIANCE"));
     if (m == null) { block(); return; }
 
-    String[] tokens = m.getContent().split(";");
-    double G = 0, Ta = 25;
-    for (String t : tokens) {
-      String[] kv = t.split("=");
-      if (kv.length == 2) {
-        if ("G".equals(kv[0])) G  = Double.parseDouble(kv[1]);
-        if ("T".equals(kv[0])) Ta = Double.parseDouble(kv[1]);
-      }
+    try {
+      pv.setLatestIrradiance(MessageCodec.readDouble(m, MessageCodec.TYPE_IRRADIANCE, 0));
+      pv.setAmbientTemp(MessageCodec.readDouble(m, MessageCodec.TYPE_IRRADIANCE, 1));
+    } catch (IllegalArgumentException e) {
+      pv.log("Malformed IRRADIANCE message: {}", e.getMessage());
     }
-    pv.setLatestIrradiance(G);
-    pv.setAmbientTemp(Ta);
   }
 }
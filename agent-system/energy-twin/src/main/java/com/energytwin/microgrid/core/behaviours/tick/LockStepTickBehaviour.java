@@ -0,0 +1,94 @@
+package com.energytwin.microgrid.core.behaviours.tick;
+
+import com.energytwin.microgrid.core.agents.OrchestratorAgent;
+import com.energytwin.microgrid.core.base.AbstractSimAgent;
+import com.energytwin.microgrid.core.codec.MessageCodec;
+import com.energytwin.microgrid.service.SimulationControlService;
+import jade.core.behaviours.CyclicBehaviour;
+import jade.lang.acl.ACLMessage;
+import jade.lang.acl.MessageTemplate;
+
+/**
+ * Drives the simulation "as fast as possible": tick N+1 is broadcast as soon as every tick
+ * subscriber (including the AggregatorAgent, which acknowledges after its CNP round) has
+ * acknowledged tick N. A tick that does not collect all acknowledgements within the configured
+ * timeout is released anyway, so a dead or broken agent cannot stall the run.
+ *
+ * <p>The behaviour is idle while the simulation runs in realtime mode or is paused; stale
+ * acknowledgements are drained in the meantime so they cannot leak into a later lock-step phase.
+ */
+public class LockStepTickBehaviour extends CyclicBehaviour {
+
+  private static final long IDLE_POLL_MILLIS = 100;
+  private static final MessageTemplate ACK_TEMPLATE =
+      MessageTemplate.MatchOntology(AbstractSimAgent.ONT_TICK_ACK);
+
+  private final OrchestratorAgent agent;
+  private final SimulationControlService simulationControlService;
+
+  private long pendingTick = -1;
+  private int acks;
+  private long broadcastAtMillis;
+
+  public LockStepTickBehaviour(
+      OrchestratorAgent agent, SimulationControlService simulationControlService) {
+    super(agent);
+    this.agent = agent;
+    this.simulationControlService = simulationControlService;
+  }
+
+  @Override
+  public void action() {
+    if (!simulationControlService.isLockStep() || simulationControlService.isPaused()) {
+      drainAcks(-1);
+      pendingTick = -1;
+      block(IDLE_POLL_MILLIS);
+      return;
+    }
+
+    if (pendingTick < 0) {
+      pendingTick = agent.broadcastTick();
+      acks = 0;
+      broadcastAtMillis = System.currentTimeMillis();
+      return;
+    }
+
+    acks += drainAcks(pendingTick);
+    int expected = simulationControlService.getTickSubscriberCount();
+    if (acks >= expected) {
+      pendingTick = -1;
+      return;
+    }
+
+    long waited = System.currentTimeMillis() - broadcastAtMillis;
+    long timeout = simulationControlService.getLockStepTimeoutMillis();
+    if (waited >= timeout) {
+      agent.log(
+          "Lock-step tick {} released after {} ms with {}/{} acknowledgements",
+          pendingTick,
+          waited,
+          acks,
+          expected);
+      pendingTick = -1;
+      return;
+    }
+    block(timeout - waited);
+  }
+
+  /** Consumes all queued acknowledgements and returns how many belong to the given tick. */
+  private int drainAcks(long tick) {
+    int matching = 0;
+    ACLMessage ack = myAgent.receive(ACK_TEMPLATE);
+    while (ack != null) {
+      try {
+        if (MessageCodec.readLong(ack, MessageCodec.TYPE_TICK) == tick) {
+          matching++;
+        }
+      } catch (IllegalArgumentException e) {
+        agent.log("Malformed tick acknowledgement: {}", e.getMessage());
+      }
+      ack = myAgent.receive(ACK_TEMPLATE);
+    }
+    return matching;
+  }
+}
@@ -1,26 +1,19 @@
 package com.energytwin.microgrid.core.behaviours.tick;
 
-import com.energytwin.microgrid.agentfusion.SpringAgent;
+import com.energytwin.microgrid.core.agents.OrchestratorAgent;
 import com.energytwin.microgrid.service.SimulationControlService;
-import com.energytwin.microgrid.ws.simulation.SimulationControlServiceWS;
-import jade.core.AID;
 import jade.core.behaviours.TickerBehaviour;
-import jade.lang.acl.ACLMessage;
-import lombok.Getter;
 
 /**
- * TickBroadcastBehaviour is responsible for broadcasting simulation tick messages. It checks if the
- * simulation is paused and increments simulation time. It dynamically adjusts its tick interval by
- * using the reset() method when the configuration changes.
+ * TickBroadcastBehaviour is responsible for broadcasting simulation tick messages in realtime mode.
+ * It checks if the simulation is paused and asks the orchestrator to advance simulation time. It
+ * dynamically adjusts its tick interval by using the reset() method when the configuration changes.
+ * While lock-step mode is active it stays idle and leaves pacing to {@link LockStepTickBehaviour}.
  */
 public class TickBroadcastBehaviour extends TickerBehaviour {
 
-
-  @Getter private long simulationTime = 0;
-  private final AID tickTopic;
   private final SimulationControlService simulationControlService;
-  private final SimulationControlServiceWS simulationControlServiceWS;
-  private final SpringAgent agent;
+  private final OrchestratorAgent agent;
   private long currentPeriod;
 
   /**
@@ -28,22 +21,15 @@ public class TickBroadcastBehaviour extends TickerBehaviour {
    *
    * @param a the agent that will run this behaviour.
    * @param period the initial tick interval in milliseconds.
-   * @param tickTopic the AID of the tick topic to which tick messages will be sent.
    * @param simulationControlService the simulation control service for getting tick increments and
    *     pause status.
    */
   public TickBroadcastBehaviour(
-      SpringAgent a,
-      long period,
-      AID tickTopic,
-      SimulationControlService simulationControlService,
-      SimulationControlServiceWS simulationControlServiceWS) {
+      OrchestratorAgent a, long period, SimulationControlService simulationControlService) {
     super(a, period);
     this.agent = a;
-    this.tickTopic = tickTopic;
     this.simulationControlService = simulationControlService;
     this.currentPeriod = period;
-    this.simulationControlServiceWS = simulationControlServiceWS;
   }
 
   @Override
@@ -55,18 +41,10 @@ public class TickBroadcastBehaviour extends TickerBehaviour {
       agent.log("Tick period updated to: {}", newPeriod);
     }
 
-    if (simulationControlService.isPaused()) {
+    if (simulationControlService.isPaused() || simulationControlService.isLockStep()) {
       return;
     }
 
-    simulationTime += 1;
-    ACLMessage tickMsg = new ACLMessage(ACLMessage.INFORM);
-    tickMsg.setOntology("TICK");
-    tickMsg.setContent(String.valueOf(simulationTime));
-    tickMsg.addReceiver(tickTopic);
-    myAgent.send(tickMsg);
-    agent.log("Broadcast tick: {}", simulationTime);
-
-    simulationControlServiceWS.onTickCompleted(); // zbiera info z poprzedniego
+    agent.broadcastTick();
   }
 }
@@ -1,15 +1,18 @@
 package com.energytwin.microgrid.core.behaviours.tick;
 
+import com.energytwin.microgrid.agentfusion.util.SpringContext;
 import com.energytwin.microgrid.core.base.AbstractSimAgent;
+import com.energytwin.microgrid.core.codec.MessageCodec;
+import com.energytwin.microgrid.service.SimulationControlService;
 import jade.core.AID;
 import jade.core.behaviours.CyclicBehaviour;
-import jade.core.messaging.TopicManagementHelper;
 import jade.lang.acl.ACLMessage;
 import jade.lang.acl.MessageTemplate;
 
 /**
  * TickSubscriberBehaviour subscribes the agent to a given tick topic and then listens for "TICK"
- * messages.
+ * messages. After each tick it acknowledges the tick to the orchestrator (lock-step mode only),
+ * unless the agent acknowledges ticks itself.
  */
 public class TickSubscriberBehaviour extends CyclicBehaviour {
 
@@ -28,9 +31,8 @@ public class TickSubscriberBehaviour extends CyclicBehaviour {
     this.simAgent = simAgent;
     this.tickTopic = tickTopic;
     try {
-      TopicManagementHelper topicHelper =
-          (TopicManagementHelper) simAgent.getHelper(TopicManagementHelper.SERVICE_NAME);
-      topicHelper.register(this.tickTopic);
+      simAgent.subscribe(this.tickTopic);
+      SpringContext.getBean(SimulationControlService.class).registerTickSubscriber();
       simAgent.log("Successfully subscribed to tick topic: " + this.tickTopic.getLocalName());
     } catch (Exception e) {
       simAgent.log("Error subscribing to tick topic: {}", e.getMessage(), e);
@@ -42,11 +44,16 @@ public class TickSubscriberBehaviour extends CyclicBehaviour {
     MessageTemplate mt = MessageTemplate.MatchOntology("TICK");
     ACLMessage msg = myAgent.receive(mt);
     if (msg != null) {
+      long tickTime;
       try {
-        long tickTime = Long.parseLong(msg.getContent());
-        simAgent.onTick(tickTime);
-      } catch (NumberFormatException e) {
-        simAgent.log("Error parsing tick message: {}", msg.getContent(), e);
+        tickTime = MessageCodec.readLong(msg, MessageCodec.TYPE_TICK);
+      } catch (IllegalArgumentException e) {
+        simAgent.log("Error parsing tick message: {}", e.getMessage(), e);
+        return;
+      }
+      simAgent.onTick(tickTime);
+      if (!simAgent.defersTickAck()) {
+        simAgent.acknowledgeTick(tickTime);
       }
     } else {
       block();
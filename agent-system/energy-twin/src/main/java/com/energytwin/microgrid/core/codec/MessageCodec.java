@@ -0,0 +1,150 @@
+package com.energytwin.microgrid.core.codec;
+
+import jade.lang.acl.ACLMessage;
+
+/**
+ * Typed, versioned binary codec for the contents of the hot simulation messages.
+ *
+ * <p>Every payload is written as byte content with the layout
+ *
+ * <pre>
+ *   [0]     format version ({@link #VERSION})
+ *   [1]     payload type   (one of the TYPE_* constants)
+ *   [2..]   fields, 8 bytes each, big-endian (IEEE-754 for doubles)
+ * </pre>
+ *
+ * Fields are read straight from the byte array by offset, so decoding allocates nothing and never
+ * goes through {@code String.split} or {@code Double.parseDouble}. A payload with an unknown
+ * version, an unexpected type or a truncated body is rejected with an {@link
+ * IllegalArgumentException}.
+ */
+public final class MessageCodec {
+
+  public static final byte VERSION = 1;
+
+  /** TICK / TICK_ACK: simulation time (long). */
+  public static final byte TYPE_TICK = 1;
+
+  /** ENERGY_PRODUCTION / ENERGY_CONSUMPTION: power in kW. */
+  public static final byte TYPE_ENERGY = 2;
+
+  /** IRRADIANCE: G in W/m² (field 0), ambient temperature in °C (field 1). */
+  public static final byte TYPE_IRRADIANCE = 3;
+
+  /** CNP call for proposals: requested amount in kW. */
+  public static final byte TYPE_CFP = 4;
+
+  /** CNP proposal: offered amount in kW (field 0), cost (field 1). */
+  public static final byte TYPE_PROPOSAL = 5;
+
+  /** CNP accept: accepted amount in kW. */
+  public static final byte TYPE_ACCEPT = 6;
+
+  /** CNP reject: no fields. */
+  public static final byte TYPE_REJECT = 7;
+
+  private static final int HEADER = 2;
+  private static final int FIELD = Long.BYTES;
+
+  private MessageCodec() {}
+
+  /* ---------------- writers ---------------- */
+
+  /** Writes a payload without fields. */
+  public static void write(ACLMessage msg, byte type) {
+    msg.setByteSequenceContent(header(type, 0));
+  }
+
+  /** Writes a payload with one double field. */
+  public static void write(ACLMessage msg, byte type, double value) {
+    byte[] out = header(type, 1);
+    putLong(out, HEADER, Double.doubleToRawLongBits(value));
+    msg.setByteSequenceContent(out);
+  }
+
+  /** Writes a payload with two double fields. */
+  public static void write(ACLMessage msg, byte type, double first, double second) {
+    byte[] out = header(type, 2);
+    putLong(out, HEADER, Double.doubleToRawLongBits(first));
+    putLong(out, HEADER + FIELD, Double.doubleToRawLongBits(second));
+    msg.setByteSequenceContent(out);
+  }
+
+  /** Writes a payload with one long field. */
+  public static void writeLong(ACLMessage msg, byte type, long value) {
+    byte[] out = header(type, 1);
+    putLong(out, HEADER, value);
+    msg.setByteSequenceContent(out);
+  }
+
+  /* ---------------- readers ---------------- */
+
+  /**
+   * Reads double field {@code field} of a payload of the given type.
+   *
+   * @throws IllegalArgumentException if the payload is not a valid payload of that type
+   */
+  public static double readDouble(ACLMessage msg, byte type, int field) {
+    byte[] in = checked(msg, type, field);
+    return Double.longBitsToDouble(getLong(in, HEADER + field * FIELD));
+  }
+
+  /**
+   * Reads the long field of a payload of the given type.
+   *
+   * @throws IllegalArgumentException if the payload is not a valid payload of that type
+   */
+  public static long readLong(ACLMessage msg, byte type) {
+    return getLong(checked(msg, type, 0), HEADER);
+  }
+
+  /** Returns the payload type, or -1 if the message does not carry a payload of this codec. */
+  public static byte typeOf(ACLMessage msg) {
+    byte[] in = msg.getByteSequenceContent();
+    if (in == null || in.length < HEADER || in[0] != VERSION) {
+      return -1;
+    }
+    return in[1];
+  }
+
+  /* ---------------- helpers ---------------- */
+
+  private static byte[] header(byte type, int fields) {
+    byte[] out = new byte[HEADER + fields * FIELD];
+    out[0] = VERSION;
+    out[1] = type;
+    return out;
+  }
+
+  private static byte[] checked(ACLMessage msg, byte type, int field) {
+    byte[] in = msg.getByteSequenceContent();
+    if (in == null || in.length < HEADER) {
+      throw new IllegalArgumentException("Missing binary payload");
+    }
+    if (in[0] != VERSION) {
+      throw new IllegalArgumentException("Unsupported payload version " + in[0]);
+    }
+    if (in[1] != type) {
+      throw new IllegalArgumentException("Expected payload type " + type + " but got " + in[1]);
+    }
+    if (in.length < HEADER + (field + 1) * FIELD) {
+      throw new IllegalArgumentException("Truncated payload of type " + type);
+    }
+    return in;
+  }
+
+  private static void putLong(byte[] out, int offset, long v) {
+    for (int i = 7; i >= 0; i--) {
+      out[offset + i] = (byte) v;
+      v >>>= 8;
+    }
+  }
+
+  private static long getLong(byte[] in, int offset) {
+    long v = 0;
+    for (int i = 0; i < 8; i++) {
+      v = (v << 8) | (in[offset + i] & 0xFF);
+    }
+    return v;
+  }
+}
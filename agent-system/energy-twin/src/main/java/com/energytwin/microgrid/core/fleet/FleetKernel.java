@@ -0,0 +1,249 @@
+package com.energytwin.microgrid.core.fleet;
+
+import static com.energytwin.microgrid.core.base.AbstractEnergySourceAgent.pvPowerKw;
+import static com.energytwin.microgrid.core.base.AbstractEnergyStorageAgent.chargeEff;
+import static com.energytwin.microgrid.core.base.AbstractEnergyStorageAgent.dischargeEff;
+import static com.energytwin.microgrid.core.base.AbstractLoadAgent.baselineFraction;
+import static com.energytwin.microgrid.core.base.AbstractLoadAgent.loadFraction;
+
+import java.util.SplittableRandom;
+
+/**
+ * Struct-of-arrays state of a homogeneous device fleet (loads, PV panels, batteries).
+ *
+ * <p>Every device of a kind occupies one slot in a set of parallel primitive arrays, and each tick
+ * is evaluated in one tight loop per kind using the same physics as {@code LoadAgent}, {@code
+ * EnergySourceAgent} and {@code AbstractEnergyStorageAgent}. Only fleet totals leave the kernel.
+ * Not thread-safe: a kernel is owned by a single agent.
+ */
+public final class FleetKernel {
+
+  /* ---------------- loads ---------------- */
+  private final double[] nominalLoadKw;
+  private int loads;
+
+  /* ---------------- PV ---------------- */
+  private final double[] efficiency25;
+  private final double[] tempCoeff;
+  private final double[] areaM2;
+  private final double[] noct;
+  private final int[] noOfPanels;
+  private int sources;
+
+  /* ---------------- batteries ---------------- */
+  private final double[] capacityKwh;
+  private final double[] chargeEffBase;
+  private final double[] dischargeEffBase;
+  private final double[] cRate;
+  private final double[] selfDischargePerHour;
+  private final double[] socKwh;
+  private int batteries;
+
+  private final SplittableRandom rng;
+
+  public FleetKernel(int maxLoads, int maxSources, int maxBatteries, long seed) {
+    nominalLoadKw = new double[maxLoads];
+
+    efficiency25 = new double[maxSources];
+    tempCoeff = new double[maxSources];
+    areaM2 = new double[maxSources];
+    noct = new double[maxSources];
+    noOfPanels = new int[maxSources];
+
+    capacityKwh = new double[maxBatteries];
+    chargeEffBase = new double[maxBatteries];
+    dischargeEffBase = new double[maxBatteries];
+    cRate = new double[maxBatteries];
+    selfDischargePerHour = new double[maxBatteries];
+    socKwh = new double[maxBatteries];
+
+    rng = new SplittableRandom(seed);
+  }
+
+  /* ====================================================================== */
+  /* Population                                                             */
+
+  public void addLoad(double nominalKw) {
+    nominalLoadKw[loads++] = nominalKw;
+  }
+
+  public void addSource(
+      int panels, double efficiency, double gamma, double area, double noctC) {
+    int i = sources++;
+    noOfPanels[i] = panels;
+    efficiency25[i] = efficiency;
+    tempCoeff[i] = gamma;
+    areaM2[i] = area;
+    noct[i] = noctC;
+  }
+
+  public void addBattery(
+      double capacity, double etaC, double etaD, double rate, double selfDischarge, double soc) {
+    int i = batteries++;
+    capacityKwh[i] = capacity;
+    chargeEffBase[i] = etaC;
+    dischargeEffBase[i] = etaD;
+    cRate[i] = rate;
+    selfDischargePerHour[i] = selfDischarge;
+    socKwh[i] = soc;
+  }
+
+  public int loadCount() {
+    return loads;
+  }
+
+  public int sourceCount() {
+    return sources;
+  }
+
+  public int batteryCount() {
+    return batteries;
+  }
+
+  /* ====================================================================== */
+  /* Per-tick physics                                                       */
+
+  /**
+   * Total consumption (kW) of all loads for the given hour; every load draws its own random Δ.
+   *
+   * @param spikeRate load-spike multiplier of the fleet (1 when no spike is active)
+   */
+  public double stepLoads(int hour, int spikeRate) {
+    double baselineFrac = baselineFraction(hour);
+    double total = 0;
+    for (int i = 0; i < loads; i++) {
+      double delta = -0.10 + 0.40 * rng.nextDouble();
+      total += loadFraction(baselineFrac, delta) * nominalLoadKw[i];
+    }
+    return total * spikeRate;
+  }
+
+  /** Total AC production (kW) of all PV devices for irradiance G (W/m²) and ambient Ta (°C). */
+  public double stepSources(double G, double Ta) {
+    if (G <= 0) {
+      return 0.0;
+    }
+    double total = 0;
+    for (int i = 0; i < sources; i++) {
+      total += pvPowerKw(G, Ta, efficiency25[i], tempCoeff[i], areaM2[i], noct[i]) * noOfPanels[i];
+    }
+    return total;
+  }
+
+  /** Applies one hour of self-discharge to every battery. */
+  public void selfDischarge() {
+    for (int i = 0; i < batteries; i++) {
+      socKwh[i] *= (1.0 - selfDischargePerHour[i]);
+    }
+  }
+
+  /* ====================================================================== */
+  /* Storage aggregates                                                     */
+
+  /** Energy (kWh, grid side) the batteries can deliver this tick. */
+  public double availableToDischarge() {
+    double total = 0;
+    for (int i = 0; i < batteries; i++) {
+      total += socKwh[i] * dischargeEff(socKwh[i], capacityKwh[i], dischargeEffBase[i]);
+    }
+    return total;
+  }
+
+  /** Energy (kWh, grid side) the batteries can absorb this tick, limited by Pmax. */
+  public double availableToCharge() {
+    double total = 0;
+    for (int i = 0; i < batteries; i++) {
+      total += chargeHeadroom(i);
+    }
+    return total;
+  }
+
+  /** Availability-weighted mean discharge loss {@code 1 - ηd}, the fleet's discharge price. */
+  public double dischargeCost() {
+    double avail = 0;
+    double weighted = 0;
+    for (int i = 0; i < batteries; i++) {
+      double eta = dischargeEff(socKwh[i], capacityKwh[i], dischargeEffBase[i]);
+      double a = socKwh[i] * eta;
+      avail += a;
+      weighted += a * (1.0 - eta);
+    }
+    return avail > 0 ? weighted / avail : 1.0;
+  }
+
+  /** Headroom-weighted mean charge loss {@code 1 - ηc}, the fleet's charge price. */
+  public double chargeCost() {
+    double room = 0;
+    double weighted = 0;
+    for (int i = 0; i < batteries; i++) {
+      double r = chargeHeadroom(i);
+      room += r;
+      weighted += r * (1.0 - chargeEff(socKwh[i], capacityKwh[i], chargeEffBase[i]));
+    }
+    return room > 0 ? weighted / room : 1.0;
+  }
+
+  /**
+   * Delivers {@code amountKwh} (grid side), split over the batteries in proportion to what each
+   * can deliver.
+   *
+   * @return the SoC drawn from the batteries (kWh, cell side)
+   */
+  public double discharge(double amountKwh) {
+    double avail = availableToDischarge();
+    if (avail <= 0 || amountKwh <= 0) {
+      return 0;
+    }
+    double share = Math.min(1.0, amountKwh / avail);
+    double drawn = 0;
+    for (int i = 0; i < batteries; i++) {
+      // delivered = soc·ηd·share, drawn from the cell = delivered / ηd
+      double dsoc = socKwh[i] * share;
+      socKwh[i] = Math.max(0, socKwh[i] - dsoc);
+      drawn += dsoc;
+    }
+    return drawn;
+  }
+
+  /**
+   * Stores {@code amountKwh} (grid side), split over the batteries in proportion to their headroom.
+   *
+   * @return the SoC added to the batteries (kWh, cell side)
+   */
+  public double charge(double amountKwh) {
+    double room = availableToCharge();
+    if (room <= 0 || amountKwh <= 0) {
+      return 0;
+    }
+    double share = Math.min(1.0, amountKwh / room);
+    double stored = 0;
+    for (int i = 0; i < batteries; i++) {
+      double eta = chargeEff(socKwh[i], capacityKwh[i], chargeEffBase[i]);
+      double dsoc = chargeHeadroom(i) * share * eta;
+      socKwh[i] = Math.min(capacityKwh[i], socKwh[i] + dsoc);
+      stored += dsoc;
+    }
+    return stored;
+  }
+
+  public double totalSocKwh() {
+    double total = 0;
+    for (int i = 0; i < batteries; i++) {
+      total += socKwh[i];
+    }
+    return total;
+  }
+
+  public double totalCapacityKwh() {
+    double total = 0;
+    for (int i = 0; i < batteries; i++) {
+      total += capacityKwh[i];
+    }
+    return total;
+  }
+
+  private double chargeHeadroom(int i) {
+    double eta = chargeEff(socKwh[i], capacityKwh[i], chargeEffBase[i]);
+    return Math.min(cRate[i] * capacityKwh[i], (capacityKwh[i] - socKwh[i]) / eta);
+  }
+}
@@ -0,0 +1,225 @@
+package com.energytwin.microgrid.core.forecast;
+
+import com.energytwin.microgrid.core.history.HistoryBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * Replays a recorded history through a forecaster configuration and scores its probabilistic
+ * forecasts over rolling origins.
+ *
+ * <p>At every origin a fresh model learns the {@code window} samples before the origin: batch
+ * models are fitted once, and every model observes the samples one by one. The model then
+ * forecasts the next {@code horizon} samples. Each step is scored with the pinball loss of every quantile
+ * level, the CRPS and the coverage of the interval between the lowest and highest level. The CRPS
+ * is twice the integral of the pinball loss over the levels, approximated by weighting each level
+ * with the width of its cell in the level grid (see {@link #crpsWeights}); on evenly spaced levels
+ * that is twice the mean pinball loss. Fit and predict wall time are measured
+ * per origin. Origins are independent and run in parallel on the given pool, each model on a
+ * single thread.
+ */
+public final class Backtest {
+
+  private static final int LOAD = 0;
+  private static final int PV = 1;
+  private static final int CONTEXT = 3;   // extra samples so the first window features have a past
+
+  /**
+   * @param model forecaster name, one of {@link Forecaster#MODELS}
+   * @param window training samples before each origin
+   * @param horizon forecast steps scored per origin
+   * @param step ticks between consecutive origins
+   * @param levels quantile levels to forecast and score
+   */
+  public record Config(String model, int window, int horizon, int step, double[] levels) {}
+
+  /**
+   * Mean scores of one target.
+   *
+   * @param pinball {@code [level][step]} pinball loss in kW
+   * @param crps {@code [step]} CRPS in kW
+   * @param coverage {@code [step]} share of actuals inside the outermost interval
+   */
+  public record Score(double[][] pinball, double[] crps, double[] coverage) {}
+
+  /**
+   * @param origins origins that were scored; origins without a model (e.g. during warm-up) are not
+   * @param step ticks between consecutive origins
+   * @param fitMs mean fit time per origin
+   * @param predictMs mean forecast time per origin
+   * @param wallMs wall time of the whole backtest
+   */
+  public record Result(String model, int origins, int step, double[] levels, Score load,
+      Score pv, double fitMs, double predictMs, double wallMs) {}
+
+  private Backtest() {}
+
+  /**
+   * Runs the backtest on a history of equally spaced samples.
+   *
+   * @param firstHour hour index of the first sample
+   * @param pool workers for the origins, or null to run them one after the other
+   * @throws IllegalArgumentException if the model is unknown or the history is too short for one
+   *     origin
+   */
+  public static Result run(Config cfg, double[] load, double[] pv, double[] temp, long firstHour,
+      ForkJoinPool pool) {
+    int n = load.length;
+    if (cfg.window() < 1 || cfg.horizon() < 1 || cfg.step() < 1 || cfg.levels().length == 0) {
+      throw new IllegalArgumentException("window, horizon, step and levels must be positive");
+    }
+    if (!Forecaster.isModel(cfg.model())) {
+      throw new IllegalArgumentException(
+          "Unknown model '" + cfg.model() + "'; expected one of " + Forecaster.MODELS);
+    }
+    if (n < cfg.window() + cfg.horizon()) {
+      throw new IllegalArgumentException("History of " + n + " samples is shorter than window + "
+          + "horizon (" + (cfg.window() + cfg.horizon()) + ")");
+    }
+    double[] levels = Forecaster.union(cfg.levels(), new double[0]);
+    double[] weights = crpsWeights(levels);
+    int origins = origins(n, cfg.window(), cfg.horizon(), cfg.step());
+
+    long start = System.nanoTime();
+    Supplier<Acc> scoreAll = () -> {
+      IntStream idx = IntStream.range(0, origins);
+      return (pool == null ? idx : idx.parallel()).collect(
+          () -> new Acc(weights, cfg.horizon()),
+          (a, i) -> a.origin(cfg, levels, load, pv, temp, firstHour, cfg.window() + i * cfg.step()),
+          Acc::merge);
+    };
+    Acc acc = pool == null ? scoreAll.get() : pool.submit(scoreAll::get).join();
+    double wallMs = (System.nanoTime() - start) / 1e6;
+    return acc.result(cfg.model(), cfg.step(), levels, wallMs);
+  }
+
+  /**
+   * Origins of a backtest over {@code n} samples: the number of forecasts scored per model, and
+   * so the number of fits of a batch model.
+   */
+  public static int origins(int n, int window, int horizon, int step) {
+    return Math.max(0, (n - horizon - window) / step + 1);
+  }
+
+  /**
+   * CRPS weight of each sorted quantile level: the width of the level's cell, which reaches
+   * halfway to each neighbour (the outermost levels reuse their inner spacing), normalised to sum
+   * to 1. Evenly spaced levels get equal weights.
+   */
+  static double[] crpsWeights(double[] levels) {
+    int k = levels.length;
+    double[] w = new double[k];
+    if (k == 1) {
+      w[0] = 1;
+      return w;
+    }
+    double total = 0;
+    for (int j = 0; j < k; j++) {
+      double below = j > 0 ? levels[j] - levels[j - 1] : levels[1] - levels[0];
+      double above = j < k - 1 ? levels[j + 1] - levels[j] : levels[k - 1] - levels[k - 2];
+      w[j] = (below + above) / 2;
+      total += w[j];
+    }
+    for (int j = 0; j < k; j++) w[j] /= total;
+    return w;
+  }
+
+  /** Score sums over the origins processed by one worker. */
+  private static final class Acc {
+    final double[] weights;       // CRPS weight per level
+    final double[][][] pinball;   // [target][level][step]
+    final double[][] crps;        // [target][step]
+    final double[][] covered;     // [target][step]
+    long fitNanos;
+    long predictNanos;
+    int scored;
+
+    Acc(double[] weights, int horizon) {
+      this.weights = weights;
+      pinball = new double[2][weights.length][horizon];
+      crps = new double[2][horizon];
+      covered = new double[2][horizon];
+    }
+
+    void origin(Config cfg, double[] levels, double[] load, double[] pv, double[] temp,
+        long firstHour, int o) {
+      Forecaster f = Forecaster.create(cfg.model(), cfg.horizon(), null);
+      int from = o - cfg.window();
+      long t0 = System.nanoTime();
+      if (f.isBatch()) {
+        int warm = Math.max(0, from - CONTEXT);
+        HistoryBuffer hist = new HistoryBuffer(cfg.window(), firstHour + warm);
+        for (int i = warm; i < o; i++) hist.push(load[i], pv[i], 0, temp[i], 0);
+        f.update(hist.window());
+      }
+      for (int i = from; i < o; i++) f.observe(load[i], pv[i], temp[i], firstHour + i);
+      long t1 = System.nanoTime();
+      if (!f.hasModel()) {
+        return;
+      }
+      double[][][] q = f.predictBoth(levels);
+      long t2 = System.nanoTime();
+
+      fitNanos += t1 - t0;
+      predictNanos += t2 - t1;
+      scored++;
+      score(LOAD, q[LOAD], levels, load, o);
+      score(PV, q[PV], levels, pv, o);
+    }
+
+    private void score(int target, double[][] q, double[] levels, double[] actual, int o) {
+      int last = levels.length - 1;
+      for (int h = 0; h < crps[target].length; h++) {
+        double y = actual[o + h];
+        double sum = 0.0;
+        for (int j = 0; j <= last; j++) {
+          double loss = pinball(y, q[j][h], levels[j]);
+          pinball[target][j][h] += loss;
+          sum += weights[j] * loss;
+        }
+        crps[target][h] += 2 * sum;
+        if (y >= q[0][h] && y <= q[last][h]) covered[target][h]++;
+      }
+    }
+
+    void merge(Acc other) {
+      for (int t = 0; t < 2; t++) {
+        for (int j = 0; j < pinball[t].length; j++) add(pinball[t][j], other.pinball[t][j]);
+        add(crps[t], other.crps[t]);
+        add(covered[t], other.covered[t]);
+      }
+      fitNanos += other.fitNanos;
+      predictNanos += other.predictNanos;
+      scored += other.scored;
+    }
+
+    Result result(String model, int step, double[] levels, double wallMs) {
+      double k = Math.max(1, scored);
+      return new Result(model, scored, step, levels, mean(LOAD, k), mean(PV, k),
+          fitNanos / 1e6 / k, predictNanos / 1e6 / k, wallMs);
+    }
+
+    private Score mean(int target, double k) {
+      double[][] p = new double[pinball[target].length][];
+      for (int j = 0; j < p.length; j++) p[j] = divide(pinball[target][j], k);
+      return new Score(p, divide(crps[target], k), divide(covered[target], k));
+    }
+  }
+
+  /** Pinball loss of quantile {@code q} at level {@code tau} for the actual {@code y}. */
+  static double pinball(double y, double q, double tau) {
+    double d = y - q;
+    return d >= 0 ? tau * d : (tau - 1) * d;
+  }
+
+  private static void add(double[] into, double[] a) {
+    for (int i = 0; i < into.length; i++) into[i] += a[i];
+  }
+
+  private static double[] divide(double[] a, double k) {
+    double[] out = new double[a.length];
+    for (int i = 0; i < a.length; i++) out[i] = a[i] / k;
+    return out;
+  }
+}
@@ -0,0 +1,213 @@
+package com.energytwin.microgrid.core.forecast;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import smile.base.cart.InternalNode;
+import smile.base.cart.LeafNode;
+import smile.base.cart.Node;
+import smile.base.cart.OrdinalNode;
+import smile.base.cart.RegressionNode;
+import smile.data.Tuple;
+import smile.regression.RandomForest;
+import smile.regression.RegressionTree;
+
+/**
+ * A trained regression forest flattened into primitive arrays.
+ *
+ * <p>All trees share one node table. For split nodes {@code feature[i] >= 0} and the sample goes
+ * to {@code trueChild[i]} when {@code x[feature[i]] <= value[i]}, otherwise to {@code
+ * falseChild[i]}. For leaves {@code feature[i] == LEAF} and {@code value[i]} is the tree output.
+ * {@code roots[t]} is the root node of tree {@code t}. Evaluation does not allocate.
+ */
+public final class CompiledForest {
+
+  static final int LEAF = -1;
+
+  final int[] roots;
+  final int[] feature;
+  final double[] value;
+  final int[] trueChild;
+  final int[] falseChild;
+
+  CompiledForest(int[] roots, int[] feature, double[] value, int[] trueChild, int[] falseChild) {
+    this.roots = roots;
+    this.feature = feature;
+    this.value = value;
+    this.trueChild = trueChild;
+    this.falseChild = falseChild;
+  }
+
+  /**
+   * Flattens the trees of a Smile forest. Feature indices refer to the predictor columns in the
+   * order of the training frame, i.e. the order in which the caller builds its feature vectors.
+   *
+   * @throws IllegalArgumentException if a tree uses a split other than an ordinal one.
+   */
+  public static CompiledForest compile(RandomForest forest) {
+    RegressionTree[] trees = forest.trees();
+    int nodes = 0;
+    for (RegressionTree tree : trees) {
+      nodes += countNodes(tree.root());
+    }
+
+    int[] roots = new int[trees.length];
+    int[] feature = new int[nodes];
+    double[] value = new double[nodes];
+    int[] trueChild = new int[nodes];
+    int[] falseChild = new int[nodes];
+    Arrays.fill(trueChild, LEAF);
+    Arrays.fill(falseChild, LEAF);
+
+    double[] row = new double[forest.schema().length()];
+    Tuple probe = Tuple.of(row, forest.schema());
+    int next = 0;
+    Deque<Node> pending = new ArrayDeque<>();
+    Deque<Integer> slots = new ArrayDeque<>();
+    for (int t = 0; t < trees.length; t++) {
+      roots[t] = next;
+      pending.push(trees[t].root());
+      slots.push(next++);
+      while (!pending.isEmpty()) {
+        Node node = pending.pop();
+        int i = slots.pop();
+        if (node instanceof RegressionNode leaf) {
+          feature[i] = LEAF;
+          value[i] = leaf.output();
+        } else if (node instanceof OrdinalNode split) {
+          feature[i] = split.feature();
+          value[i] = threshold(split, row, probe);
+          trueChild[i] = next;
+          pending.push(split.trueChild());
+          slots.push(next++);
+          falseChild[i] = next;
+          pending.push(split.falseChild());
+          slots.push(next++);
+        } else {
+          throw new IllegalArgumentException(
+              "Unsupported tree node " + node.getClass().getSimpleName());
+        }
+      }
+    }
+    return new CompiledForest(roots, feature, value, trueChild, falseChild);
+  }
+
+  /**
+   * Split threshold of an ordinal node. Smile keeps it package-private, so it is recovered through
+   * the public {@link OrdinalNode#branch}: the largest double {@code v} for which {@code x <= v}
+   * sends the sample to the true child. {@code probe} must view {@code row}. The search bisects
+   * the ordered bit patterns of doubles and is exact after at most 64 probes.
+   */
+  private static double threshold(OrdinalNode split, double[] row, Tuple probe) {
+    int f = split.feature();
+    long lo = sortable(-Double.MAX_VALUE);
+    long hi = sortable(Double.MAX_VALUE);
+    row[f] = Double.MAX_VALUE;
+    if (split.branch(probe)) {
+      return Double.POSITIVE_INFINITY;
+    }
+    row[f] = -Double.MAX_VALUE;
+    if (!split.branch(probe)) {
+      return Double.NEGATIVE_INFINITY;
+    }
+    // invariant: branch(lo) is true, branch(hi) is false
+    while (Long.compareUnsigned(hi - lo, 1) > 0) {
+      long mid = lo + ((hi - lo) >>> 1);
+      row[f] = fromSortable(mid);
+      if (split.branch(probe)) {
+        lo = mid;
+      } else {
+        hi = mid;
+      }
+    }
+    return fromSortable(lo);
+  }
+
+  private static long sortable(double d) {
+    long bits = Double.doubleToRawLongBits(d);
+    return bits >= 0 ? bits : bits ^ Long.MAX_VALUE;
+  }
+
+  private static double fromSortable(long key) {
+    return Double.longBitsToDouble(key >= 0 ? key : key ^ Long.MAX_VALUE);
+  }
+
+  private static int countNodes(Node root) {
+    int n = 0;
+    Deque<Node> stack = new ArrayDeque<>();
+    stack.push(root);
+    while (!stack.isEmpty()) {
+      Node node = stack.pop();
+      n++;
+      if (node instanceof InternalNode split) {
+        stack.push(split.trueChild());
+        stack.push(split.falseChild());
+      } else if (!(node instanceof LeafNode)) {
+        throw new IllegalArgumentException(
+            "Unsupported tree node " + node.getClass().getSimpleName());
+      }
+    }
+    return n;
+  }
+
+  /** Number of trees. */
+  public int size() {
+    return roots.length;
+  }
+
+  /** Output of tree {@code t} for the feature vector {@code x}. */
+  public double predict(int t, double[] x) {
+    int i = roots[t];
+    int f;
+    while ((f = feature[i]) != LEAF) {
+      i = x[f] <= value[i] ? trueChild[i] : falseChild[i];
+    }
+    return value[i];
+  }
+
+  /** Writes the output of every tree into {@code out[0..size())}. */
+  public void predictAll(double[] x, double[] out) {
+    predictRange(x, out, 0, roots.length);
+  }
+
+  /** Writes the output of trees {@code from..to-1} into the same positions of {@code out}. */
+  public void predictRange(double[] x, double[] out, int from, int to) {
+    for (int t = from; t < to; t++) {
+      out[t] = predict(t, x);
+    }
+  }
+
+  /**
+   * Empirical {@code p}-quantile of {@code a[0..n)}: the smallest value whose empirical CDF reaches
+   * {@code p}. Reorders {@code a} in place (quickselect) and does not allocate.
+   */
+  public static double quantile(double[] a, int n, double p) {
+    int k = Math.min(n - 1, Math.max(0, (int) Math.ceil(p * n) - 1));
+    int lo = 0;
+    int hi = n - 1;
+    while (lo < hi) {
+      double pivot = a[(lo + hi) >>> 1];
+      int i = lo;
+      int j = hi;
+      while (i <= j) {
+        while (a[i] < pivot) i++;
+        while (a[j] > pivot) j--;
+        if (i <= j) {
+          double tmp = a[i];
+          a[i] = a[j];
+          a[j] = tmp;
+          i++;
+          j--;
+        }
+      }
+      if (k <= j) {
+        hi = j;
+      } else if (k >= i) {
+        lo = i;
+      } else {
+        break;
+      }
+    }
+    return a[k];
+  }
+}
@@ -0,0 +1,220 @@
+package com.energytwin.microgrid.core.forecast;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Struct-of-arrays forecaster for many devices, one single-target recursive least squares model
+ * per device (the online counterpart of {@link RlsForecaster}).
+ *
+ * <p>Every tick builds one columnar feature matrix. The device-specific columns (lag1, lag2, MA3
+ * and trend of the device's own series) are stored as one array per column. The temperature and
+ * calendar features are the same for every device, so they are computed once as a shared row. For
+ * forecasts the shared rows of all horizon steps are likewise computed once and reused by every
+ * device. Devices are processed in blocks, in parallel when a pool is given; each device's model
+ * and quantile trackers live in flat arrays. Not thread-safe: calls must not overlap.
+ */
+public final class DeviceForecastKernel {
+
+  /** Quantile levels of {@link #forecast}. */
+  public static final double[] LEVELS = {0.05, 0.50, 0.95};
+
+  private static final int WINDOW = 3;
+  private static final int OWN = 4;          // lag1, lag2, MA3, trend
+  private static final int SHARED = 4 + 7;   // temperature block + calendar block
+  private static final int D = OWN + SHARED + 1;
+  private static final int BLOCK = 256;      // devices per parallel task
+  private static final double LAMBDA = 0.999;
+  private static final double P0 = 100.0;
+  private static final double QUANTILE_RATE = 0.05;
+
+  private final int devices;
+  private final int horizon;
+  private final double[] ctx;                // devices × WINDOW last values, oldest first
+  private final double[] tempCtx = new double[WINDOW];
+  private final double[][] own = new double[OWN][];
+  private final double[][] shared;           // row 0: step being learned, 1..horizon: forecast
+  private final double[] w;                  // devices × D
+  private final double[] p;                  // devices × D × D
+  private final double[] q;                  // devices × LEVELS residual quantiles
+  private final double[] scale;              // running mean |residual| per device
+  private long hour;                         // hour index of the next sample
+  private long samples;
+
+  /**
+   * @param startHour hour index (hours since the epoch) of the first sample
+   */
+  public DeviceForecastKernel(int devices, int horizon, long startHour) {
+    this.devices = devices;
+    this.horizon = horizon;
+    this.hour = startHour;
+    ctx = new double[devices * WINDOW];
+    for (int c = 0; c < OWN; c++) own[c] = new double[devices];
+    shared = new double[horizon + 1][SHARED];
+    w = new double[devices * D];
+    p = new double[devices * D * D];
+    q = new double[devices * LEVELS.length];
+    scale = new double[devices];
+    for (int i = 0; i < devices; i++) {
+      for (int j = 0; j < D; j++) p[i * D * D + j * D + j] = P0;
+    }
+  }
+
+  public int devices() {
+    return devices;
+  }
+
+  public long samples() {
+    return samples;
+  }
+
+  /**
+   * Learns one sample per device.
+   *
+   * @param y newest value of every device (kW), indexed like the kernel's devices
+   * @param temp ambient temperature (°C)
+   * @param pool workers for the device blocks, or null to run on the caller
+   */
+  public void learn(double[] y, double temp, ForkJoinPool pool) {
+    if (samples == 0) {
+      for (int i = 0; i < devices; i++) {
+        for (int k = 0; k < WINDOW; k++) ctx[i * WINDOW + k] = y[i];
+      }
+      Arrays.fill(tempCtx, temp);
+    } else {
+      fillShared(shared[0], tempCtx, hour);
+      runBlocks(pool, (from, to) -> {
+        double[] x = new double[D];
+        double[] px = new double[D];
+        for (int i = from; i < to; i++) {
+          fillOwnColumns(i);
+          learnDevice(i, y[i], x, px);
+          ForecastFeatures.shift(ctx, i * WINDOW, WINDOW, y[i]);
+        }
+      });
+      ForecastFeatures.shift(tempCtx, temp);
+    }
+    samples++;
+    hour++;
+  }
+
+  /**
+   * Forecasts every device over the horizon.
+   *
+   * @return {@code [device][level][step]} in kW, levels as in {@link #LEVELS}
+   */
+  public double[][][] forecast(ForkJoinPool pool) {
+    double[][][] out = new double[devices][LEVELS.length][horizon];
+    if (samples == 0) {
+      return out;
+    }
+    double[] t = tempCtx.clone();
+    for (int h = 0; h < horizon; h++) {
+      fillShared(shared[h + 1], t, hour + h);
+      ForecastFeatures.shift(t, t[WINDOW - 1]);                // temperature persists
+    }
+    runBlocks(pool, (from, to) -> {
+      double[] x = new double[D];
+      double[] c = new double[WINDOW];
+      for (int i = from; i < to; i++) {
+        System.arraycopy(ctx, i * WINDOW, c, 0, WINDOW);
+        forecastDevice(i, c, x, out[i]);
+      }
+    });
+    return out;
+  }
+
+  /* ---------- per device ---------- */
+  private void fillOwnColumns(int i) {
+    int o = i * WINDOW;
+    double c0 = ctx[o];
+    double c1 = ctx[o + 1];
+    double c2 = ctx[o + 2];
+    own[0][i] = c2;
+    own[1][i] = c1;
+    own[2][i] = (c0 + c1 + c2) / 3.0;
+    own[3][i] = c2 - c1;
+  }
+
+  private void learnDevice(int i, double y, double[] x, double[] px) {
+    for (int c = 0; c < OWN; c++) x[c] = own[c][i];
+    System.arraycopy(shared[0], 0, x, OWN, SHARED);
+    x[D - 1] = 1.0;
+
+    int wo = i * D;
+    int po = i * D * D;
+    double pred = 0.0;
+    for (int j = 0; j < D; j++) pred += w[wo + j] * x[j];
+    double err = y - pred;
+
+    scale[i] = QuantileTracker.nextScale(scale[i], samples - 1, err);
+    QuantileTracker.step(q, i * LEVELS.length, LEVELS, QUANTILE_RATE * scale[i], err);
+
+    double denom = LAMBDA;
+    for (int a = 0; a < D; a++) {
+      double s = 0.0;
+      for (int b = 0; b < D; b++) s += p[po + a * D + b] * x[b];
+      px[a] = s;
+      denom += x[a] * s;
+    }
+    for (int a = 0; a < D; a++) w[wo + a] += px[a] / denom * err;
+    for (int a = 0; a < D; a++) {
+      for (int b = a; b < D; b++) {
+        double v = (p[po + a * D + b] - px[a] * px[b] / denom) / LAMBDA;
+        p[po + a * D + b] = v;
+        p[po + b * D + a] = v;
+      }
+    }
+  }
+
+  private void forecastDevice(int i, double[] c, double[] x, double[][] out) {
+    int wo = i * D;
+    int qo = i * LEVELS.length;
+    double medianOffset = q[qo + 1];
+    for (int h = 0; h < horizon; h++) {
+      x[0] = c[2];
+      x[1] = c[1];
+      x[2] = (c[0] + c[1] + c[2]) / 3.0;
+      x[3] = c[2] - c[1];
+      System.arraycopy(shared[h + 1], 0, x, OWN, SHARED);
+      x[D - 1] = 1.0;
+
+      double point = 0.0;
+      for (int j = 0; j < D; j++) point += w[wo + j] * x[j];
+      point = Math.max(0, point);
+
+      double widen = Math.sqrt(h + 1);
+      for (int k = 0; k < LEVELS.length; k++) {
+        out[k][h] = Math.max(0, point + medianOffset + (q[qo + k] - medianOffset) * widen);
+      }
+      ForecastFeatures.shift(c, point);
+    }
+  }
+
+  /* ---------- shared row ---------- */
+  private static void fillShared(double[] row, double[] temp, long hourIndex) {
+    double current = temp[WINDOW - 1];
+    double ma = (temp[0] + temp[1] + temp[2]) / 3.0;
+    row[0] = current;
+    row[1] = temp[WINDOW - 2];
+    row[2] = current - ma;
+    row[3] = ma;
+    ForecastFeatures.encodeCalendar(hourIndex, row, 4);
+  }
+
+  /* ---------- blocks ---------- */
+  private interface Range {
+    void run(int from, int to);
+  }
+
+  private void runBlocks(ForkJoinPool pool, Range body) {
+    int blocks = (devices + BLOCK - 1) / BLOCK;
+    if (pool == null || blocks <= 1) {
+      body.run(0, devices);
+      return;
+    }
+    pool.submit(() -> IntStream.range(0, blocks).parallel()
+        .forEach(b -> body.run(b * BLOCK, Math.min(devices, (b + 1) * BLOCK)))).join();
+  }
+}
@@ -0,0 +1,118 @@
+package com.energytwin.microgrid.core.forecast;
+
+/**
+ * The lag, moving-average, temperature and calendar features shared by the forecasting models.
+ *
+ * <p>Column order: lag1/lag2 load, lag1/lag2 PV, load/PV MA3, load/PV trend, temperature current,
+ * lag1, deviation from MA3 and MA3, then the calendar block of {@link #encodeCalendar}. None of
+ * the methods allocate.
+ *
+ * <p>The same features describe the training samples; {@code HistoryBuffer} keeps them per sample
+ * as it is filled.
+ */
+public final class ForecastFeatures {
+
+  public static final int COUNT = 19;
+  static final int CALENDAR_OFFSET = 12;
+
+  /** Column names, in feature order. */
+  public static final String[] NAMES = {
+    "lag1_load", "lag2_load", "lag1_pv", "lag2_pv",
+    "load_ma3", "pv_ma3", "load_trend", "pv_trend",
+    "temp_current", "temp_lag1", "temp_deviation", "temp_ma",
+    "hour_sin", "hour_cos", "dow_sin", "dow_cos", "month_sin", "month_cos", "is_weekend"
+  };
+
+  private ForecastFeatures() {}
+
+  /**
+   * Writes the features of the step that follows the given context windows (oldest to newest,
+   * newest = previous step) into {@code out}.
+   *
+   * @param hourIndex hour of the step being predicted, see {@link #encodeCalendar}
+   */
+  public static void fill(
+      double[] load, double[] pv, double[] temp, long hourIndex, double[] out) {
+    int n = load.length;
+
+    // Lag features
+    out[0] = load[n - 1];
+    out[1] = (n > 1) ? load[n - 2] : load[n - 1];
+    out[2] = pv[n - 1];
+    out[3] = (n > 1) ? pv[n - 2] : pv[n - 1];
+
+    // Moving averages and trends
+    out[4] = tailMean(load, 3);
+    out[5] = tailMean(pv, 3);
+    out[6] = lastDiff(load);
+    out[7] = lastDiff(pv);
+
+    // Temperature features
+    double tempCurrent = temp[n - 1];
+    double tempMA = tailMean(temp, 3);
+    out[8] = tempCurrent;
+    out[9] = (n > 1) ? temp[n - 2] : tempCurrent;
+    out[10] = tempCurrent - tempMA;
+    out[11] = tempMA;
+
+    // Temporal features
+    encodeCalendar(hourIndex, out, CALENDAR_OFFSET);
+  }
+
+  /**
+   * Writes hour-of-day, day-of-week and month (sin/cos each) and a weekend flag for the given
+   * hour index (hours since 1970-01-01T00:00) into {@code out[off..off+7)}.
+   */
+  static void encodeCalendar(long hourIndex, double[] out, int off) {
+    int hour = hourOfDay(hourIndex);
+    long day = Math.floorDiv(hourIndex, 24);
+    int dayOfWeek = (int) Math.floorMod(day + 3, 7);      // 1970-01-01 was a Thursday
+    int month = monthOfEpochDay(day) - 1;
+
+    out[off]     = Math.sin(2 * Math.PI * hour / 24.0);
+    out[off + 1] = Math.cos(2 * Math.PI * hour / 24.0);
+    out[off + 2] = Math.sin(2 * Math.PI * dayOfWeek / 7.0);
+    out[off + 3] = Math.cos(2 * Math.PI * dayOfWeek / 7.0);
+    out[off + 4] = Math.sin(2 * Math.PI * month / 12.0);
+    out[off + 5] = Math.cos(2 * Math.PI * month / 12.0);
+    out[off + 6] = (dayOfWeek >= 5) ? 1.0 : 0.0;
+  }
+
+  static int hourOfDay(long hourIndex) {
+    return (int) Math.floorMod(hourIndex, 24);
+  }
+
+  /** Month (1-12) of a day since the epoch, proleptic Gregorian, without allocating a date. */
+  static int monthOfEpochDay(long epochDay) {
+    long z = epochDay + 719468;
+    long era = Math.floorDiv(z, 146097);
+    long doe = z - era * 146097;
+    long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+    long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+    long mp = (5 * doy + 2) / 153;
+    return (int) (mp < 10 ? mp + 3 : mp - 9);
+  }
+
+  /** Shifts {@code window} left by one and appends {@code value}. */
+  public static void shift(double[] window, double value) {
+    shift(window, 0, window.length, value);
+  }
+
+  /** Same as {@link #shift(double[], double)} for the window {@code a[off..off+len)}. */
+  static void shift(double[] a, int off, int len, double value) {
+    System.arraycopy(a, off + 1, a, off, len - 1);
+    a[off + len - 1] = value;
+  }
+
+  private static double tailMean(double[] data, int window) {
+    int from = Math.max(0, data.length - window);
+    double sum = 0.0;
+    for (int i = from; i < data.length; i++) sum += data[i];
+    return sum / (data.length - from);
+  }
+
+  private static double lastDiff(double[] data) {
+    if (data.length < 2) return 0.0;
+    return data[data.length - 1] - data[data.length - 2];
+  }
+}
@@ -0,0 +1,216 @@
+package com.energytwin.microgrid.core.forecast;
+
+import com.energytwin.microgrid.core.history.HistoryBuffer;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Compact binary snapshot of a trained forecaster and the history it was trained on, so a
+ * restarted simulation forecasts and plans from its first tick.
+ *
+ * <p>Layout (big-endian): magic, version, horizon, history capacity; the model (publish time, then
+ * the load and PV {@link CompiledForest} tables); the history sample count and the hour index of
+ * its newest sample, followed by the load, PV, irradiance, temperature and SoC series. Snapshots
+ * are written to a temporary file and moved into place, and read back through a memory mapping.
+ * Restoring the history recomputes its feature columns, and the restored samples are observed by
+ * the forecaster so it forecasts from them. {@link #capture} and {@link Capture#write} split a save
+ * so that the encoding and the disk flush can run off the caller's thread.
+ */
+public final class ForecastSnapshot {
+
+  private static final int MAGIC = 0x45544653;   // "ETFS"
+  private static final int VERSION = 2;
+
+  private ForecastSnapshot() {}
+
+  /**
+   * Writes the current model and history to {@code file}.
+   *
+   * @return false if the forecaster has no model yet (nothing is written).
+   */
+  public static boolean save(Path file, ProbabilisticForecaster forecaster, HistoryBuffer hist)
+      throws IOException {
+    Capture c = capture(forecaster, hist);
+    if (c == null) {
+      return false;
+    }
+    c.write(file);
+    return true;
+  }
+
+  /**
+   * Takes the current model and a copy of the history, so the snapshot can be written later on
+   * another thread. The model is immutable; only the history series are copied.
+   *
+   * @return null if the forecaster has no model yet.
+   */
+  public static Capture capture(ProbabilisticForecaster forecaster, HistoryBuffer hist) {
+    ProbabilisticForecaster.Model m = forecaster.currentModel();
+    if (m == null) {
+      return null;
+    }
+    double[][] series = {
+      hist.getLoad(), hist.getPv(), hist.getIrr(), hist.getTemp(), hist.getSoc()
+    };
+    return new Capture(forecaster.horizon(), hist.capacity(), m, hist.getLastHour(), series);
+  }
+
+  /** A model and history taken by {@link #capture}; safe to write from any thread. */
+  public static final class Capture {
+    private final int horizon;
+    private final int capacity;
+    private final ProbabilisticForecaster.Model m;
+    private final long lastHour;
+    private final double[][] series;
+
+    private Capture(int horizon, int capacity, ProbabilisticForecaster.Model m, long lastHour,
+        double[][] series) {
+      this.horizon = horizon;
+      this.capacity = capacity;
+      this.m = m;
+      this.lastHour = lastHour;
+      this.series = series;
+    }
+
+    /** Publish time (epoch ms) of the captured model. */
+    public long trainedAtMillis() {
+      return m.trainedAtMillis();
+    }
+
+    /** Encodes the snapshot, writes it to a temporary file and moves it onto {@code file}. */
+    public void write(Path file) throws IOException {
+      int count = series[0].length;
+      int size = 4 * Integer.BYTES
+          + Long.BYTES
+          + forestSize(m.loadModel()) + forestSize(m.pvModel())
+          + Integer.BYTES + Long.BYTES + series.length * count * Double.BYTES;
+
+      ByteBuffer b = ByteBuffer.allocate(size);
+      b.putInt(MAGIC).putInt(VERSION).putInt(horizon).putInt(capacity);
+      b.putLong(m.trainedAtMillis());
+      putForest(b, m.loadModel());
+      putForest(b, m.pvModel());
+      b.putInt(count).putLong(lastHour);
+      for (double[] s : series) {
+        putDoubles(b, s);
+      }
+      b.flip();
+
+      Path dir = file.toAbsolutePath().getParent();
+      if (dir != null) {
+        Files.createDirectories(dir);
+      }
+      Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+      try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE,
+          StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+        while (b.hasRemaining()) {
+          ch.write(b);
+        }
+        ch.force(false);
+      }
+      Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+  }
+
+  /**
+   * Restores a snapshot into a fresh forecaster and an empty history buffer.
+   *
+   * @return false if there is no snapshot or it was taken with a different horizon or history
+   *     length; nothing is restored in that case.
+   * @throws IOException if the file cannot be read or is not a valid snapshot.
+   */
+  public static boolean load(Path file, ProbabilisticForecaster forecaster, HistoryBuffer hist)
+      throws IOException {
+    if (!Files.isRegularFile(file)) {
+      return false;
+    }
+    try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+      MappedByteBuffer b = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+      if (b.remaining() < 4 * Integer.BYTES || b.getInt() != MAGIC || b.getInt() != VERSION) {
+        throw new IOException("Not a forecast snapshot: " + file);
+      }
+      if (b.getInt() != forecaster.horizon() || b.getInt() != hist.capacity()) {
+        return false;
+      }
+      try {
+        long trainedAt = b.getLong();
+        CompiledForest loadModel = getForest(b);
+        CompiledForest pvModel = getForest(b);
+
+        int count = b.getInt();
+        long lastHour = b.getLong();
+        double[][] series = new double[5][];
+        for (int s = 0; s < series.length; s++) {
+          series[s] = getDoubles(b, count);
+        }
+
+        for (int i = 0; i < count; i++) {
+          long hour = lastHour - count + 1 + i;
+          hist.push(series[0][i], series[1][i], series[2][i], series[3][i], series[4][i], hour);
+          forecaster.observe(series[0][i], series[1][i], series[3][i], hour);
+        }
+        forecaster.restore(new ProbabilisticForecaster.Model(loadModel, pvModel, trainedAt));
+        return true;
+      } catch (RuntimeException e) {   // truncated or inconsistent tables
+        throw new IOException("Corrupt forecast snapshot: " + file, e);
+      }
+    }
+  }
+
+  /* ---------- helpers ---------- */
+  private static int forestSize(CompiledForest f) {
+    int nodes = f.feature.length;
+    return 2 * Integer.BYTES + f.roots.length * Integer.BYTES
+        + nodes * (3 * Integer.BYTES + Double.BYTES);
+  }
+
+  private static void putDoubles(ByteBuffer b, double[] a) {
+    b.asDoubleBuffer().put(a);
+    b.position(b.position() + a.length * Double.BYTES);
+  }
+
+  private static double[] getDoubles(ByteBuffer b, int n) {
+    double[] a = new double[n];
+    b.asDoubleBuffer().get(a);
+    b.position(b.position() + n * Double.BYTES);
+    return a;
+  }
+
+  private static void putInts(ByteBuffer b, int[] a) {
+    b.asIntBuffer().put(a);
+    b.position(b.position() + a.length * Integer.BYTES);
+  }
+
+  private static int[] getInts(ByteBuffer b, int n) {
+    int[] a = new int[n];
+    b.asIntBuffer().get(a);
+    b.position(b.position() + n * Integer.BYTES);
+    return a;
+  }
+
+  private static void putForest(ByteBuffer b, CompiledForest f) {
+    b.putInt(f.roots.length).putInt(f.feature.length);
+    putInts(b, f.roots);
+    putInts(b, f.feature);
+    putDoubles(b, f.value);
+    putInts(b, f.trueChild);
+    putInts(b, f.falseChild);
+  }
+
+  private static CompiledForest getForest(ByteBuffer b) {
+    int trees = b.getInt();
+    int nodes = b.getInt();
+    int[] roots = getInts(b, trees);
+    int[] feature = getInts(b, nodes);
+    double[] value = getDoubles(b, nodes);
+    int[] trueChild = getInts(b, nodes);
+    int[] falseChild = getInts(b, nodes);
+    return new CompiledForest(roots, feature, value, trueChild, falseChild);
+  }
+}
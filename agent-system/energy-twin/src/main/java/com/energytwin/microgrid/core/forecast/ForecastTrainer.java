@@ -0,0 +1,78 @@
+package com.energytwin.microgrid.core.forecast;
+
+import com.energytwin.microgrid.core.history.HistoryBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fits a batch {@link Forecaster} off the agent thread.
+ *
+ * <p>Training runs on a single dedicated thread with a bounded queue. When the queue is full the
+ * oldest pending request is dropped, since a newer history window supersedes it. A finished fit is
+ * published by the forecaster itself, so callers keep predicting with the previous model until
+ * then.
+ */
+public final class ForecastTrainer {
+
+  private final Forecaster forecaster;
+  private final ThreadPoolExecutor executor;
+
+  private volatile double lastTrainingMs = Double.NaN;
+  private volatile long modelTick = -1;   // tick of the newest sample the model was fitted on
+
+  /**
+   * @param forecaster model to fit
+   * @param queueSize maximum number of pending fits
+   * @param threadName name of the training thread
+   */
+  public ForecastTrainer(Forecaster forecaster, int queueSize, String threadName) {
+    this.forecaster = forecaster;
+    this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(Math.max(1, queueSize)),
+            r -> {
+              Thread t = new Thread(r, threadName);
+              t.setDaemon(true);
+              return t;
+            },
+            new ThreadPoolExecutor.DiscardOldestPolicy());
+  }
+
+  /**
+   * Queues a fit on the given history window, which must not be modified afterwards.
+   *
+   * @param tick simulation tick of the newest sample
+   */
+  public void submit(long tick, HistoryBuffer.Window window) {
+    executor.execute(() -> {
+      long before = forecaster.getModelTrainedAtMillis();
+      long start = System.nanoTime();
+      forecaster.update(window);
+      lastTrainingMs = (System.nanoTime() - start) / 1e6;
+      if (forecaster.getModelTrainedAtMillis() != before) {   // fit succeeded and was published
+        modelTick = tick;
+      }
+    });
+  }
+
+  /** Wall-clock duration of the last completed fit. */
+  public double getLastTrainingMs() {
+    return lastTrainingMs;
+  }
+
+  /** Fits waiting in the queue plus the one currently running. */
+  public int getQueueDepth() {
+    return executor.getQueue().size() + executor.getActiveCount();
+  }
+
+  /** Ticks between {@code now} and the newest sample of the current model, or -1 without one. */
+  public long modelAgeTicks(long now) {
+    long t = modelTick;
+    return t < 0 ? -1 : now - t;
+  }
+
+  /** Stops the training thread; a running fit is interrupted at the next opportunity. */
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+}
@@ -0,0 +1,129 @@
+package com.energytwin.microgrid.core.forecast;
+
+import com.energytwin.microgrid.core.history.HistoryBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Probabilistic load and PV forecaster used by the aggregator.
+ *
+ * <p>Two kinds of models implement it. Batch models ({@link #isBatch()}) are refitted from the
+ * whole history window through {@link #update}, typically on a background thread, and forecast
+ * from the latest samples passed to {@link #observe}. Online models learn from every sample passed
+ * to {@link #observe} in constant time and need no refit.
+ *
+ * <p>Forecasts are {@code [q05, q50, q95][horizon]} arrays in kW; {@link #predictBoth(double[])}
+ * forecasts any other set of quantile levels.
+ */
+public interface Forecaster {
+
+  /** Quantile levels of {@link #predictLoad}, {@link #predictPv} and {@link #predictBoth()}. */
+  double[] LEVELS = {0.05, 0.50, 0.95};
+
+  /** Model names accepted by {@code forecast.model}. */
+  String FOREST = "forest";
+  String RLS = "rls";
+  String SEASONAL = "seasonal";
+  List<String> MODELS = List.of(FOREST, RLS, SEASONAL);
+
+  /** True if {@code model} names one of {@link #MODELS}, ignoring case. */
+  static boolean isModel(String model) {
+    return MODELS.stream().anyMatch(m -> m.equalsIgnoreCase(model));
+  }
+
+  /**
+   * Creates the model selected by {@code forecast.model}; unknown names select the random forest.
+   *
+   * @param pool workers of the random forest, or null for its single-threaded path
+   */
+  static Forecaster create(String model, int horizon, ForkJoinPool pool) {
+    if (RLS.equalsIgnoreCase(model)) return new RlsForecaster(horizon);
+    if (SEASONAL.equalsIgnoreCase(model)) return new SeasonalForecaster(horizon);
+    return new ProbabilisticForecaster(horizon, pool);
+  }
+
+  /** True if the model learns only through {@link #update}. */
+  boolean isBatch();
+
+  /**
+   * Feeds the newest sample (kW, kW, °C) with its hour index; online models learn from it and
+   * every model forecasts the hours after it.
+   */
+  default void observe(double load, double pv, double temp, long hour) {}
+
+  /** Refits a batch model from the full history window and its feature columns. */
+  default void update(HistoryBuffer.Window window) {}
+
+  /** True once forecasts come from a fitted model rather than the fallback. */
+  boolean hasModel();
+
+  /** Forecast horizon in steps. */
+  int horizon();
+
+  /** Wall-clock time (epoch ms) of the last model change, or -1 if none. */
+  long getModelTrainedAtMillis();
+
+  double[][] predictLoad();
+
+  double[][] predictPv();
+
+  /** Load and PV forecasts from the same model state, {@code [load, pv]}. */
+  default double[][][] predictBoth() {
+    return new double[][][] {predictLoad(), predictPv()};
+  }
+
+  /**
+   * Load and PV forecasts at the given quantile levels, {@code [load, pv][level][step]}.
+   *
+   * <p>The default interpolates linearly between the q05, q50 and q95 of {@link #predictBoth()},
+   * and extrapolates beyond them, for models that estimate only those three levels.
+   */
+  default double[][][] predictBoth(double[] levels) {
+    double[][][] both = predictBoth();
+    double[][][] out = new double[2][levels.length][horizon()];
+    for (int t = 0; t < 2; t++) {
+      for (int j = 0; j < levels.length; j++) {
+        int seg = levels[j] <= LEVELS[1] ? 0 : 1;
+        double w = (levels[j] - LEVELS[seg]) / (LEVELS[seg + 1] - LEVELS[seg]);
+        for (int h = 0; h < horizon(); h++) {
+          double lo = both[t][seg][h];
+          out[t][j][h] = Math.max(0, lo + w * (both[t][seg + 1][h] - lo));
+        }
+      }
+    }
+    return out;
+  }
+
+  /** Sorted union of two sets of quantile levels, without duplicates. */
+  static double[] union(double[] a, double[] b) {
+    double[] all = new double[a.length + b.length];
+    System.arraycopy(a, 0, all, 0, a.length);
+    System.arraycopy(b, 0, all, a.length, b.length);
+    return Arrays.stream(all).sorted().distinct().toArray();
+  }
+
+  /**
+   * The rows of {@code wanted} from a forecast at the sorted {@code levels}, which must contain
+   * every wanted level.
+   */
+  static double[][] rows(double[][] q, double[] levels, double[] wanted) {
+    double[][] out = new double[wanted.length][];
+    for (int j = 0; j < wanted.length; j++) {
+      int i = Arrays.binarySearch(levels, wanted[j]);
+      if (i < 0) throw new IllegalArgumentException("Level not forecast: " + wanted[j]);
+      out[j] = q[i];
+    }
+    return out;
+  }
+
+  /** Busy workers, on average, during the last fit, or NaN where not applicable. */
+  default double getLastTrainingUtilization() {
+    return Double.NaN;
+  }
+
+  /** Busy workers, on average, during the last forecast, or NaN where not applicable. */
+  default double getLastPredictionUtilization() {
+    return Double.NaN;
+  }
+}
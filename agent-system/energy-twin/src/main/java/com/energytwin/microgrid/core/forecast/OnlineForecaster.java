@@ -0,0 +1,131 @@
+package com.energytwin.microgrid.core.forecast;
+
+import java.util.Arrays;
+
+/**
+ * Base of the online forecasters: every sample costs constant time, independent of the history
+ * length.
+ *
+ * <p>For each new sample the subclass first predicts it from the context of the last {@link
+ * #CONTEXT} samples ({@link #prepare}, {@link #point}). The residual then feeds a {@link
+ * QuantileTracker} per target, and the model learns the observed value ({@link #learn}). Forecasts
+ * run the point model recursively over the horizon, feeding predicted load and PV back into the
+ * context. The residual quantiles are widened by {@code sqrt(h + 1)} at step {@code h}.
+ */
+abstract class OnlineForecaster implements Forecaster {
+
+  static final int LOAD = 0;
+  static final int PV = 1;
+  static final int CONTEXT = 7;
+  private static final double[] LEVELS = {0.05, 0.50, 0.95};
+
+  private final int horizon;
+  private final int warmup;
+  private final double[] ctxLoad = new double[CONTEXT];
+  private final double[] ctxPv = new double[CONTEXT];
+  private final double[] ctxTemp = new double[CONTEXT];
+  private final QuantileTracker[] residuals = {
+    new QuantileTracker(LEVELS, 0.05), new QuantileTracker(LEVELS, 0.05)
+  };
+  private long nextHour;            // hour index of the next sample
+  private long samples;
+  private long updatedAtMillis = -1;
+
+  /**
+   * @param warmup samples to observe before forecasts are reported as model-based
+   */
+  OnlineForecaster(int horizon, int warmup) {
+    this.horizon = horizon;
+    this.warmup = Math.max(CONTEXT, warmup);
+  }
+
+  /** Sets up the step that follows the given context, for the hour index {@code hour}. */
+  protected abstract void prepare(double[] load, double[] pv, double[] temp, long hour);
+
+  /** Point forecast of {@code target} for the prepared step. */
+  protected abstract double point(int target);
+
+  /** Learns the observed value of {@code target} for the prepared step. */
+  protected abstract void learn(int target, double y);
+
+  @Override
+  public boolean isBatch() {
+    return false;
+  }
+
+  @Override
+  public void observe(double load, double pv, double temp, long hour) {
+    if (samples == 0) {
+      Arrays.fill(ctxLoad, load);
+      Arrays.fill(ctxPv, pv);
+      Arrays.fill(ctxTemp, temp);
+    } else {
+      prepare(ctxLoad, ctxPv, ctxTemp, hour);
+      residuals[LOAD].add(load - point(LOAD));
+      residuals[PV].add(pv - point(PV));
+      learn(LOAD, load);
+      learn(PV, pv);
+      ForecastFeatures.shift(ctxLoad, load);
+      ForecastFeatures.shift(ctxPv, pv);
+      ForecastFeatures.shift(ctxTemp, temp);
+    }
+    samples++;
+    nextHour = hour + 1;
+    updatedAtMillis = System.currentTimeMillis();
+  }
+
+  @Override
+  public boolean hasModel() {
+    return samples >= warmup;
+  }
+
+  @Override
+  public int horizon() {
+    return horizon;
+  }
+
+  @Override
+  public long getModelTrainedAtMillis() {
+    return updatedAtMillis;
+  }
+
+  @Override
+  public double[][] predictLoad() {
+    return predictBoth()[LOAD];
+  }
+
+  @Override
+  public double[][] predictPv() {
+    return predictBoth()[PV];
+  }
+
+  @Override
+  public double[][][] predictBoth() {
+    double[][][] out = new double[2][LEVELS.length][horizon];
+    if (samples == 0) {
+      return out;
+    }
+    double[] load = ctxLoad.clone();
+    double[] pv = ctxPv.clone();
+    double[] temp = ctxTemp.clone();
+    for (int h = 0; h < horizon; h++) {
+      prepare(load, pv, temp, nextHour + h);
+      double pl = Math.max(0, point(LOAD));
+      double pp = Math.max(0, point(PV));
+      fill(out[LOAD], residuals[LOAD], pl, h);
+      fill(out[PV], residuals[PV], pp, h);
+      ForecastFeatures.shift(load, pl);
+      ForecastFeatures.shift(pv, pp);
+      ForecastFeatures.shift(temp, temp[CONTEXT - 1]);   // temperature persists
+    }
+    return out;
+  }
+
+  private static void fill(double[][] q, QuantileTracker r, double point, int h) {
+    double widen = Math.sqrt(h + 1);
+    double median = point + r.get(1);
+    for (int i = 0; i < LEVELS.length; i++) {
+      q[i][h] = Math.max(0, median + (r.get(i) - r.get(1)) * widen);
+    }
+  }
+}
@@ -0,0 +1,123 @@
+package com.energytwin.microgrid.core.forecast;
+
+import java.util.Arrays;
+
+/**
+ * Streaming estimate of several quantiles at once with the extended P² algorithm (Jain and
+ * Chlamtac; Raatikainen's generalisation to several levels).
+ *
+ * <p>For {@code m} levels it keeps {@code 2m + 3} markers: the minimum, the maximum, one marker
+ * per level and one halfway between neighbours. Each sample moves the marker positions and adjusts
+ * the heights of markers that drifted from their desired position by a piecewise-parabolic step.
+ * A sample costs O(m), nothing is sorted and nothing is allocated after construction. Until there
+ * are enough samples to place all markers, the quantiles are exact order statistics of the samples
+ * seen so far. Not thread-safe.
+ */
+final class P2Quantiles {
+
+  private final double[] levels;
+  private final double[] dp;         // marker probabilities
+  private final double[] height;
+  private final double[] pos;        // actual positions, 1-based
+  private final double[] desired;    // desired positions, 1-based
+  private final double[] scratch;
+  private int count;
+
+  /** @param levels quantile levels, strictly increasing, each in (0, 1) */
+  P2Quantiles(double[] levels) {
+    for (int i = 0; i < levels.length; i++) {
+      if (!(levels[i] > 0 && levels[i] < 1) || (i > 0 && levels[i] <= levels[i - 1])) {
+        throw new IllegalArgumentException("Levels must increase within (0, 1)");
+      }
+    }
+    this.levels = levels.clone();
+    int markers = 2 * levels.length + 3;
+    dp = new double[markers];
+    for (int j = 0; j < levels.length; j++) {
+      double prev = j == 0 ? 0.0 : levels[j - 1];
+      dp[2 * j + 1] = (prev + levels[j]) / 2;
+      dp[2 * j + 2] = levels[j];
+    }
+    dp[markers - 2] = (levels[levels.length - 1] + 1.0) / 2;
+    dp[markers - 1] = 1.0;
+    height = new double[markers];
+    pos = new double[markers];
+    desired = new double[markers];
+    scratch = new double[markers];
+  }
+
+  /** Forgets all samples; the levels are kept. */
+  void reset() {
+    count = 0;
+  }
+
+  int size() {
+    return count;
+  }
+
+  void add(double x) {
+    int markers = height.length;
+    if (count < markers) {
+      height[count++] = x;
+      if (count == markers) {
+        Arrays.sort(height);
+        for (int i = 0; i < markers; i++) {
+          pos[i] = i + 1;
+          desired[i] = 1 + (markers - 1) * dp[i];
+        }
+      }
+      return;
+    }
+    count++;
+
+    // Cell of x; the extreme markers follow new minima and maxima
+    int k;
+    if (x < height[0]) {
+      height[0] = x;
+      k = 0;
+    } else if (x >= height[markers - 1]) {
+      height[markers - 1] = x;
+      k = markers - 2;
+    } else {
+      k = 0;
+      while (x >= height[k + 1]) k++;
+    }
+    for (int i = k + 1; i < markers; i++) pos[i]++;
+    for (int i = 0; i < markers; i++) desired[i] += dp[i];
+
+    // Move the inner markers towards their desired positions
+    for (int i = 1; i < markers - 1; i++) {
+      double d = desired[i] - pos[i];
+      if ((d >= 1 && pos[i + 1] - pos[i] > 1) || (d <= -1 && pos[i - 1] - pos[i] < -1)) {
+        int s = d > 0 ? 1 : -1;
+        double h = parabolic(i, s);
+        if (!(height[i - 1] < h && h < height[i + 1])) {
+          h = height[i] + s * (height[i + s] - height[i]) / (pos[i + s] - pos[i]);
+        }
+        height[i] = h;
+        pos[i] += s;
+      }
+    }
+  }
+
+  /** Current estimate of the {@code j}-th level, NaN before the first sample. */
+  double get(int j) {
+    int markers = height.length;
+    if (count >= markers) {
+      return height[2 * j + 2];
+    }
+    if (count == 0) {
+      return Double.NaN;
+    }
+    System.arraycopy(height, 0, scratch, 0, count);
+    return CompiledForest.quantile(scratch, count, levels[j]);
+  }
+
+  private double parabolic(int i, int s) {
+    double left = pos[i] - pos[i - 1];
+    double right = pos[i + 1] - pos[i];
+    return height[i] + s / (pos[i + 1] - pos[i - 1])
+        * ((left + s) * (height[i + 1] - height[i]) / right
+            + (right - s) * (height[i] - height[i - 1]) / left);
+  }
+}
@@ -1,29 +1,60 @@
 package com.energytwin.microgrid.core.forecast;
 
+import com.energytwin.microgrid.core.history.HistoryBuffer;
 import smile.data.DataFrame;
-import smile.data.Tuple;
 import smile.data.vector.DoubleVector;
-import smile.data.vector.IntVector;
 import smile.regression.RandomForest;
-import smile.regression.RegressionTree;
-import smile.stat.distribution.EmpiricalDistribution;
-import java.time.LocalDateTime;
 import java.util.Arrays;
-import java.util.stream.IntStream;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.LongStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Enhanced Probabilistic Forecaster with proper feature engineering,
  * environmental modeling, and robust multi-step prediction.
+ *
+ * <p>{@link #update} may run on a background thread while the owning agent keeps predicting: a
+ * fit builds a complete new {@link Model} and publishes it with a single volatile write, so
+ * predictions always see one consistent model (the latest completed one). Forecasts start from
+ * the samples passed to {@link #observe} by the owning agent, not from the fitted window, so they
+ * follow the newest data between fits.
+ *
+ * <p>Fitted forests are compiled into {@link CompiledForest} tables; a forecast evaluates every tree
+ * at every horizon step and streams the tree outputs into a {@link P2Quantiles} sketch for the
+ * requested levels, without sorting and without allocating per tree or per step.
+ *
+ * <p>With a {@link ForkJoinPool} the load and PV forests are fitted concurrently and forecasts
+ * evaluate the two targets concurrently, each splitting its trees into slices across the workers.
+ * Without a pool everything runs on the calling thread.
  */
-public final class ProbabilisticForecaster {
+public final class ProbabilisticForecaster implements Forecaster {
+    private static final Logger logger = LoggerFactory.getLogger(ProbabilisticForecaster.class);
     private final int H_pred;
-    private RandomForest loadModel, pvModel;
 
-    // Enhanced feature caching
-    private double[] recentLoad, recentPv, recentTemp;
-    private double[] loadMovingAvg, pvMovingAvg;
-    private double baselineTemp = 20.0;
-    private LocalDateTime lastUpdateTime;
+    /** Trained forests; never mutated. */
+    record Model(CompiledForest loadModel, CompiledForest pvModel, long trainedAtMillis) {}
+
+    /** Copy of the prediction context taken when a forecast starts. */
+    private record Context(double[] recentLoad, double[] recentPv, double[] recentTemp,
+                           double baselineTemp, long lastHour) {}
+
+    private volatile Model model;
+
+    // Prediction context: the last observed samples, owned by the agent thread
+    private final double[] recentLoad = new double[LOOKBACK_WINDOW];
+    private final double[] recentPv = new double[LOOKBACK_WINDOW];
+    private final double[] recentTemp = new double[LOOKBACK_WINDOW];
+    private long lastHour;                      // hour index of the newest observed sample
+    private long observed;
+
+    private final ForkJoinPool pool;            // null: single-threaded path
+    private final long[] seeds;                 // per-tree seeds, null: unseeded
+    private volatile double lastTrainingUtilization = Double.NaN;
+    private volatile double lastPredictionUtilization = Double.NaN;
 
     // Robust hyperparameters optimized for energy forecasting
     private static final int N_TREES = 100;           // Increased for stability
@@ -32,302 +63,363 @@ public final class ProbabilisticForecaster {
     private static final int MIN_SAMPLE = 8;
     private static final double SUBSAMPLE = 0.8;
     private static final int LOOKBACK_WINDOW = 7;     // For moving averages and trends
+    private static final int TREE_SLICE = 25;         // Trees per parallel evaluation task
 
     public ProbabilisticForecaster(int horizon) {
+        this(horizon, null);
+    }
+
+    /**
+     * @param pool workers for parallel training and inference, or null for the single-threaded path
+     */
+    public ProbabilisticForecaster(int horizon, ForkJoinPool pool) {
+        this(horizon, pool, null);
+    }
+
+    /** Seeds the trees of every fit, so fits of the same window give the same forests. */
+    ProbabilisticForecaster(int horizon, ForkJoinPool pool, long seed) {
+        this(horizon, pool, LongStream.range(seed, seed + N_TREES).toArray());
+    }
+
+    private ProbabilisticForecaster(int horizon, ForkJoinPool pool, long[] seeds) {
         this.H_pred = horizon;
-        this.lastUpdateTime = LocalDateTime.now();
+        this.pool = pool;
+        this.seeds = seeds;
+    }
+
+    /**
+     * Sum of the load and PV fit times over the wall time of the last fit, i.e. how many workers
+     * were busy on average (1 on the single-threaded path). This is pool utilization, not a
+     * speedup: a fit that slows down under contention still counts as busy.
+     */
+    @Override
+    public double getLastTrainingUtilization() {
+        return lastTrainingUtilization;
+    }
+
+    /**
+     * Busy time of all tree-evaluation tasks over the wall time of the last
+     * {@link #predictBoth()}, i.e. how many workers were busy on average (1 on the
+     * single-threaded path).
+     */
+    @Override
+    public double getLastPredictionUtilization() {
+        return lastPredictionUtilization;
+    }
+
+    @Override
+    public boolean isBatch() {
+        return true;
+    }
+
+    /** True once the first fit has completed. */
+    @Override
+    public boolean hasModel() {
+        return model != null;
+    }
+
+    /** Forecast horizon in steps. */
+    @Override
+    public int horizon() {
+        return H_pred;
+    }
+
+    /** The current model, or null before the first fit. */
+    Model currentModel() {
+        return model;
+    }
+
+    /** Publishes a model restored from a snapshot, as if a fit had just completed. */
+    void restore(Model restored) {
+        this.model = restored;
+    }
+
+    /** Wall-clock time (epoch ms) at which the current model was published, or -1 if none. */
+    @Override
+    public long getModelTrainedAtMillis() {
+        Model m = model;
+        return m == null ? -1 : m.trainedAtMillis();
     }
 
     /**
-     * Enhanced update method with comprehensive feature engineering
+     * Adds the newest sample to the prediction context. Invalid values are forward-filled, as the
+     * training targets are.
      */
-    public void update(double[] load, double[] pv, double[] temp) {
-        int n = load.length;
+    @Override
+    public void observe(double load, double pv, double temp, long hour) {
+        append(recentLoad, load);
+        append(recentPv, pv);
+        append(recentTemp, temp);
+        lastHour = hour;
+        observed++;
+    }
+
+    private void append(double[] recent, double value) {
+        double last = observed == 0 ? 0.0 : recent[recent.length - 1];
+        double v = Double.isFinite(value) && value >= 0 ? value : last;
+        if (observed == 0) {
+            Arrays.fill(recent, v);
+        } else {
+            ForecastFeatures.shift(recent, v);
+        }
+    }
+
+    /** Copy of the prediction context, or null before the first sample. */
+    private Context context() {
+        if (observed == 0) {
+            return null;
+        }
+        return new Context(recentLoad.clone(), recentPv.clone(), recentTemp.clone(),
+                recentTemp[recentTemp.length - 1], lastHour);
+    }
+
+    /**
+     * Refits both forests on the feature columns kept by the history buffer; only the targets
+     * are cleaned here, the features are used as they are.
+     */
+    @Override
+    public void update(HistoryBuffer.Window window) {
+        int n = window.size();
 
         // Enhanced validation with better thresholds
         if (n < 10) {
-            System.out.println("Insufficient data points: " + n);
+            logger.debug("Insufficient data points: {}", n);
             return;
         }
 
         // Clean and validate data
-        double[] cleanLoad = cleanAndValidateData(load, "load");
-        double[] cleanPv = cleanAndValidateData(pv, "pv");
-        double[] cleanTemp = cleanAndValidateData(temp, "temperature");
+        double[] cleanLoad = cleanAndValidateData(window.load(), "load");
+        double[] cleanPv = cleanAndValidateData(window.pv(), "pv");
 
         // Check for sufficient variance
-        if (calculateCoeffOfVariation(cleanLoad) < 0.05 ||
-                calculateCoeffOfVariation(cleanPv) < 0.05) {
-            System.out.println("Warning: Low variance in data may lead to poor predictions");
+        double loadCv = calculateCoeffOfVariation(cleanLoad);
+        double pvCv = calculateCoeffOfVariation(cleanPv);
+        if (loadCv < 0.05 || pvCv < 0.05) {
+            logger.debug("Low variance in data may lead to poor predictions");
         }
 
-        // Cache recent values for prediction
-        int cacheSize = Math.min(LOOKBACK_WINDOW, n);
-        this.recentLoad = Arrays.copyOfRange(cleanLoad, n - cacheSize, n);
-        this.recentPv = Arrays.copyOfRange(cleanPv, n - cacheSize, n);
-        this.recentTemp = Arrays.copyOfRange(cleanTemp, n - cacheSize, n);
-        this.baselineTemp = cleanTemp[n - 1];
-        this.lastUpdateTime = LocalDateTime.now();
-
-        // Build comprehensive features
-        DataFrame features = buildEnhancedFeatures(cleanLoad, cleanPv, cleanTemp, n);
+        // Ready-made feature columns from the history buffer
+        DataFrame features = toDataFrame(window.features());
 
         // Train models with cross-validation-informed parameters
         int mtry = Math.max(3, (int) Math.round(Math.sqrt(features.ncol()) * 1.2));
 
         try {
-            // Train load model with enhanced features
-            DataFrame loadTrainData = features.merge(DoubleVector.of("target_load", cleanLoad));
-            loadModel = RandomForest.fit(
-                    smile.data.formula.Formula.lhs("target_load"),
-                    loadTrainData,
-                    N_TREES,
-                    mtry,
-                    MAX_DEPTH,
-                    Integer.MAX_VALUE,
-                    MIN_SPLIT,
-                    SUBSAMPLE
-            );
-
-            // Train PV model
-            DataFrame pvTrainData = features.merge(DoubleVector.of("target_pv", cleanPv));
-            pvModel = RandomForest.fit(
-                    smile.data.formula.Formula.lhs("target_pv"),
-                    pvTrainData,
-                    N_TREES,
-                    mtry,
-                    MAX_DEPTH,
-                    Integer.MAX_VALUE,
-                    MIN_SPLIT,
-                    SUBSAMPLE
-            );
-
-            // Compute moving averages for prediction context
-            this.loadMovingAvg = computeMovingAverages(cleanLoad, 3);
-            this.pvMovingAvg = computeMovingAverages(cleanPv, 3);
-
-            System.out.println("Enhanced models trained successfully");
-            System.out.println("Load CV: " + String.format("%.3f", calculateCoeffOfVariation(cleanLoad)));
-            System.out.println("PV CV: " + String.format("%.3f", calculateCoeffOfVariation(cleanPv)));
+            // Train load and PV models, concurrently when a pool is configured
+            long[] fitNanos = new long[2];
+            long start = System.nanoTime();
+            RandomForest loadModel, pvModel;
+            if (pool == null) {
+                loadModel = fitTimed("target_load", features, cleanLoad, mtry, fitNanos, 0);
+                pvModel = fitTimed("target_pv", features, cleanPv, mtry, fitNanos, 1);
+            } else {
+                ForkJoinTask<RandomForest> pvTask = pool.submit(
+                        () -> fitTimed("target_pv", features, cleanPv, mtry, fitNanos, 1));
+                loadModel = pool.submit(
+                        () -> fitTimed("target_load", features, cleanLoad, mtry, fitNanos, 0))
+                        .get();
+                pvModel = pvTask.get();
+            }
+            long wall = System.nanoTime() - start;
+            this.lastTrainingUtilization = (double) (fitNanos[0] + fitNanos[1]) / Math.max(1, wall);
+
+            // Publish both forests in one step
+            this.model = new Model(CompiledForest.compile(loadModel),
+                    CompiledForest.compile(pvModel), System.currentTimeMillis());
+
+            logger.debug("Models trained (load CV {}, PV CV {})",
+                    String.format("%.3f", loadCv), String.format("%.3f", pvCv));
 
         } catch (Exception e) {
-            System.err.println("Enhanced model training failed: " + e.getMessage());
-            e.printStackTrace();
+            logger.warn("Model training failed: {}", e.getMessage(), e);
         }
     }
 
-    /**
-     * Builds comprehensive feature set with proper temporal and environmental modeling
-     */
-    private DataFrame buildEnhancedFeatures(double[] load, double[] pv, double[] temp, int n) {
-        // Initialize feature arrays
-        double[] lag1Load = new double[n];
-        double[] lag2Load = new double[n];
-        double[] lag1Pv = new double[n];
-        double[] lag2Pv = new double[n];
-        double[] tempCurrent = new double[n];
-        double[] tempLag1 = new double[n];
-
-        // Moving averages and trends
-        double[] loadMA3 = computeMovingAverages(load, 3);
-        double[] pvMA3 = computeMovingAverages(pv, 3);
-        double[] loadTrend = computeTrend(load, 3);
-        double[] pvTrend = computeTrend(pv, 3);
-
-        // Temporal features with enhanced encoding
-        double[] hourSin = new double[n];
-        double[] hourCos = new double[n];
-        double[] dowSin = new double[n];
-        double[] dowCos = new double[n];
-        double[] monthSin = new double[n];
-        double[] monthCos = new double[n];
-        double[] isWeekend = new double[n];
-
-        // Temperature-derived features
-        double[] tempDeviation = new double[n];
-        double[] tempMA = computeMovingAverages(temp, 3);
-
-        LocalDateTime baseTime = lastUpdateTime.minusHours(n);
-
-        for (int i = 0; i < n; i++) {
-            LocalDateTime currentTime = baseTime.plusHours(i);
-
-            // Enhanced lag features with bounds checking
-            lag1Load[i] = (i > 0) ? load[i - 1] : load[0];
-            lag2Load[i] = (i > 1) ? load[i - 2] : load[Math.max(0, i - 1)];
-            lag1Pv[i] = (i > 0) ? pv[i - 1] : pv[0];
-            lag2Pv[i] = (i > 1) ? pv[i - 2] : pv[Math.max(0, i - 1)];
-
-            // Temperature features
-            tempCurrent[i] = temp[i];
-            tempLag1[i] = (i > 0) ? temp[i - 1] : temp[0];
-            tempDeviation[i] = temp[i] - tempMA[i];
-
-            // Enhanced temporal encoding
-            int hour = currentTime.getHour();
-            int dayOfWeek = currentTime.getDayOfWeek().getValue() - 1;
-            int month = currentTime.getMonthValue() - 1;
-
-            hourSin[i] = Math.sin(2 * Math.PI * hour / 24.0);
-            hourCos[i] = Math.cos(2 * Math.PI * hour / 24.0);
-            dowSin[i] = Math.sin(2 * Math.PI * dayOfWeek / 7.0);
-            dowCos[i] = Math.cos(2 * Math.PI * dayOfWeek / 7.0);
-            monthSin[i] = Math.sin(2 * Math.PI * month / 12.0);
-            monthCos[i] = Math.cos(2 * Math.PI * month / 12.0);
-            isWeekend[i] = (dayOfWeek >= 5) ? 1.0 : 0.0;
-        }
-
-        // Build comprehensive DataFrame
-        return DataFrame.of(
-                // Autoregressive features
-                DoubleVector.of("lag1_load", lag1Load),
-                DoubleVector.of("lag2_load", lag2Load),
-                DoubleVector.of("lag1_pv", lag1Pv),
-                DoubleVector.of("lag2_pv", lag2Pv),
-
-                // Moving averages and trends
-                DoubleVector.of("load_ma3", loadMA3),
-                DoubleVector.of("pv_ma3", pvMA3),
-                DoubleVector.of("load_trend", loadTrend),
-                DoubleVector.of("pv_trend", pvTrend),
-
-                // Temperature features
-                DoubleVector.of("temp_current", tempCurrent),
-                DoubleVector.of("temp_lag1", tempLag1),
-                DoubleVector.of("temp_deviation", tempDeviation),
-                DoubleVector.of("temp_ma", tempMA),
-
-                // Temporal features
-                DoubleVector.of("hour_sin", hourSin),
-                DoubleVector.of("hour_cos", hourCos),
-                DoubleVector.of("dow_sin", dowSin),
-                DoubleVector.of("dow_cos", dowCos),
-                DoubleVector.of("month_sin", monthSin),
-                DoubleVector.of("month_cos", monthCos),
-                DoubleVector.of("is_weekend", isWeekend)
+    /** Fits one forest for the given target column; its duration goes to {@code nanos[slot]}. */
+    private RandomForest fitTimed(String target, DataFrame features, double[] y, int mtry,
+                                  long[] nanos, int slot) {
+        long start = System.nanoTime();
+        RandomForest forest = RandomForest.fit(
+                smile.data.formula.Formula.lhs(target),
+                features.merge(DoubleVector.of(target, y)),
+                N_TREES,
+                mtry,
+                MAX_DEPTH,
+                Integer.MAX_VALUE,
+                MIN_SPLIT,
+                SUBSAMPLE,
+                seeds == null ? null : LongStream.of(seeds)
         );
+        nanos[slot] = System.nanoTime() - start;
+        return forest;
+    }
+
+    /** Wraps the feature columns, in {@link ForecastFeatures#NAMES} order, without copying. */
+    private static DataFrame toDataFrame(double[][] columns) {
+        DoubleVector[] vectors = new DoubleVector[columns.length];
+        for (int k = 0; k < columns.length; k++) {
+            vectors[k] = DoubleVector.of(ForecastFeatures.NAMES[k], columns[k]);
+        }
+        return DataFrame.of(vectors);
     }
 
     /**
      * Enhanced multi-step forecasting with proper environmental evolution
      */
+    @Override
     public double[][] predictLoad() {
-        if (loadModel == null || recentLoad == null) {
+        Model m = model;
+        Context c = context();
+        if (m == null || c == null) {
             return createFallbackPrediction(0.0);
         }
-        return generateEnhancedForecast(loadModel, true);
+        return generateEnhancedForecast(c, m.loadModel(), true, null, LEVELS, 1);
     }
 
+    @Override
     public double[][] predictPv() {
-        if (pvModel == null || recentPv == null) {
+        Model m = model;
+        Context c = context();
+        if (m == null || c == null) {
             return createFallbackPrediction(0.0);
         }
-        return generateEnhancedForecast(pvModel, false);
+        return generateEnhancedForecast(c, m.pvModel(), false, null, LEVELS, 1);
     }
 
     /**
-     * Enhanced forecast generation with proper state evolution
+     * Load and PV forecasts of the same model, {@code [load, pv][q05, q50, q95][H_pred]}. With a
+     * pool the two targets and the trees of each step are evaluated in parallel.
      */
-    private double[][] generateEnhancedForecast(RandomForest model, boolean isLoadModel) {
-        double[] q05 = new double[H_pred];
-        double[] q50 = new double[H_pred];
-        double[] q95 = new double[H_pred];
+    @Override
+    public double[][][] predictBoth() {
+        return predictBoth(LEVELS);
+    }
 
-        // Initialize state variables
-        double[] evolvedLoad = Arrays.copyOf(recentLoad, recentLoad.length);
-        double[] evolvedPv = Arrays.copyOf(recentPv, recentPv.length);
-        double[] evolvedTemp = Arrays.copyOf(recentTemp, recentTemp.length);
+    /**
+     * Load and PV forecasts at any quantile levels, {@code [load, pv][level][H_pred]}. All levels
+     * come from one pass over the tree outputs of each step, so extra fan-chart levels cost no
+     * extra tree evaluations.
+     */
+    @Override
+    public double[][][] predictBoth(double[] levels) {
+        Model m = model;
+        Context c = context();
+        if (m == null || c == null) {
+            return new double[2][levels.length][H_pred];
+        }
+        // The median drives the recursion, so it is always estimated
+        double[] all = Forecaster.union(levels, new double[] { 0.5 });
+        int median = Arrays.binarySearch(all, 0.5);
+        double[][][] out;
+        if (pool == null) {
+            lastPredictionUtilization = 1.0;
+            out = new double[][][] {
+                    generateEnhancedForecast(c, m.loadModel(), true, null, all, median),
+                    generateEnhancedForecast(c, m.pvModel(), false, null, all, median)
+            };
+        } else {
+            LongAdder busy = new LongAdder();
+            long start = System.nanoTime();
+            out = pool.invoke(ForkJoinTask.adapt(() -> {
+                ForkJoinTask<double[][]> pvTask = ForkJoinTask.adapt(() ->
+                        generateEnhancedForecast(c, m.pvModel(), false, busy, all, median)).fork();
+                double[][] loadQ =
+                        generateEnhancedForecast(c, m.loadModel(), true, busy, all, median);
+                return new double[][][] { loadQ, pvTask.join() };
+            }));
+            lastPredictionUtilization =
+                    (double) busy.sum() / Math.max(1, System.nanoTime() - start);
+        }
+        return new double[][][] {
+                Forecaster.rows(out[0], all, levels), Forecaster.rows(out[1], all, levels)
+        };
+    }
 
-        LocalDateTime forecastTime = lastUpdateTime;
+    /**
+     * Enhanced forecast generation with proper state evolution; {@code levels} are sorted and
+     * {@code levels[median]} is 0.5.
+     */
+    private double[][] generateEnhancedForecast(Context c, CompiledForest forest,
+                                                boolean isLoadModel, LongAdder busy,
+                                                double[] levels, int median) {
+        double[][] q = new double[levels.length][H_pred];
+
+        // Scratch reused across all steps and trees
+        double[] evolvedLoad = Arrays.copyOf(c.recentLoad(), c.recentLoad().length);
+        double[] evolvedPv = Arrays.copyOf(c.recentPv(), c.recentPv().length);
+        double[] evolvedTemp = Arrays.copyOf(c.recentTemp(), c.recentTemp().length);
+        double[] features = new double[ForecastFeatures.COUNT];
+        int nTrees = forest.size();
+        double[] treeOut = busy == null ? null : new double[nTrees];
+        P2Quantiles sketch = new P2Quantiles(levels);
 
         for (int h = 0; h < H_pred; h++) {
-            forecastTime = forecastTime.plusHours(1);
-
-            try {
-                // Build prediction features for this time step
-                double[] features = buildPredictionFeatures(
-                        evolvedLoad, evolvedPv, evolvedTemp, forecastTime, h
-                );
-
-                // Get ensemble predictions
-                double[] treePredictions = getTreePredictions(model, features);
-
-                // Calculate robust quantiles
-                double[] quantiles = calculateRobustQuantiles(treePredictions);
-
-                q05[h] = Math.max(0, quantiles[0]);
-                q50[h] = Math.max(0, quantiles[1]);
-                q95[h] = Math.max(0, quantiles[2]);
-
-                // Update evolved state for next iteration
-                updateEvolvedState(evolvedLoad, evolvedPv, evolvedTemp,
-                        q50[h], isLoadModel, h, forecastTime);
-
-            } catch (Exception e) {
-                System.err.println("Error in forecast step " + h + ": " + e.getMessage());
-                double fallback = isLoadModel ?
-                        (recentLoad.length > 0 ? recentLoad[recentLoad.length - 1] : 0.0) :
-                        (recentPv.length > 0 ? recentPv[recentPv.length - 1] : 0.0);
-                q05[h] = Math.max(0, fallback * 0.8);
-                q50[h] = Math.max(0, fallback);
-                q95[h] = fallback * 1.2;
+            long forecastHour = c.lastHour() + h + 1;
+
+            // Build prediction features for this time step
+            ForecastFeatures.fill(evolvedLoad, evolvedPv, evolvedTemp, forecastHour, features);
+
+            // Stream the tree outputs into the quantile sketch
+            sketch.reset();
+            if (busy == null) {
+                for (int t = 0; t < nTrees; t++) {
+                    sketch.add(forest.predict(t, features));
+                }
+            } else {
+                new TreeSlice(forest, features, treeOut, 0, nTrees, busy).invoke();
+                for (int t = 0; t < nTrees; t++) {
+                    sketch.add(treeOut[t]);
+                }
+            }
+            for (int j = 0; j < levels.length; j++) {
+                q[j][h] = Math.max(0, sketch.get(j));
             }
+
+            // Update evolved state for next iteration
+            updateEvolvedState(c, evolvedLoad, evolvedPv, evolvedTemp,
+                    q[median][h], isLoadModel, ForecastFeatures.hourOfDay(forecastHour));
         }
 
-        return new double[][] { q05, q50, q95 };
+        return q;
     }
 
-    /**
-     * Builds prediction features for a specific forecast step
-     */
-    private double[] buildPredictionFeatures(double[] evolvedLoad, double[] evolvedPv,
-                                             double[] evolvedTemp, LocalDateTime time, int step) {
-        int n = evolvedLoad.length;
-
-        // Temporal features
-        int hour = time.getHour();
-        int dayOfWeek = time.getDayOfWeek().getValue() - 1;
-        int month = time.getMonthValue() - 1;
-
-        double hourSin = Math.sin(2 * Math.PI * hour / 24.0);
-        double hourCos = Math.cos(2 * Math.PI * hour / 24.0);
-        double dowSin = Math.sin(2 * Math.PI * dayOfWeek / 7.0);
-        double dowCos = Math.cos(2 * Math.PI * dayOfWeek / 7.0);
-        double monthSin = Math.sin(2 * Math.PI * month / 12.0);
-        double monthCos = Math.cos(2 * Math.PI * month / 12.0);
-        double isWeekend = (dayOfWeek >= 5) ? 1.0 : 0.0;
-
-        // Lag features
-        double lag1Load = evolvedLoad[n - 1];
-        double lag2Load = (n > 1) ? evolvedLoad[n - 2] : evolvedLoad[n - 1];
-        double lag1Pv = evolvedPv[n - 1];
-        double lag2Pv = (n > 1) ? evolvedPv[n - 2] : evolvedPv[n - 1];
-
-        // Moving averages and trends
-        double loadMA3 = Arrays.stream(evolvedLoad).skip(Math.max(0, n - 3)).average().orElse(lag1Load);
-        double pvMA3 = Arrays.stream(evolvedPv).skip(Math.max(0, n - 3)).average().orElse(lag1Pv);
-        double loadTrend = computeSimpleTrend(evolvedLoad);
-        double pvTrend = computeSimpleTrend(evolvedPv);
-
-        // Temperature features with evolution
-        double tempCurrent = evolvedTemp[n - 1];
-        double tempLag1 = (n > 1) ? evolvedTemp[n - 2] : tempCurrent;
-        double tempMA = Arrays.stream(evolvedTemp).skip(Math.max(0, n - 3)).average().orElse(tempCurrent);
-        double tempDeviation = tempCurrent - tempMA;
-
-        return new double[] {
-                lag1Load, lag2Load, lag1Pv, lag2Pv,
-                loadMA3, pvMA3, loadTrend, pvTrend,
-                tempCurrent, tempLag1, tempDeviation, tempMA,
-                hourSin, hourCos, dowSin, dowCos, monthSin, monthCos, isWeekend
-        };
+    /** Evaluates a range of trees, splitting it in halves down to {@link #TREE_SLICE} trees. */
+    private static final class TreeSlice extends RecursiveAction {
+        private final CompiledForest forest;
+        private final double[] x, out;
+        private final int from, to;
+        private final LongAdder busy;
+
+        TreeSlice(CompiledForest forest, double[] x, double[] out, int from, int to,
+                  LongAdder busy) {
+            this.forest = forest;
+            this.x = x;
+            this.out = out;
+            this.from = from;
+            this.to = to;
+            this.busy = busy;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= TREE_SLICE) {
+                long start = System.nanoTime();
+                forest.predictRange(x, out, from, to);
+                busy.add(System.nanoTime() - start);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new TreeSlice(forest, x, out, from, mid, busy),
+                    new TreeSlice(forest, x, out, mid, to, busy));
+        }
     }
 
     /**
      * Updates evolved state variables for multi-step prediction
      */
-    private void updateEvolvedState(double[] evolvedLoad, double[] evolvedPv, double[] evolvedTemp,
-                                    double prediction, boolean isLoadModel, int step, LocalDateTime time) {
+    private void updateEvolvedState(Context c,
+                                    double[] evolvedLoad, double[] evolvedPv, double[] evolvedTemp,
+                                    double prediction, boolean isLoadModel, int hour) {
         // Shift arrays and add new predictions
         System.arraycopy(evolvedLoad, 1, evolvedLoad, 0, evolvedLoad.length - 1);
         System.arraycopy(evolvedPv, 1, evolvedPv, 0, evolvedPv.length - 1);
@@ -337,17 +429,17 @@ public final class ProbabilisticForecaster {
         if (isLoadModel) {
             evolvedLoad[evolvedLoad.length - 1] = prediction;
             // PV evolution based on time of day and season
-            evolvedPv[evolvedPv.length - 1] = evolutePvEstimate(time, step);
+            evolvedPv[evolvedPv.length - 1] = evolutePvEstimate(c.recentPv(), hour);
         } else {
             evolvedPv[evolvedPv.length - 1] = prediction;
             // Load evolution with daily patterns
-            evolvedLoad[evolvedLoad.length - 1] = evoluteLoadEstimate(time, step);
+            evolvedLoad[evolvedLoad.length - 1] = evoluteLoadEstimate(c.recentLoad(), hour);
         }
 
         // Simple temperature persistence with seasonal adjustment
         double tempTrend = (evolvedTemp.length > 1) ?
                 (evolvedTemp[evolvedTemp.length - 1] - evolvedTemp[evolvedTemp.length - 2]) : 0.0;
-        evolvedTemp[evolvedTemp.length - 1] = baselineTemp + tempTrend * 0.5;
+        evolvedTemp[evolvedTemp.length - 1] = c.baselineTemp() + tempTrend * 0.5;
     }
 
     // Helper methods for data processing
@@ -373,35 +465,8 @@ public final class ProbabilisticForecaster {
         return Math.sqrt(variance) / Math.abs(mean);
     }
 
-    private double[] computeMovingAverages(double[] data, int window) {
-        double[] ma = new double[data.length];
-        for (int i = 0; i < data.length; i++) {
-            int start = Math.max(0, i - window + 1);
-            ma[i] = Arrays.stream(data, start, i + 1).average().orElse(data[i]);
-        }
-        return ma;
-    }
-
-    private double[] computeTrend(double[] data, int window) {
-        double[] trend = new double[data.length];
-        for (int i = 0; i < data.length; i++) {
-            if (i < window) {
-                trend[i] = 0.0;
-            } else {
-                trend[i] = data[i] - data[i - window];
-            }
-        }
-        return trend;
-    }
-
-    private double computeSimpleTrend(double[] data) {
-        if (data.length < 2) return 0.0;
-        return data[data.length - 1] - data[data.length - 2];
-    }
-
-    private double evolutePvEstimate(LocalDateTime time, int step) {
+    private double evolutePvEstimate(double[] recentPv, int hour) {
         // Simple solar irradiance model based on time of day
-        int hour = time.getHour();
         double solarFactor = 0.0;
         if (hour >= 6 && hour <= 18) {
             double hourFromNoon = Math.abs(hour - 12);
@@ -411,9 +476,8 @@ public final class ProbabilisticForecaster {
         return baseGeneration * 0.7 + solarFactor * baseGeneration * 0.3;
     }
 
-    private double evoluteLoadEstimate(LocalDateTime time, int step) {
+    private double evoluteLoadEstimate(double[] recentLoad, int hour) {
         // Simple load pattern based on time of day
-        int hour = time.getHour();
         double loadFactor = 1.0;
         if (hour >= 7 && hour <= 9) loadFactor = 1.2;      // Morning peak
         else if (hour >= 18 && hour <= 21) loadFactor = 1.3; // Evening peak
@@ -423,63 +487,6 @@ public final class ProbabilisticForecaster {
         return baseLoad * loadFactor;
     }
 
-    private double[] getTreePredictions(RandomForest model, double[] features) {
-        RegressionTree[] trees = model.trees();
-        double[] predictions = new double[trees.length];
-
-        // Create a proper Tuple for prediction - this is a simplified approach
-        // In practice, you'd need to match the exact schema used during training
-        for (int i = 0; i < trees.length; i++) {
-            try {
-                // This is a simplified prediction - you may need to adapt based on your exact SMile usage
-                predictions[i] = Math.max(0, trees[i].predict(createTupleFromFeatures(features)));
-            } catch (Exception e) {
-                predictions[i] = 0.0;
-            }
-        }
-        return predictions;
-    }
-
-    private Tuple createTupleFromFeatures(double[] features) {
-        // This is a placeholder - you'll need to create a proper Tuple
-        // matching your training data schema
-        Object[] values = new Object[features.length];
-        for (int i = 0; i < features.length; i++) {
-            values[i] = features[i];
-        }
-        // You'll need to provide the correct schema here
-        return Tuple.of(values, null); // Simplified - replace with actual schema
-    }
-
-    private double[] calculateRobustQuantiles(double[] predictions) {
-        if (predictions.length == 0) return new double[]{0, 0, 0};
-
-        Arrays.sort(predictions);
-        int n = predictions.length;
-
-        // Handle edge cases
-        if (n == 1) {
-            double val = predictions[0];
-            return new double[]{val * 0.9, val, val * 1.1};
-        }
-
-        try {
-            EmpiricalDistribution dist = new EmpiricalDistribution(predictions);
-            return new double[]{
-                    dist.quantile(0.05),
-                    dist.quantile(0.50),
-                    dist.quantile(0.95)
-            };
-        } catch (Exception e) {
-            // Fallback quantile calculation
-            return new double[]{
-                    predictions[Math.max(0, (int)(n * 0.05))],
-                    predictions[n / 2],
-                    predictions[Math.min(n - 1, (int)(n * 0.95))]
-            };
-        }
-    }
-
     private double[][] createFallbackPrediction(double lastValue) {
         double[][] result = new double[3][H_pred];
         for (int h = 0; h < H_pred; h++) {
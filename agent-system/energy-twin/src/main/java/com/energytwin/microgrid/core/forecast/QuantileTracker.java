@@ -0,0 +1,62 @@
+package com.energytwin.microgrid.core.forecast;
+
+/**
+ * Online estimate of fixed quantiles of a stream (here: forecast residuals) by stochastic
+ * gradient steps on the pinball loss, {@code q += rate * scale * (tau - 1[x < q])}. The step is
+ * scaled by a running mean of {@code |x|}, so the tracker adapts to the magnitude of the stream.
+ * Each sample costs O(number of quantiles).
+ */
+final class QuantileTracker {
+
+  private static final double SCALE_DECAY = 0.02;
+
+  private final double[] taus;
+  private final double[] q;
+  private final double rate;
+  private double scale;
+  private long samples;
+
+  /**
+   * @param taus quantile levels in increasing order
+   * @param rate step size relative to the running scale
+   */
+  QuantileTracker(double[] taus, double rate) {
+    this.taus = taus.clone();
+    this.q = new double[taus.length];
+    this.rate = rate;
+  }
+
+  void add(double x) {
+    scale = nextScale(scale, samples, x);
+    samples++;
+    step(q, 0, taus, rate * scale, x);
+  }
+
+  /** Running mean of {@code |x|} after one more sample; {@code samples} counts the earlier ones. */
+  static double nextScale(double scale, long samples, double x) {
+    double abs = Math.abs(x);
+    return samples == 0 ? abs : (1 - SCALE_DECAY) * scale + SCALE_DECAY * abs;
+  }
+
+  /**
+   * One pinball-loss step on the quantiles stored at {@code q[off..off+taus.length)}, for trackers
+   * kept in flat arrays.
+   */
+  static void step(double[] q, int off, double[] taus, double step, double x) {
+    step = Math.max(step, 1e-9);
+    for (int i = 0; i < taus.length; i++) {
+      int k = off + i;
+      q[k] += step * (taus[i] - (x < q[k] ? 1.0 : 0.0));
+      if (i > 0 && q[k] < q[k - 1]) q[k] = q[k - 1];   // keep the levels ordered
+    }
+  }
+
+  /** Current estimate of the {@code i}-th quantile level. */
+  double get(int i) {
+    return q[i];
+  }
+
+  long samples() {
+    return samples;
+  }
+}
@@ -0,0 +1,65 @@
+package com.energytwin.microgrid.core.forecast;
+
+/**
+ * Recursive least squares on the lag, moving-average, temperature and calendar features of the
+ * random forest (plus an intercept), one linear model per target with exponential forgetting.
+ * Each sample costs O(d²) for d = 20 features, independent of the history length.
+ */
+public final class RlsForecaster extends OnlineForecaster {
+
+  private static final int D = ForecastFeatures.COUNT + 1;
+  private static final double LAMBDA = 0.999;       // forgetting factor
+  private static final double P0 = 100.0;           // initial inverse-covariance diagonal
+
+  private final double[][] w = new double[2][D];
+  private final double[][] p = new double[2][D * D];
+  private final double[] x = new double[D];
+  private final double[] px = new double[D];
+
+  public RlsForecaster(int horizon) {
+    super(horizon, 2 * D);
+    for (double[] m : p) {
+      for (int i = 0; i < D; i++) m[i * D + i] = P0;
+    }
+  }
+
+  @Override
+  protected void prepare(double[] load, double[] pv, double[] temp, long hour) {
+    ForecastFeatures.fill(load, pv, temp, hour, x);
+    x[D - 1] = 1.0;
+  }
+
+  @Override
+  protected double point(int target) {
+    double[] wt = w[target];
+    double y = 0.0;
+    for (int i = 0; i < D; i++) y += wt[i] * x[i];
+    return y;
+  }
+
+  @Override
+  protected void learn(int target, double y) {
+    double[] wt = w[target];
+    double[] pt = p[target];
+
+    double denom = LAMBDA;
+    for (int i = 0; i < D; i++) {
+      double s = 0.0;
+      for (int j = 0; j < D; j++) s += pt[i * D + j] * x[j];
+      px[i] = s;
+      denom += x[i] * s;
+    }
+    double err = y - point(target);
+    for (int i = 0; i < D; i++) {
+      wt[i] += px[i] / denom * err;
+    }
+    /* P = (P - P x xᵀ P / denom) / λ, kept symmetric */
+    for (int i = 0; i < D; i++) {
+      for (int j = i; j < D; j++) {
+        double v = (pt[i * D + j] - px[i] * px[j] / denom) / LAMBDA;
+        pt[i * D + j] = v;
+        pt[j * D + i] = v;
+      }
+    }
+  }
+}
@@ -0,0 +1,44 @@
+package com.energytwin.microgrid.core.forecast;
+
+/**
+ * Additive seasonal exponential smoothing with a daily (24 h) season, one level and one season
+ * profile per target. The forecast for hour {@code t} is {@code level + season[hour(t)]}; each
+ * sample updates the level and its hour's seasonal term in O(1).
+ */
+public final class SeasonalForecaster extends OnlineForecaster {
+
+  private static final int PERIOD = 24;
+  private static final double ALPHA = 0.1;   // level smoothing
+  private static final double GAMMA = 0.2;   // seasonal smoothing
+
+  private final double[] level = new double[2];
+  private final double[][] season = new double[2][PERIOD];
+  private final boolean[] initialised = new boolean[2];
+  private int slot;
+
+  public SeasonalForecaster(int horizon) {
+    super(horizon, PERIOD);
+  }
+
+  @Override
+  protected void prepare(double[] load, double[] pv, double[] temp, long hour) {
+    slot = ForecastFeatures.hourOfDay(hour);
+  }
+
+  @Override
+  protected double point(int target) {
+    return level[target] + season[target][slot];
+  }
+
+  @Override
+  protected void learn(int target, double y) {
+    if (!initialised[target]) {
+      level[target] = y;
+      initialised[target] = true;
+      return;
+    }
+    double[] s = season[target];
+    level[target] = ALPHA * (y - s[slot]) + (1 - ALPHA) * level[target];
+    s[slot] = GAMMA * (y - level[target]) + (1 - GAMMA) * s[slot];
+  }
+}
@@ -1,32 +1,79 @@
 package com.energytwin.microgrid.core.history;
 
+import com.energytwin.microgrid.core.forecast.ForecastFeatures;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
 /**
  * Ring–buffer that stores the last <code>len</code> ticks of four time-series:
  * load [kW], pv [kW], ambient temperature [°C] and battery SoC [kWh].
  * All getters return the series in chronological order
  * (oldest → newest).
+ *
+ * <p>Alongside the raw series it keeps the forecasting features of every sample
+ * (see {@link ForecastFeatures}): lags, MA3, trend, temperature deviation and
+ * calendar encoding, computed once when the sample is pushed from the samples
+ * before it. A sample's features therefore hold only what was known before it,
+ * exactly like the features of a forecast step.
  */
 public final class HistoryBuffer {
 
+    private static final int CONTEXT = 3;      // samples the features look back
+
     private final int len;
     private final double[] load, pv, irr, temp, soc;
+    private final double[][] features;         // [feature][ring slot]
+    private final double[] row = new double[ForecastFeatures.COUNT];
+    private final double[] ctxLoad = new double[CONTEXT];
+    private final double[] ctxPv = new double[CONTEXT];
+    private final double[] ctxTemp = new double[CONTEXT];
     private int head = 0;          // next cell to overwrite
     private int count = 0;
+    private long pushed = 0;
+    private long nextHour;         // hour index of the next sample
 
+    /** Starts the calendar at the current wall-clock hour. */
     public HistoryBuffer(int len) {
+        this(len, LocalDateTime.now().toEpochSecond(ZoneOffset.UTC) / 3600);
+    }
+
+    /** @param startHour hour index (hours since the epoch) of the first sample */
+    public HistoryBuffer(int len, long startHour) {
         this.len = len;
+        this.nextHour = startHour;
         load = new double[len];  pv  = new double[len];
         irr  = new double[len];  temp = new double[len];
         soc  = new double[len];
+        features = new double[ForecastFeatures.COUNT][len];
     }
 
-    /** push newest sample (kW, kW, °C, kWh) */
+    /** push newest sample (kW, kW, °C, kWh), one hour after the previous one */
     public void push(double l,double p,double g,double t,double s) {
+        push(l, p, g, t, s, nextHour);
+    }
+
+    /** push newest sample for the given hour index; later samples follow on from it */
+    public void push(double l,double p,double g,double t,double s,long hourIndex) {
+        if (pushed == 0) {             // no past yet: the sample is its own context
+            Arrays.fill(ctxLoad, l);
+            Arrays.fill(ctxPv, p);
+            Arrays.fill(ctxTemp, t);
+        }
+        ForecastFeatures.fill(ctxLoad, ctxPv, ctxTemp, hourIndex, row);
+        for (int k = 0; k < row.length; k++) features[k][head] = row[k];
+        ForecastFeatures.shift(ctxLoad, l);
+        ForecastFeatures.shift(ctxPv, p);
+        ForecastFeatures.shift(ctxTemp, t);
+
         load[head]=l;  pv[head]=p;  irr[head]=g;  temp[head]=t; soc[head]=s;
         head = (head+1)%len;  if(count<len) count++;
+        pushed++;
+        nextHour = hourIndex + 1;
     }
 
     public int size() { return count; }
+    public int capacity() { return len; }
     public boolean isFull() { return count == len; }
 
     public double[] getLoad() { return snapshot(load); }
@@ -38,6 +85,34 @@ public final class HistoryBuffer {
     public double getLoadLast() { return load[head]; }
     public double getPvLast() { return pv[head]; }
 
+    /** Hour index of the newest sample. */
+    public long getLastHour() { return nextHour - 1; }
+
+    /** One feature column, in the order of {@link ForecastFeatures#NAMES}. */
+    public double[] getFeature(int k) { return snapshot(features[k]); }
+
+    /** All feature columns, {@code [feature][sample]}. */
+    public double[][] getFeatures() {
+        double[][] out = new double[features.length][];
+        for (int k = 0; k < features.length; k++) out[k] = snapshot(features[k]);
+        return out;
+    }
+
+    /** Copy of the current window for fitting a forecaster. */
+    public Window window() {
+        return new Window(getLoad(), getPv(), getTemp(), getFeatures(), getLastHour());
+    }
+
+    /**
+     * Raw series and feature columns of one history window, oldest to newest.
+     *
+     * @param lastHour hour index of the newest sample
+     */
+    public record Window(double[] load, double[] pv, double[] temp,
+                         double[][] features, long lastHour) {
+        public int size() { return load.length; }
+    }
+
     /* ---------- helpers ---------- */
     private double[] snapshot(double[] a){
         double[] out = new double[count];
@@ -0,0 +1,109 @@
+package com.energytwin.microgrid.core.planner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Actions indexed by the simulation tick they are due at.
+ *
+ * <p>A ring of per-tick buckets, addressed by {@code tick mod capacity}. {@link #due} returns the
+ * whole bucket of a tick in O(1). Every bucket is stamped with its tick and the epoch it was filled
+ * in. {@link #cancel} only advances the epoch, so it is O(1) whatever the plan size; stale buckets
+ * are cleared when they are next written. The ring doubles when a plan reaches further ahead than
+ * its capacity. Not thread-safe.
+ */
+public final class ActionSchedule {
+
+    private List<Action>[] buckets;
+    private long[] bucketTick;
+    private long[] bucketEpoch;
+    private long epoch;
+    private long cursor = Long.MIN_VALUE;       // first tick not yet handed out
+    private int size;                           // actions in the current epoch not yet due
+
+    /** @param capacity initial number of ticks the ring spans, e.g. the planning horizon */
+    public ActionSchedule(int capacity){
+        allocate(Math.max(1, capacity));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void allocate(int capacity){
+        buckets = new List[capacity];
+        bucketTick = new long[capacity];
+        bucketEpoch = new long[capacity];
+        for (int i = 0; i < capacity; i++){
+            buckets[i] = new ArrayList<>();
+            bucketEpoch[i] = -1;
+        }
+    }
+
+    /**
+     * Replaces the schedule with {@code plan}; an action with tick offset {@code k} is due at
+     * tick {@code startTick + k}. Actions for ticks already handed out are dropped.
+     */
+    public void replace(List<Action> plan, long startTick){
+        cancel();
+        long base = Math.max(cursor, startTick);
+        for (Action a : plan){
+            long tick = startTick + a.tickOffset();
+            if (tick < base) continue;
+            if (tick - base >= buckets.length) grow(tick - base + 1);
+            int i = slot(tick);
+            if (bucketEpoch[i] != epoch || bucketTick[i] != tick){
+                buckets[i].clear();
+                bucketEpoch[i] = epoch;
+                bucketTick[i] = tick;
+            }
+            buckets[i].add(a);
+            size++;
+        }
+    }
+
+    /**
+     * The actions due at {@code tick}, each returned once; ticks are expected in increasing order.
+     * The list is owned by the schedule and valid until the next {@link #replace}.
+     */
+    public List<Action> due(long tick){
+        cursor = tick + 1;
+        int i = slot(tick);
+        if (bucketEpoch[i] != epoch || bucketTick[i] != tick) return List.of();
+        bucketEpoch[i] = -1;                    // handed out
+        size -= buckets[i].size();
+        return buckets[i];
+    }
+
+    /** Drops every pending action in O(1). */
+    public void cancel(){
+        epoch++;
+        size = 0;
+    }
+
+    public boolean isEmpty(){
+        return size == 0;
+    }
+
+    /** Pending actions. */
+    public int size(){
+        return size;
+    }
+
+    private int slot(long tick){
+        return (int) Math.floorMod(tick, (long) buckets.length);
+    }
+
+    /** Re-buckets the pending actions into a ring spanning at least {@code span} ticks. */
+    private void grow(long span){
+        List<Action>[] old = buckets;
+        long[] oldTick = bucketTick, oldEpoch = bucketEpoch;
+        int capacity = old.length;
+        while (capacity < span) capacity *= 2;
+        allocate(capacity);
+        for (int j = 0; j < old.length; j++){
+            if (oldEpoch[j] != epoch) continue;
+            int i = slot(oldTick[j]);
+            buckets[i] = old[j];
+            bucketTick[i] = oldTick[j];
+            bucketEpoch[i] = epoch;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.energytwin.microgrid.core.planner;
+
+import com.energytwin.microgrid.core.aggregator.AggregatorMetaStore;
+import com.energytwin.microgrid.core.scenario.Scenario;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs a {@link Planner} off the agent thread with a wall-clock budget per replan.
+ *
+ * <p>The planner lives on one dedicated thread and is (re)built there when the battery topology
+ * changes. {@link #plan} waits at most the budget for it. If the budget runs out, or the planner
+ * returns no plan, the caller gets a {@link GreedyPlanner} dispatch instead, so a plan is always
+ * ready. A solve that overran keeps going; {@link #poll} hands its result over once it finishes,
+ * and no new solve is started while it runs. The caller's tick latency is therefore bounded by
+ * the budget plus the greedy dispatch. Not thread-safe; call from one thread.
+ */
+public final class AsyncPlanner {
+
+    /** Outcome of a replan. */
+    public enum Status {
+        OPTIMAL,    // the planner's own plan
+        FAILED,     // the solver found no plan or the planner threw; greedy fallback
+        TIMEOUT,    // the budget ran out; greedy fallback
+        BUSY        // an overrunning solve is still in progress; greedy fallback
+    }
+
+    /**
+     * @param actions actions by tick offset; offset 0 is the tick after {@code tick}
+     * @param solveMs wall time of the planner's solve, or of the wait for it on a fallback
+     * @param tick simulation tick the plan was requested at
+     * @param note planner diagnostics ({@link Planner#diagnostics()}), or empty
+     */
+    public record Result(List<Action> actions, Status status, double solveMs, long tick,
+                         String note) {
+
+        public boolean fallback(){
+            return status != Status.OPTIMAL;
+        }
+    }
+
+    private final String kind;
+    private final Planner.Options opts;
+    private final ExecutorService executor;
+
+    private Planner planner;                    // planning thread only
+    private GreedyPlanner greedy;               // caller thread only
+    private Future<Result> pending;             // solve that overran its budget
+    private long fallbacks;
+
+    /**
+     * @param kind planner name, see {@link Planner#create}
+     * @param threadName name of the planning thread
+     */
+    public AsyncPlanner(String kind, Planner.Options opts, String threadName){
+        this.kind = kind;
+        this.opts = opts;
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, threadName);
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Plans from tick {@code tick}, waiting at most {@code budgetMs} for the planner.
+     *
+     * @param scenarios forecast scenarios; must not be modified afterwards
+     * @param socById current SoC (kWh) of each battery; must not be modified afterwards
+     */
+    public Result plan(long tick, int horizon, Map<String, AggregatorMetaStore.BatteryMeta> bats,
+                       double extCapKw, List<Scenario> scenarios, Map<String, Double> socById,
+                       long budgetMs){
+        Map<String, AggregatorMetaStore.BatteryMeta> fleet = new TreeMap<>(bats);
+        if (pending != null && !pending.isDone())
+            return fallback(Status.BUSY, Double.NaN, tick, horizon, fleet, extCapKw, scenarios,
+                    socById);
+
+        long start = System.nanoTime();
+        Future<Result> f = executor.submit(() -> solve(tick, horizon, fleet, extCapKw,
+                scenarios, socById));
+        pending = null;
+        Status status;
+        try {
+            Result r = f.get(Math.max(0, budgetMs), TimeUnit.MILLISECONDS);
+            if (!r.fallback()) return r;
+            status = Status.FAILED;
+        } catch (TimeoutException e) {
+            pending = f;
+            status = Status.TIMEOUT;
+        } catch (ExecutionException | CancellationException e) {
+            status = Status.FAILED;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pending = f;
+            status = Status.TIMEOUT;
+        }
+        return fallback(status, (System.nanoTime() - start) / 1e6, tick, horizon, fleet,
+                extCapKw, scenarios, socById);
+    }
+
+    /** The planner's result of an overrunning solve once it has finished, at most once. */
+    public Result poll(){
+        if (pending == null || !pending.isDone()) return null;
+        Future<Result> f = pending;
+        pending = null;
+        try {
+            Result r = f.get();                 // done, does not block
+            return r.fallback() ? null : r;
+        } catch (ExecutionException | CancellationException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    /** Replans answered by the greedy dispatch so far. */
+    public long getFallbacks(){
+        return fallbacks;
+    }
+
+    /** Releases the planner once the running solve, if any, has finished. */
+    public void shutdown(){
+        executor.execute(() -> {
+            if (planner != null) planner.release();
+            planner = null;
+        });
+        executor.shutdown();
+    }
+
+    /* runs on the planning thread */
+    private Result solve(long tick, int horizon, Map<String, AggregatorMetaStore.BatteryMeta> bats,
+                         double extCapKw, List<Scenario> scenarios, Map<String, Double> socById){
+        if (planner == null || !planner.matches(horizon, bats, extCapKw)){
+            if (planner != null) planner.release();        // battery topology changed
+            planner = Planner.create(kind, horizon, bats, extCapKw, opts);
+        }
+        long start = System.nanoTime();
+        List<Action> actions = planner.plan(tick + 1, scenarios, socById);   // from the next tick
+        double ms = (System.nanoTime() - start) / 1e6;
+        return new Result(actions, actions == null ? Status.FAILED : Status.OPTIMAL, ms, tick,
+                planner.diagnostics());
+    }
+
+    private Result fallback(Status status, double solveMs, long tick, int horizon,
+                            Map<String, AggregatorMetaStore.BatteryMeta> bats, double extCapKw,
+                            List<Scenario> scenarios, Map<String, Double> socById){
+        if (greedy == null || !greedy.matches(horizon, bats, extCapKw))
+            greedy = new GreedyPlanner(horizon, bats, extCapKw);
+        fallbacks++;
+        return new Result(greedy.plan(scenarios, socById), status, solveMs, tick, "");
+    }
+}
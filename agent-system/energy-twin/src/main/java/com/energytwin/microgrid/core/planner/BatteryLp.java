@@ -0,0 +1,257 @@
+package com.energytwin.microgrid.core.planner;
+
+import com.energytwin.microgrid.core.aggregator.AggregatorMetaStore;
+import com.google.ortools.Loader;
+import com.google.ortools.linearsolver.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Persistent GLOP model of the battery fleet over one horizon: charge, discharge and SoC per
+ * battery and step, external import (+) / spill (–) per step, SoC dynamics and power balance.
+ *
+ * <p>Steps may be blocks of several ticks with constant power (horizon blocking): the SoC moves
+ * by the block's energy, the balance holds for the block's mean net load, and costs are per
+ * kWh. Every row touches one block and at most two consecutive SoC variables, so the constraint
+ * matrix is banded with O(blocks × batteries) nonzeros.
+ *
+ * <p>The model is built once; callers only change the balance right-hand sides ({@link #setNet}),
+ * the initial SoC ({@link #setSoc}) and, for progressive hedging, the proximal terms on the
+ * first-stage variables. Re-solves start from the previous basis. Not thread-safe; distinct
+ * instances may be solved concurrently.
+ */
+final class BatteryLp {
+
+    static { Loader.loadNativeLibraries(); }    // OR-Tools JNI, once per JVM
+
+    static final double LOSS_COST = 0.01;       // per kW charged or discharged
+    static final double IMPORT_COST = 1.0;
+    static final double SLACK_COST = 1000.0;    // per kW of unserved load or curtailed PV
+
+    final int H;                                // ticks
+    final int[] len, start;                     // per block: ticks, first tick
+    final Map<String, AggregatorMetaStore.BatteryMeta> bats;   // sorted copy
+    final String[] ids;
+    final double extCapKw;
+
+    private final MPSolver solver;
+    private final MPSolverParameters params = new MPSolverParameters();
+    final MPVariable[][] chg, dsg, soc;         // [battery][block]
+    final MPVariable[] ext;
+    private final MPConstraint[] bal;
+
+    // progressive hedging: x - up + down = xbar on the first-stage variables
+    private MPVariable[] first, up, down;
+    private MPConstraint[] consensus;
+    private double[] firstCost;
+
+    /** One step per tick; see {@link #BatteryLp(int[], Map, double, boolean)}. */
+    BatteryLp(int horizon, Map<String, AggregatorMetaStore.BatteryMeta> bats, double extCapKw,
+              boolean slack){
+        this(blocks(horizon, horizon, 1), bats, extCapKw, slack);
+    }
+
+    /**
+     * @param blockLengths ticks per step, in order; they sum to the horizon
+     * @param slack add penalised unserved-load and curtailment variables so that every
+     *     forecast is feasible
+     */
+    BatteryLp(int[] blockLengths, Map<String, AggregatorMetaStore.BatteryMeta> bats,
+              double extCapKw, boolean slack){
+        this.len = blockLengths.clone();
+        this.start = new int[len.length];
+        int t = 0;
+        for (int j = 0; j < len.length; j++){ start[j] = t; t += len[j]; }
+        this.H = t; this.bats = new TreeMap<>(bats); this.extCapKw = extCapKw;
+        this.ids = this.bats.keySet().toArray(new String[0]);
+
+        solver = MPSolver.createSolver("GLOP");  // LP
+        if (solver==null) throw new IllegalStateException("No LP solver");
+        params.setIntegerParam(MPSolverParameters.IntegerParam.INCREMENTALITY,
+                MPSolverParameters.IncrementalityValues.INCREMENTALITY_ON.swigValue());
+
+        /* ---- variables -------------------------------------------------- */
+        int n = ids.length;
+        int nb = len.length;
+        chg = new MPVariable[n][]; dsg = new MPVariable[n][]; soc = new MPVariable[n][];
+        for (int b = 0; b < n; b++){
+            var m = this.bats.get(ids[b]);
+
+            chg[b] = solver.makeNumVarArray(nb, 0, m.cRate()*m.capacity());
+            dsg[b] = solver.makeNumVarArray(nb, 0, m.cRate()*m.capacity());
+            soc[b] = solver.makeNumVarArray(nb+1, 0, m.capacity());
+            // SoC dynamics over each block
+            for(int k=0;k<nb;k++){
+                double ηc = m.etaC(), ηd = m.etaD();
+                MPConstraint c = solver.makeConstraint(0,0);
+                c.setCoefficient(soc[b][k+1], 1);
+                c.setCoefficient(soc[b][k], -1);
+                c.setCoefficient(chg[b][k], -ηc * len[k]);
+                c.setCoefficient(dsg[b][k], +len[k]/ηd);
+            }
+        }
+
+        // external import (+) / spill (–)
+        ext = solver.makeNumVarArray(nb, -extCapKw, extCapKw);
+
+        /* ---- power balance; right-hand sides are set per replan ---------- */
+        MPObjective obj = solver.objective();
+        bal = new MPConstraint[nb];
+        for(int k=0;k<nb;k++){
+            // import + discharge - charge (+ unserved - curtailed) = load - pv
+            bal[k] = solver.makeConstraint(0,0);
+            bal[k].setCoefficient(ext[k], 1);
+            for (int b = 0; b < n; b++){
+                bal[k].setCoefficient(chg[b][k], -1);
+                bal[k].setCoefficient(dsg[b][k], +1);
+            }
+            if (slack){
+                MPVariable unserved = solver.makeNumVar(0, Double.POSITIVE_INFINITY, "");
+                MPVariable curtailed = solver.makeNumVar(0, Double.POSITIVE_INFINITY, "");
+                bal[k].setCoefficient(unserved, 1);
+                bal[k].setCoefficient(curtailed, -1);
+                obj.setCoefficient(unserved, SLACK_COST * len[k]);
+                obj.setCoefficient(curtailed, SLACK_COST * len[k]);
+            }
+        }
+
+        /* ---- objective: minimise energy loss ----------------------------- */
+        for(int k=0;k<nb;k++){
+            obj.setCoefficient(ext[k], IMPORT_COST * len[k]);
+            for (int b = 0; b < n; b++){
+                obj.setCoefficient(chg[b][k], LOSS_COST * len[k]); // charge loss proxy
+                obj.setCoefficient(dsg[b][k], LOSS_COST * len[k]); // discharge loss
+            }
+        }
+        obj.setMinimization();
+    }
+
+    /** True if this model was built for the given topology. */
+    boolean matches(int horizon, Map<String, AggregatorMetaStore.BatteryMeta> bats,
+                    double extCapKw){
+        return H == horizon && extCapKw == this.extCapKw && this.bats.equals(bats);
+    }
+
+    /** Number of steps (blocks). */
+    int steps(){
+        return len.length;
+    }
+
+    /** Sets the net load {@code load - pv} (kW per tick) every step must balance, block means. */
+    void setNet(double[] loadKw, double[] pvKw){
+        for(int k=0;k<len.length;k++){
+            double net = 0;
+            for (int t = start[k]; t < start[k] + len[k]; t++) net += loadKw[t]-pvKw[t];
+            net /= len[k];
+            bal[k].setBounds(net, net);
+        }
+    }
+
+    /** Fixes each battery's initial SoC (kWh), clamped to capacity; missing ones start empty. */
+    void setSoc(Map<String, Double> socById){
+        for (int b = 0; b < ids.length; b++){
+            double s = Math.min(Math.max(socById.getOrDefault(ids[b], 0.0), 0),
+                    bats.get(ids[b]).capacity());
+            soc[b][0].setBounds(s, s);
+        }
+    }
+
+    /** Solves, warm-started from the previous basis; true if an optimum was found. */
+    boolean solve(){
+        return solver.solve(params) == MPSolver.ResultStatus.OPTIMAL;
+    }
+
+    double objectiveValue(){
+        return solver.objective().value();
+    }
+
+    /** The solution as actions per tick; a block's powers repeat over each of its ticks. */
+    List<Action> actions(){
+        List<Action> actions = new ArrayList<>();
+        for(int k=0;k<len.length;k++){
+            for (int t = start[k]; t < start[k] + len[k]; t++){
+                for (int b = 0; b < ids.length; b++){
+                    double c = chg[b][k].solutionValue();
+                    double d = dsg[b][k].solutionValue();
+                    if (c>1e-3) actions.add(new Action(t,ids[b], +c, 0));
+                    if (d>1e-3) actions.add(new Action(t,ids[b], -d, 0));
+                }
+                double ex = ext[k].solutionValue();
+                if (Math.abs(ex)>1e-3)
+                    actions.add(new Action(t,"External",0,ex));
+            }
+        }
+        return actions;
+    }
+
+    /**
+     * Block lengths for a horizon: {@code fine} single-tick steps, then blocks of
+     * {@code coarse} ticks (the last one possibly shorter).
+     */
+    static int[] blocks(int horizon, int fine, int coarse){
+        int f = Math.min(Math.max(fine, 0), horizon);
+        int c = Math.max(coarse, 1);
+        int rest = horizon - f;
+        int[] out = new int[f + (rest + c - 1) / c];
+        Arrays.fill(out, 0, f, 1);
+        for (int j = f; j < out.length; j++) out[j] = Math.min(c, rest - (j - f) * c);
+        return out;
+    }
+
+    /* ---------- progressive hedging ---------- */
+
+    /** Number of first-stage variables: charge and discharge of every battery, then external. */
+    int firstStageSize(){
+        return 2 * ids.length + 1;
+    }
+
+    /** Adds the proximal terms on the first-stage (step 0) variables; inactive until set. */
+    void addProximal(){
+        if (first != null) return;
+        int n = firstStageSize();
+        first = new MPVariable[n];
+        firstCost = new double[n];
+        for (int b = 0; b < ids.length; b++){
+            first[2*b] = chg[b][0];     firstCost[2*b] = LOSS_COST;
+            first[2*b+1] = dsg[b][0];   firstCost[2*b+1] = LOSS_COST;
+        }
+        first[n-1] = ext[0];            firstCost[n-1] = IMPORT_COST;
+        up = solver.makeNumVarArray(n, 0, Double.POSITIVE_INFINITY);
+        down = solver.makeNumVarArray(n, 0, Double.POSITIVE_INFINITY);
+        consensus = new MPConstraint[n];
+        for (int i = 0; i < n; i++){
+            consensus[i] = solver.makeConstraint(0, 0);
+            consensus[i].setCoefficient(first[i], 1);
+            consensus[i].setCoefficient(up[i], -1);
+            consensus[i].setCoefficient(down[i], 1);
+        }
+        setProximal(new double[n], 0, new double[n]);
+    }
+
+    /**
+     * Adds {@code w·x + rho·|x - xbar|₁} to the objective, for the first-stage variables x.
+     */
+    void setProximal(double[] w, double rho, double[] xbar){
+        MPObjective obj = solver.objective();
+        for (int i = 0; i < first.length; i++){
+            obj.setCoefficient(first[i], firstCost[i] + w[i]);
+            obj.setCoefficient(up[i], rho);
+            obj.setCoefficient(down[i], rho);
+            consensus[i].setBounds(xbar[i], xbar[i]);
+        }
+    }
+
+    /** Solution values of the first-stage variables, in {@link #addProximal} order. */
+    void firstStage(double[] out){
+        for (int i = 0; i < first.length; i++) out[i] = first[i].solutionValue();
+    }
+
+    /** Frees the native model. */
+    void release(){
+        solver.delete();
+    }
+}
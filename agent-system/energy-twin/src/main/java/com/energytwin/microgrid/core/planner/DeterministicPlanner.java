@@ -2,99 +2,118 @@ package com.energytwin.microgrid.core.planner;
 
 import com.energytwin.microgrid.core.aggregator.AggregatorMetaStore;
 import com.energytwin.microgrid.core.scenario.Scenario;
-import com.google.ortools.Loader;
-import com.google.ortools.linearsolver.*;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
-/** LP on the median scenario; returns an Action list. */
-public final class DeterministicPlanner {
+/**
+ * LP on the median scenario; returns an Action list.
+ *
+ * <p>The median is taken per step over the scenarios, so it matches the q50 forecast that the
+ * aggregator compares the measured net power against (the middle branch of the quantile tree, or
+ * the middle of the Monte Carlo draws).
+ *
+ * <p>The LP is built once per battery topology (batteries, horizon, external cap) and kept
+ * between replans. A replan only rewrites the power-balance right-hand sides and the initial
+ * SoC bounds, and GLOP re-solves incrementally from the previous basis. Not thread-safe.
+ */
+public final class DeterministicPlanner implements Planner {
 
-    private final int H;                        // horizon
-    private final Map<String, AggregatorMetaStore.BatteryMeta> bats;
-    private final double extCapKw;
+    private final BatteryLp lp;
 
     public DeterministicPlanner(int horizon,
                                 Map<String,AggregatorMetaStore.BatteryMeta> bats,
                                 double extCapKw){
-        this.H = horizon; this.bats = bats; this.extCapKw = extCapKw;
-        Loader.loadNativeLibraries();          // OR-Tools JNI
+        lp = new BatteryLp(horizon, bats, extCapKw, false);
     }
 
+    @Override
+    public boolean matches(int horizon, Map<String,AggregatorMetaStore.BatteryMeta> bats,
+                           double extCapKw){
+        return lp.matches(horizon, bats, extCapKw);
+    }
+
+    /** Plans on the probability-weighted median of the scenarios, step by step. */
+    @Override
+    public List<Action> plan(List<Scenario> scenarios, Map<String, Double> socById){
+        if (scenarios.isEmpty()) return null;
+        return solve(median(scenarios), socById);
+    }
+
+    /** Plans with the fleet SoC {@code socNow} split equally across the batteries. */
     public List<Action> solve(Scenario median, double socNow){
-        MPSolver solver = MPSolver.createSolver("GLOP");  // LP
-        if (solver==null) throw new IllegalStateException("No LP solver");
+        Map<String, Double> socById = new TreeMap<>();
+        for (String id : lp.ids) socById.put(id, socNow / lp.ids.length);
+        return solve(median, socById);
+    }
 
-        /* ---- variables -------------------------------------------------- */
-        Map<String, MPVariable[]> chg = new java.util.HashMap<>();
-        Map<String, MPVariable[]> dsg = new java.util.HashMap<>();
-        Map<String, MPVariable[]> soc = new java.util.HashMap<>();
+    /**
+     * Plans from each battery's own SoC (kWh); batteries missing from {@code socById} start
+     * empty. Only the balance right-hand sides and the initial SoC change between calls.
+     * Returns null if GLOP finds no optimum.
+     */
+    public List<Action> solve(Scenario median, Map<String, Double> socById){
+        lp.setNet(median.loadKw(), median.pvKw());
+        lp.setSoc(socById);
 
-        for (var e : bats.entrySet()){
-            String id = e.getKey();
-            var m = e.getValue();
+        /* ---- solve, warm-started from the previous basis ------------------ */
+        if (!lp.solve()) return null;
 
-            chg.put(id, solver.makeNumVarArray(H, 0, m.cRate()*m.capacity(), id+"_c"));
-            dsg.put(id, solver.makeNumVarArray(H, 0, m.cRate()*m.capacity(), id+"_d"));
-            soc.put(id, solver.makeNumVarArray(H+1, 0, m.capacity(), id+"_e"));
-            // SoC dynamics
-            for(int k=0;k<H;k++){
-                double ηc = m.etaC(), ηd = m.etaD();
-                MPConstraint c = solver.makeConstraint(0,0,"soc_"+id+"_"+k);
-                c.setCoefficient(soc.get(id)[k+1], 1);
-                c.setCoefficient(soc.get(id)[k], -1);
-                c.setCoefficient(chg.get(id)[k], -ηc);
-                c.setCoefficient(dsg.get(id)[k], +1/ηd);
-            }
-            // initial SoC = socNow split equally (simple)
-            soc.get(id)[0].setBounds(socNow / bats.size(),
-                    socNow / bats.size());
-        }
+        /* ---- translate to Action list ------------------------------------ */
+        return lp.actions();
+    }
 
-        // external import (+) / spill (–)
-        MPVariable[] ext = solver.makeNumVarArray(H, -extCapKw, extCapKw, "Ext");
+    @Override
+    public void release(){
+        lp.release();
+    }
 
-        /* ---- power balance ------------------------------------------------ */
-        for(int k=0;k<H;k++){
-            MPConstraint bal = solver.makeConstraint(0,0,"bal_"+k);
-            bal.setCoefficient(ext[k], 1);
-            bal.setBounds(median.loadKw()[k]-median.pvKw()[k],
-                    median.loadKw()[k]-median.pvKw()[k]);
-            for (var id : bats.keySet()){
-                bal.setCoefficient(chg.get(id)[k], +1);
-                bal.setCoefficient(dsg.get(id)[k], -1);
-            }
+    /** Probability-weighted median load and PV of the scenarios, each step on its own. */
+    static Scenario median(List<Scenario> scenarios){
+        int h = scenarios.get(0).horizon(), s = scenarios.size();
+        double[] load = new double[h], pv = new double[h];
+        double[] w = new double[s], v = new double[s];
+        Integer[] order = new Integer[s];
+        for (int i = 0; i < s; i++) w[i] = scenarios.get(i).prob();
+        for (int k = 0; k < h; k++){
+            for (int i = 0; i < s; i++) v[i] = scenarios.get(i).loadKw()[k];
+            load[k] = weightedMedian(v, w, order);
+            for (int i = 0; i < s; i++) v[i] = scenarios.get(i).pvKw()[k];
+            pv[k] = weightedMedian(v, w, order);
         }
+        return new Scenario(load, pv, 1.0);
+    }
 
-        /* ---- objective: minimise energy loss ----------------------------- */
-        MPObjective obj = solver.objective();
-        for(int k=0;k<H;k++){
-            obj.setCoefficient(ext[k], 1);            // import cost 1
-            for (var id : bats.keySet()){
-                obj.setCoefficient(chg.get(id)[k], 0.01); // charge loss proxy
-                obj.setCoefficient(dsg.get(id)[k], 0.01); // discharge loss
-            }
+    /** Smallest value whose cumulative weight reaches half the total. */
+    private static double weightedMedian(double[] v, double[] w, Integer[] order){
+        double total = 0;
+        for (int i = 0; i < v.length; i++){
+            order[i] = i;
+            total += w[i];
         }
-        obj.setMinimization();
-
-        /* ---- solve ------------------------------------------------------- */
-        if (solver.solve() != MPSolver.ResultStatus.OPTIMAL) return List.of();
+        Arrays.sort(order, (a, b) -> Double.compare(v[a], v[b]));
+        double acc = 0;
+        for (Integer i : order){
+            acc += w[i];
+            if (acc >= total / 2) return v[i];
+        }
+        return v[order[v.length - 1]];
+    }
 
-        /* ---- translate to Action list ------------------------------------ */
-        List<Action> actions = new ArrayList<>();
-        for(int k=0;k<H;k++){
-            for (var id : bats.keySet()){
-                double c = chg.get(id)[k].solutionValue();
-                double d = dsg.get(id)[k].solutionValue();
-                if (c>1e-3) actions.add(new Action(k,id, +c, 0));
-                if (d>1e-3) actions.add(new Action(k,id, -d, 0));
+    /** Probability-weighted mean load and PV of the scenarios. */
+    static Scenario expected(List<Scenario> scenarios){
+        int h = scenarios.get(0).horizon();
+        double[] load = new double[h], pv = new double[h];
+        double total = scenarios.stream().mapToDouble(Scenario::prob).sum();
+        for (Scenario s : scenarios){
+            double w = s.prob() / total;
+            for (int k = 0; k < h; k++){
+                load[k] += w * s.loadKw()[k];
+                pv[k] += w * s.pvKw()[k];
             }
-            double ex = ext[k].solutionValue();
-            if (Math.abs(ex)>1e-3)
-                actions.add(new Action(k,"External",0,ex));
         }
-        return actions;
+        return new Scenario(load, pv, 1.0);
     }
 }
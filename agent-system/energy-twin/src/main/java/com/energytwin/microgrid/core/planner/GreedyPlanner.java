@@ -0,0 +1,95 @@
+package com.energytwin.microgrid.core.planner;
+
+import com.energytwin.microgrid.core.aggregator.AggregatorMetaStore;
+import com.energytwin.microgrid.core.scenario.Scenario;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Rule-based dispatch on the probability-weighted mean scenario, in O(horizon × batteries).
+ *
+ * <p>Tick by tick, a surplus charges the batteries and a shortfall discharges them. Each battery
+ * is limited by its C-rate and by the energy it can take or give, and the one with the most room
+ * goes first. Whatever the batteries cannot absorb is imported or spilled, up to the external
+ * cap. Used as the fallback when an optimising planner misses its deadline.
+ */
+public final class GreedyPlanner implements Planner {
+
+    private final int H;
+    private final Map<String, AggregatorMetaStore.BatteryMeta> bats;
+    private final String[] ids;
+    private final double extCapKw;
+
+    public GreedyPlanner(int horizon, Map<String, AggregatorMetaStore.BatteryMeta> bats,
+                         double extCapKw){
+        this.H = horizon;
+        this.bats = new TreeMap<>(bats);
+        this.ids = this.bats.keySet().toArray(new String[0]);
+        this.extCapKw = extCapKw;
+    }
+
+    @Override
+    public boolean matches(int horizon, Map<String, AggregatorMetaStore.BatteryMeta> bats,
+                           double extCapKw){
+        return H == horizon && extCapKw == this.extCapKw && this.bats.equals(bats);
+    }
+
+    @Override
+    public List<Action> plan(List<Scenario> scenarios, Map<String, Double> socById){
+        if (scenarios.isEmpty()) return List.of();
+        Scenario mean = DeterministicPlanner.expected(scenarios);
+        int n = ids.length;
+        double[] soc = new double[n];
+        for (int b = 0; b < n; b++){
+            double cap = bats.get(ids[b]).capacity();
+            soc[b] = Math.min(Math.max(socById.getOrDefault(ids[b], 0.0), 0), cap);
+        }
+
+        List<Action> actions = new ArrayList<>();
+        double[] kw = new double[n];
+        for (int k = 0; k < H; k++){
+            double rest = mean.pvKw()[k] - mean.loadKw()[k];   // surplus (+) / shortfall (–)
+            for (int left = n; left > 0 && Math.abs(rest) > 1e-3; left--){
+                int best = -1;
+                double room = 0;
+                for (int b = 0; b < n; b++){
+                    if (kw[b] != 0) continue;
+                    double r = rest > 0 ? headroomKw(b, soc[b]) : availableKw(b, soc[b]);
+                    if (r > room){ room = r; best = b; }
+                }
+                if (best < 0) break;
+                var m = bats.get(ids[best]);
+                double p = Math.min(room, Math.abs(rest));
+                kw[best] = rest > 0 ? p : -p;
+                soc[best] += rest > 0 ? p * m.etaC() : -p / m.etaD();
+                rest -= kw[best];
+            }
+            for (int b = 0; b < n; b++){
+                if (Math.abs(kw[b]) > 1e-3) actions.add(new Action(k, ids[b], kw[b], 0));
+                kw[b] = 0;
+            }
+            double ex = Math.max(-extCapKw, Math.min(extCapKw, -rest));
+            if (Math.abs(ex) > 1e-3) actions.add(new Action(k, "External", 0, ex));
+        }
+        return actions;
+    }
+
+    /** kW battery {@code b} can charge for one tick. */
+    private double headroomKw(int b, double soc){
+        var m = bats.get(ids[b]);
+        return Math.min(m.cRate() * m.capacity(), (m.capacity() - soc) / m.etaC());
+    }
+
+    /** kW battery {@code b} can discharge for one tick. */
+    private double availableKw(int b, double soc){
+        var m = bats.get(ids[b]);
+        return Math.min(m.cRate() * m.capacity(), soc * m.etaD());
+    }
+
+    @Override
+    public void release(){
+    }
+}
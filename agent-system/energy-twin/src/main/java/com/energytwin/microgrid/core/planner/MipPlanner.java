@@ -0,0 +1,208 @@
+package com.energytwin.microgrid.core.planner;
+
+import com.energytwin.microgrid.core.aggregator.AggregatorMetaStore;
+import com.energytwin.microgrid.core.scenario.Scenario;
+import com.google.ortools.Loader;
+import com.google.ortools.sat.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * CP-SAT dispatch on the median scenario, with on/off decisions.
+ *
+ * <p>Per battery and tick, charging and discharging are exclusive, and each, when on, runs at
+ * least the minimum dispatch level. External supply either imports, at least the minimum
+ * import, or spills, never both. CP-SAT works on integers, so power is counted in
+ * {@code 1/SCALE} kW and SoC in {@code 1/(SCALE·EFF)} kWh; efficiencies become integer
+ * coefficients with {@code EFF} resolution. Costs are those of {@link BatteryLp}, with
+ * penalised unserved load and curtailment so that every forecast is feasible. The median is
+ * {@link DeterministicPlanner#median}, the q50 forecast the aggregator checks dispatch against.
+ *
+ * <p>The model is rebuilt for every plan, which is cheap next to the search. The search is
+ * hinted with the previous plan, shifted by the ticks between the start of that plan and this
+ * one, and stopped at the time limit with the best plan found. Not thread-safe.
+ */
+public final class MipPlanner implements Planner {
+
+    static { Loader.loadNativeLibraries(); }    // OR-Tools JNI, once per JVM
+
+    private static final long SCALE = 10;       // power units per kW
+    private static final long EFF = 1000;       // efficiency resolution
+    private static final long COST = 100;       // objective units per LP cost unit
+
+    private final int H;
+    private final Map<String, AggregatorMetaStore.BatteryMeta> bats;
+    private final String[] ids;
+    private final double extCapKw;
+    private final Planner.Mip cfg;
+
+    // previous solution, [battery][tick] and [tick], for the hints
+    private long[][] prevChg, prevDsg;
+    private long[] prevImp, prevExp;
+    private long prevStartTick;                 // tick of offset 0 of the previous solution
+
+    private CpSolverStatus lastStatus;
+    private double lastGapPct = Double.NaN;
+
+    public MipPlanner(int horizon, Map<String, AggregatorMetaStore.BatteryMeta> bats,
+                      double extCapKw, Planner.Mip cfg){
+        this.H = horizon;
+        this.bats = new TreeMap<>(bats);
+        this.ids = this.bats.keySet().toArray(new String[0]);
+        this.extCapKw = extCapKw;
+        this.cfg = cfg;
+    }
+
+    @Override
+    public boolean matches(int horizon, Map<String, AggregatorMetaStore.BatteryMeta> bats,
+                           double extCapKw){
+        return H == horizon && extCapKw == this.extCapKw && this.bats.equals(bats);
+    }
+
+    /** Plans without hints, as the offset from the previous plan is unknown. */
+    @Override
+    public List<Action> plan(List<Scenario> scenarios, Map<String, Double> socById){
+        prevImp = null;
+        return plan(0, scenarios, socById);
+    }
+
+    @Override
+    public List<Action> plan(long startTick, List<Scenario> scenarios,
+                             Map<String, Double> socById){
+        if (scenarios.isEmpty()) return null;
+        Scenario median = DeterministicPlanner.median(scenarios);
+        int n = ids.length;
+        CpModel model = new CpModel();
+        LinearExprBuilder obj = LinearExpr.newBuilder();
+
+        /* ---- batteries: exclusive charge / discharge with minimum levels ---- */
+        long fleetMax = 0;                      // bounds the slack variables
+        IntVar[][] chg = new IntVar[n][H], dsg = new IntVar[n][H];
+        BoolVar[][] chgOn = new BoolVar[n][H], dsgOn = new BoolVar[n][H];
+        for (int b = 0; b < n; b++){
+            var m = bats.get(ids[b]);
+            long pMax = (long) Math.floor(m.cRate() * m.capacity() * SCALE);
+            long pMin = Math.min(pMax, Math.round(cfg.minDispatchKw() * SCALE));
+            long socMax = Math.round(m.capacity() * SCALE * EFF);
+            long soc0 = Math.round(Math.min(Math.max(socById.getOrDefault(ids[b], 0.0), 0),
+                    m.capacity()) * SCALE * EFF);
+            long etaC = Math.round(m.etaC() * EFF), invEtaD = Math.round(EFF / m.etaD());
+            fleetMax += pMax;
+
+            IntVar soc = model.newConstant(soc0);
+            for (int k = 0; k < H; k++){
+                chg[b][k] = model.newIntVar(0, pMax, "");
+                dsg[b][k] = model.newIntVar(0, pMax, "");
+                chgOn[b][k] = model.newBoolVar("");
+                dsgOn[b][k] = model.newBoolVar("");
+                onOff(model, chg[b][k], chgOn[b][k], pMin);
+                onOff(model, dsg[b][k], dsgOn[b][k], pMin);
+                model.addAtMostOne(new Literal[] {chgOn[b][k], dsgOn[b][k]});
+
+                IntVar next = model.newIntVar(0, socMax, "");
+                model.addEquality(next, LinearExpr.newBuilder().add(soc)
+                        .addTerm(chg[b][k], etaC).addTerm(dsg[b][k], -invEtaD).build());
+                soc = next;
+
+                obj.addTerm(chg[b][k], Math.round(BatteryLp.LOSS_COST * COST));
+                obj.addTerm(dsg[b][k], Math.round(BatteryLp.LOSS_COST * COST));
+            }
+        }
+
+        /* ---- external supply: import (on/off, minimum level) or spill ---- */
+        long extMax = (long) Math.floor(extCapKw * SCALE);
+        long impMin = Math.min(extMax, Math.round(cfg.minImportKw() * SCALE));
+        IntVar[] imp = new IntVar[H], exp = new IntVar[H];
+        BoolVar[] impOn = new BoolVar[H];
+        for (int k = 0; k < H; k++){
+            imp[k] = model.newIntVar(0, extMax, "");
+            exp[k] = model.newIntVar(0, extMax, "");
+            impOn[k] = model.newBoolVar("");
+            onOff(model, imp[k], impOn[k], impMin);
+            model.addEquality(exp[k], 0).onlyEnforceIf(impOn[k]);
+
+            // import - spill + discharge - charge + unserved - curtailed = load - pv
+            long net = Math.round((median.loadKw()[k] - median.pvKw()[k]) * SCALE);
+            long slackMax = Math.abs(net) + fleetMax + extMax;
+            IntVar unserved = model.newIntVar(0, slackMax, "");
+            IntVar curtailed = model.newIntVar(0, slackMax, "");
+            LinearExprBuilder bal = LinearExpr.newBuilder().add(imp[k]).addTerm(exp[k], -1)
+                    .add(unserved).addTerm(curtailed, -1);
+            for (int b = 0; b < n; b++) bal.add(dsg[b][k]).addTerm(chg[b][k], -1);
+            model.addEquality(bal.build(), net);
+
+            obj.addTerm(imp[k], Math.round(BatteryLp.IMPORT_COST * COST));
+            obj.addTerm(exp[k], -Math.round(BatteryLp.IMPORT_COST * COST));
+            obj.addTerm(unserved, Math.round(BatteryLp.SLACK_COST * COST));
+            obj.addTerm(curtailed, Math.round(BatteryLp.SLACK_COST * COST));
+        }
+        model.minimize(obj.build());
+
+        /* ---- hints: the previous plan, shifted to this plan's start ---- */
+        long shift = startTick - prevStartTick;
+        if (prevImp != null && shift >= 0 && shift < H){
+            for (int k = 0; k + shift < H; k++){
+                int j = (int) (k + shift);
+                for (int b = 0; b < n; b++){
+                    model.addHint(chg[b][k], prevChg[b][j]);
+                    model.addHint(dsg[b][k], prevDsg[b][j]);
+                    model.addHint(chgOn[b][k], prevChg[b][j] > 0 ? 1 : 0);
+                    model.addHint(dsgOn[b][k], prevDsg[b][j] > 0 ? 1 : 0);
+                }
+                model.addHint(imp[k], prevImp[j]);
+                model.addHint(exp[k], prevExp[j]);
+                model.addHint(impOn[k], prevImp[j] > 0 ? 1 : 0);
+            }
+        }
+
+        /* ---- solve within the time limit ---- */
+        CpSolver solver = new CpSolver();
+        if (cfg.timeLimitMs() > 0)
+            solver.getParameters().setMaxTimeInSeconds(cfg.timeLimitMs() / 1000.0);
+        if (cfg.workers() > 0) solver.getParameters().setNumWorkers(cfg.workers());
+        lastStatus = solver.solve(model);
+        if (lastStatus != CpSolverStatus.OPTIMAL && lastStatus != CpSolverStatus.FEASIBLE){
+            prevImp = null;
+            return null;
+        }
+        double best = solver.objectiveValue(), bound = solver.bestObjectiveBound();
+        lastGapPct = 100 * Math.abs(best - bound) / Math.max(Math.abs(best), 1);
+
+        /* ---- translate to Action list, keep the solution for the next hints ---- */
+        prevChg = new long[n][H]; prevDsg = new long[n][H];
+        prevImp = new long[H]; prevExp = new long[H];
+        prevStartTick = startTick;
+        List<Action> actions = new ArrayList<>();
+        for (int k = 0; k < H; k++){
+            for (int b = 0; b < n; b++){
+                prevChg[b][k] = solver.value(chg[b][k]);
+                prevDsg[b][k] = solver.value(dsg[b][k]);
+                long net = prevChg[b][k] - prevDsg[b][k];
+                if (net != 0) actions.add(new Action(k, ids[b], (double) net / SCALE, 0));
+            }
+            prevImp[k] = solver.value(imp[k]);
+            prevExp[k] = solver.value(exp[k]);
+            long ex = prevImp[k] - prevExp[k];
+            if (ex != 0) actions.add(new Action(k, "External", 0, (double) ex / SCALE));
+        }
+        return actions;
+    }
+
+    /** {@code x = 0} when off, {@code x >= min} when on. */
+    private static void onOff(CpModel model, IntVar x, BoolVar on, long min){
+        model.addGreaterOrEqual(x, Math.max(min, 1)).onlyEnforceIf(on);
+        model.addEquality(x, 0).onlyEnforceIf(on.not());
+    }
+
+    @Override
+    public String diagnostics(){
+        return "CP-SAT " + lastStatus + ", gap " + lastGapPct + " %";
+    }
+
+    @Override
+    public void release(){
+    }
+}
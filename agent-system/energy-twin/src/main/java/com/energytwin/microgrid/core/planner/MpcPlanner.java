@@ -0,0 +1,56 @@
+package com.energytwin.microgrid.core.planner;
+
+import com.energytwin.microgrid.core.aggregator.AggregatorMetaStore;
+import com.energytwin.microgrid.core.scenario.Scenario;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rolling-horizon MPC on the median scenario, for long horizons (48–168 ticks).
+ *
+ * <p>The horizon is blocked: the first {@code fineSteps} ticks get their own step, the rest are
+ * grouped into blocks of {@code blockTicks} ticks with constant power. The far end of the plan is
+ * only a terminal guide for the SoC, since the aggregator replans every {@code replanEvery} ticks
+ * and applies only the start of each plan, so coarse steps there cost little. With the defaults,
+ * a 168-tick horizon is solved with 38 steps instead of 168. The LP is banded (see
+ * {@link BatteryLp}), kept between replans and re-solved from the previous basis. Unserved load
+ * and curtailment are allowed at a penalty, so a forecast beyond the external cap still yields a
+ * plan. The median is {@link DeterministicPlanner#median}, the q50 forecast the aggregator checks
+ * dispatch against. Not thread-safe.
+ */
+public final class MpcPlanner implements Planner {
+
+    private final BatteryLp lp;
+
+    public MpcPlanner(int horizon, Map<String, AggregatorMetaStore.BatteryMeta> bats,
+                      double extCapKw, int fineSteps, int blockTicks){
+        lp = new BatteryLp(BatteryLp.blocks(horizon, fineSteps, blockTicks), bats, extCapKw, true);
+    }
+
+    @Override
+    public boolean matches(int horizon, Map<String, AggregatorMetaStore.BatteryMeta> bats,
+                           double extCapKw){
+        return lp.matches(horizon, bats, extCapKw);
+    }
+
+    /** LP steps after blocking. */
+    public int getSteps(){
+        return lp.steps();
+    }
+
+    @Override
+    public List<Action> plan(List<Scenario> scenarios, Map<String, Double> socById){
+        if (scenarios.isEmpty()) return null;
+        Scenario median = DeterministicPlanner.median(scenarios);
+        lp.setNet(median.loadKw(), median.pvKw());
+        lp.setSoc(socById);
+        if (!lp.solve()) return null;
+        return lp.actions();
+    }
+
+    @Override
+    public void release(){
+        lp.release();
+    }
+}
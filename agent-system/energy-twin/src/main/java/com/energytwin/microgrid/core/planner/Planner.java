@@ -0,0 +1,107 @@
+package com.energytwin.microgrid.core.planner;
+
+import com.energytwin.microgrid.core.aggregator.AggregatorMetaStore;
+import com.energytwin.microgrid.core.scenario.Scenario;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/** Turns forecast scenarios into battery and external-supply actions over the horizon. */
+public interface Planner {
+
+    /** Planner names accepted by {@code forecast.planner}. */
+    String DETERMINISTIC = "deterministic";
+    String STOCHASTIC = "stochastic";
+    String MPC = "mpc";
+    String GREEDY = "greedy";
+    String MIP = "mip";
+
+    /**
+     * Tuning shared by the planners; each reads only what applies to it.
+     *
+     * @param pool workers for the scenario subproblems of the stochastic planner, or null to
+     *     solve them one after the other
+     * @param fineSteps single-tick steps at the start of the MPC horizon
+     * @param blockTicks ticks per step after the fine steps of the MPC horizon
+     * @param clusters virtual batteries the fleet is planned as, or 0 to plan every battery
+     * @param checkEvery with clusters, also solve the full fleet model every this many plans, or
+     *     0 never
+     * @param mip settings of the CP-SAT planner
+     */
+    record Options(ForkJoinPool pool, int fineSteps, int blockTicks, int clusters,
+                   int checkEvery, Mip mip) {
+
+        public static final Options DEFAULT = new Options(null, 12, 6, 0, 0, Mip.DEFAULT);
+
+        /** The same options without fleet aggregation. */
+        public Options perBattery(){
+            return new Options(pool, fineSteps, blockTicks, 0, checkEvery, mip);
+        }
+    }
+
+    /**
+     * Settings of the CP-SAT planner.
+     *
+     * @param timeLimitMs search time limit, or 0 for none
+     * @param workers CP-SAT search workers, or 0 for the solver's default
+     * @param minDispatchKw minimum charge or discharge power of a battery that is on
+     * @param minImportKw minimum external import when importing
+     */
+    record Mip(long timeLimitMs, int workers, double minDispatchKw, double minImportKw) {
+
+        public static final Mip DEFAULT = new Mip(200, 0, 0, 0);
+    }
+
+    /**
+     * Creates the planner selected by {@code forecast.planner}; unknown names select the
+     * deterministic LP. With {@link Options#clusters()} set, it plans a
+     * {@link VirtualBatteryPlanner virtual fleet}.
+     */
+    static Planner create(String name, int horizon,
+                          Map<String, AggregatorMetaStore.BatteryMeta> bats, double extCapKw,
+                          Options opts){
+        if (opts.clusters() > 0 && opts.clusters() < bats.size())
+            return new VirtualBatteryPlanner(name, horizon, bats, extCapKw, opts);
+        if (STOCHASTIC.equalsIgnoreCase(name))
+            return new StochasticPlanner(horizon, bats, extCapKw, opts.pool());
+        if (MPC.equalsIgnoreCase(name))
+            return new MpcPlanner(horizon, bats, extCapKw, opts.fineSteps(), opts.blockTicks());
+        if (MIP.equalsIgnoreCase(name))
+            return new MipPlanner(horizon, bats, extCapKw, opts.mip());
+        if (GREEDY.equalsIgnoreCase(name))
+            return new GreedyPlanner(horizon, bats, extCapKw);
+        return new DeterministicPlanner(horizon, bats, extCapKw);
+    }
+
+    /**
+     * Plans the horizon.
+     *
+     * @param scenarios forecast scenarios, weighted by {@link Scenario#prob()}
+     * @param socById current SoC (kWh) of each battery
+     * @return actions by tick offset, empty if nothing needs dispatching; null if the solver
+     *     found no plan
+     */
+    List<Action> plan(List<Scenario> scenarios, Map<String, Double> socById);
+
+    /**
+     * Plans the horizon whose offset 0 is tick {@code startTick}. Planners that reuse their
+     * previous plan use the tick to align the two; the others ignore it.
+     */
+    default List<Action> plan(long startTick, List<Scenario> scenarios,
+                              Map<String, Double> socById){
+        return plan(scenarios, socById);
+    }
+
+    /** True if this planner was built for the given topology and can be reused. */
+    boolean matches(int horizon, Map<String, AggregatorMetaStore.BatteryMeta> bats,
+                    double extCapKw);
+
+    /** Planner-specific diagnostics of the last plan, or empty. */
+    default String diagnostics(){
+        return "";
+    }
+
+    /** Frees native solver state; the planner must not be used afterwards. */
+    void release();
+}
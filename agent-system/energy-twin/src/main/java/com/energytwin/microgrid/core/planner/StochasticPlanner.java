@@ -0,0 +1,182 @@
+package com.energytwin.microgrid.core.planner;
+
+import com.energytwin.microgrid.core.aggregator.AggregatorMetaStore;
+import com.energytwin.microgrid.core.scenario.Scenario;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Two-stage stochastic planner solved by progressive hedging.
+ *
+ * <p>The first stage is the action applied now (step 0: charge and discharge of every battery and
+ * the external import); it must be the same in every scenario. Steps 1.. are per-scenario
+ * recourse. Each scenario is a separate {@link BatteryLp}, so no LP grows with the number of
+ * scenarios, and the subproblems of an iteration are solved in parallel. After an unpenalised
+ * first solve, each iteration adds {@code w·x + rho·|x - xbar|₁} to every scenario's objective,
+ * where {@code xbar} is the probability-weighted first-stage average and {@code w} the
+ * accumulated multipliers. The L1 proximal term keeps the subproblems linear for GLOP. Iteration
+ * stops when the weighted distance of the scenarios from {@code xbar} falls below a tolerance.
+ *
+ * <p>Scenario models get penalised unserved-load and curtailment variables, so extreme draws stay
+ * feasible. The plan applies {@code xbar} now and the probability-weighted mean recourse later.
+ * Not thread-safe.
+ */
+public final class StochasticPlanner implements Planner {
+
+    private static final double RHO = 0.5;          // proximal weight per kW
+    private static final int MAX_ITERATIONS = 50;
+    private static final double TOLERANCE_KW = 0.01;
+
+    private final int H;
+    private final Map<String, AggregatorMetaStore.BatteryMeta> bats;
+    private final double extCapKw;
+    private final ForkJoinPool pool;
+    private final List<BatteryLp> lps = new ArrayList<>();   // exactly one per scenario
+
+    private int lastIterations;
+    private double lastGapKw = Double.NaN;
+
+    /**
+     * @param pool workers for the scenario subproblems, or null to solve them on the caller
+     */
+    public StochasticPlanner(int horizon, Map<String, AggregatorMetaStore.BatteryMeta> bats,
+                             double extCapKw, ForkJoinPool pool){
+        this.H = horizon;
+        this.bats = new TreeMap<>(bats);
+        this.extCapKw = extCapKw;
+        this.pool = pool;
+    }
+
+    @Override
+    public boolean matches(int horizon, Map<String, AggregatorMetaStore.BatteryMeta> bats,
+                           double extCapKw){
+        return H == horizon && extCapKw == this.extCapKw && this.bats.equals(bats);
+    }
+
+    /** Progressive-hedging iterations of the last plan. */
+    public int getLastIterations(){
+        return lastIterations;
+    }
+
+    /** Weighted L1 distance (kW) of the scenario first stages from their average at the end. */
+    public double getLastGapKw(){
+        return lastGapKw;
+    }
+
+    @Override
+    public String diagnostics(){
+        return "progressive hedging: " + lastIterations + " iterations, gap " + lastGapKw + " kW";
+    }
+
+    @Override
+    public List<Action> plan(List<Scenario> scenarios, Map<String, Double> socById){
+        int s = scenarios.size();
+        if (s == 0) return null;
+        while (lps.size() < s){
+            BatteryLp lp = new BatteryLp(H, bats, extCapKw, true);
+            lp.addProximal();
+            lps.add(lp);
+        }
+        while (lps.size() > s) lps.remove(lps.size() - 1).release();   // free surplus models
+
+        double total = scenarios.stream().mapToDouble(Scenario::prob).sum();
+        double[] p = new double[s];
+        for (int i = 0; i < s; i++){
+            p[i] = scenarios.get(i).prob() / total;
+            BatteryLp lp = lps.get(i);
+            lp.setNet(scenarios.get(i).loadKw(), scenarios.get(i).pvKw());
+            lp.setSoc(socById);
+        }
+
+        int n = lps.get(0).firstStageSize();
+        double[][] x = new double[s][n];
+        double[][] w = new double[s][n];
+        double[] xbar = new double[n];
+
+        // iteration 0: independent scenario solves
+        for (int i = 0; i < s; i++) lps.get(i).setProximal(w[i], 0, xbar);
+        if (!solveAll(s, x)) return null;
+        double gap = average(p, x, xbar);
+
+        int it = 0;
+        while (gap > TOLERANCE_KW && it < MAX_ITERATIONS){
+            it++;
+            for (int i = 0; i < s; i++){
+                for (int j = 0; j < n; j++) w[i][j] += RHO * (x[i][j] - xbar[j]);
+                lps.get(i).setProximal(w[i], RHO, xbar);
+            }
+            if (!solveAll(s, x)) return null;
+            gap = average(p, x, xbar);
+        }
+        lastIterations = it;
+        lastGapKw = gap;
+        return actions(s, p, xbar);
+    }
+
+    /** Solves every scenario and collects its first stage; false if one has no optimum. */
+    private boolean solveAll(int s, double[][] x){
+        IntStream idx = IntStream.range(0, s);
+        boolean[] ok = new boolean[s];
+        Runnable body = () -> (pool == null ? idx : idx.parallel()).forEach(i -> {
+            BatteryLp lp = lps.get(i);
+            ok[i] = lp.solve();
+            if (ok[i]) lp.firstStage(x[i]);
+        });
+        if (pool == null) body.run(); else pool.submit(body).join();
+        for (boolean b : ok) if (!b) return false;
+        return true;
+    }
+
+    /** Writes the weighted first-stage average to {@code xbar}; returns the weighted L1 gap. */
+    private static double average(double[] p, double[][] x, double[] xbar){
+        Arrays.fill(xbar, 0);
+        for (int i = 0; i < p.length; i++)
+            for (int j = 0; j < xbar.length; j++) xbar[j] += p[i] * x[i][j];
+        double gap = 0;
+        for (int i = 0; i < p.length; i++)
+            for (int j = 0; j < xbar.length; j++) gap += p[i] * Math.abs(x[i][j] - xbar[j]);
+        return gap;
+    }
+
+    /** Step 0 from the consensus first stage, later steps from the mean recourse. */
+    private List<Action> actions(int s, double[] p, double[] xbar){
+        BatteryLp any = lps.get(0);
+        int nb = any.ids.length;
+        List<Action> actions = new ArrayList<>();
+        for (int k = 0; k < H; k++){
+            for (int b = 0; b < nb; b++){
+                double net;                      // charge (+) / discharge (–) kW
+                if (k == 0) {
+                    net = xbar[2*b] - xbar[2*b+1];
+                } else {
+                    net = 0;
+                    for (int i = 0; i < s; i++)
+                        net += p[i] * (lps.get(i).chg[b][k].solutionValue()
+                                - lps.get(i).dsg[b][k].solutionValue());
+                }
+                if (Math.abs(net)>1e-3) actions.add(new Action(k, any.ids[b], net, 0));
+            }
+            double ex;
+            if (k == 0) {
+                ex = xbar[2*nb];
+            } else {
+                ex = 0;
+                for (int i = 0; i < s; i++) ex += p[i] * lps.get(i).ext[k].solutionValue();
+            }
+            if (Math.abs(ex)>1e-3) actions.add(new Action(k, "External", 0, ex));
+        }
+        return actions;
+    }
+
+    @Override
+    public void release(){
+        lps.forEach(BatteryLp::release);
+        lps.clear();
+    }
+}
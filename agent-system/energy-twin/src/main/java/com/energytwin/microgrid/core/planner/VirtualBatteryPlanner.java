@@ -0,0 +1,258 @@
+package com.energytwin.microgrid.core.planner;
+
+import com.energytwin.microgrid.core.aggregator.AggregatorMetaStore;
+import com.energytwin.microgrid.core.scenario.Scenario;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.BiFunction;
+
+/**
+ * Plans the fleet as a few virtual batteries and splits their schedule back per battery.
+ *
+ * <p>The batteries are sorted by round-trip efficiency and duration (capacity / power) and cut
+ * into {@code clusters} groups of consecutive batteries. Each group becomes one battery with the
+ * summed capacity and power and capacity-weighted efficiencies, so the wrapped planner's model
+ * size depends on the number of clusters, not of batteries. The virtual schedule is split tick
+ * by tick: charging in proportion to each member's free capacity, discharging in proportion to
+ * its stored energy, both capped by the member's power and energy limits, and refilled among the
+ * members that still have room. Power no member can take is moved to the external supply, up
+ * to its cap.
+ *
+ * <p>With {@code checkEvery} set, the full per-battery model is also solved on the same scenarios
+ * every {@code checkEvery} plans. This doubles the cost of those plans, so it is off by default.
+ * Both plans are priced with the LP's objective, and the relative excess of the aggregated plan
+ * is reported as the optimality loss. Not thread-safe.
+ */
+public final class VirtualBatteryPlanner implements Planner {
+
+    private final int H;
+    private final Map<String, AggregatorMetaStore.BatteryMeta> bats;
+    private final double extCapKw;
+    private final String[][] members;           // [cluster] battery ids
+    private final String[] virtualIds;
+    private final Planner inner;                // plans the virtual fleet
+    private final Planner full;                 // plans every battery, for the loss check
+    private final int checkEvery;
+
+    private int plans;
+    private double clippedKw;                   // external power beyond the cap in the last split
+    private double lastLossPct = Double.NaN;
+    private String innerDiagnostics = "";
+
+    /**
+     * @param kind wrapped planner, see {@link Planner#create}
+     * @param opts {@link Planner.Options#clusters()} sets the number of virtual batteries
+     */
+    public VirtualBatteryPlanner(String kind, int horizon,
+                                 Map<String, AggregatorMetaStore.BatteryMeta> bats,
+                                 double extCapKw, Planner.Options opts){
+        this.H = horizon;
+        this.bats = new TreeMap<>(bats);
+        this.extCapKw = extCapKw;
+        this.checkEvery = opts.checkEvery();
+
+        List<String> sorted = new ArrayList<>(this.bats.keySet());
+        sorted.sort(Comparator
+                .comparingDouble((String id) -> this.bats.get(id).etaC() * this.bats.get(id).etaD())
+                .thenComparingDouble(id -> 1 / this.bats.get(id).cRate()));
+        int k = Math.max(1, Math.min(opts.clusters(), sorted.size()));
+        members = new String[k][];
+        virtualIds = new String[k];
+        Map<String, AggregatorMetaStore.BatteryMeta> virtual = new LinkedHashMap<>();
+        for (int c = 0; c < k; c++){
+            int from = c * sorted.size() / k, to = (c + 1) * sorted.size() / k;
+            members[c] = sorted.subList(from, to).toArray(new String[0]);
+            virtualIds[c] = "virtual-" + c;
+            virtual.put(virtualIds[c], aggregate(members[c]));
+        }
+        inner = Planner.create(kind, horizon, virtual, extCapKw, opts.perBattery());
+        full = checkEvery > 0
+                ? Planner.create(kind, horizon, this.bats, extCapKw, opts.perBattery())
+                : null;
+    }
+
+    /** One battery with the summed capacity and power and capacity-weighted efficiencies. */
+    private AggregatorMetaStore.BatteryMeta aggregate(String[] ids){
+        double cap = 0, power = 0, etaC = 0, etaD = 0;
+        for (String id : ids){
+            var m = bats.get(id);
+            cap += m.capacity();
+            power += m.cRate() * m.capacity();
+            etaC += m.etaC() * m.capacity();
+            etaD += m.etaD() * m.capacity();
+        }
+        return new AggregatorMetaStore.BatteryMeta(cap, etaC / cap, etaD / cap, power / cap);
+    }
+
+    @Override
+    public boolean matches(int horizon, Map<String, AggregatorMetaStore.BatteryMeta> bats,
+                           double extCapKw){
+        return H == horizon && extCapKw == this.extCapKw && this.bats.equals(bats);
+    }
+
+    /** Relative cost excess (%) of the aggregated plan at the last check, or NaN. */
+    public double getLastLossPct(){
+        return lastLossPct;
+    }
+
+    @Override
+    public List<Action> plan(List<Scenario> scenarios, Map<String, Double> socById){
+        return plan(socById, (p, soc) -> p.plan(scenarios, soc));
+    }
+
+    /** Passes {@code startTick} on to the wrapped planners. */
+    @Override
+    public List<Action> plan(long startTick, List<Scenario> scenarios,
+                             Map<String, Double> socById){
+        return plan(socById, (p, soc) -> p.plan(startTick, scenarios, soc));
+    }
+
+    /** Plans the virtual fleet with {@code solve}, splits the plan and, when due, checks it. */
+    private List<Action> plan(Map<String, Double> socById,
+                              BiFunction<Planner, Map<String, Double>, List<Action>> solve){
+        Map<String, Double> virtualSoc = new TreeMap<>();
+        for (int c = 0; c < members.length; c++){
+            double s = 0;
+            for (String id : members[c]) s += clampSoc(id, socById);
+            virtualSoc.put(virtualIds[c], s);
+        }
+        List<Action> virtualPlan = solve.apply(inner, virtualSoc);
+        innerDiagnostics = inner.diagnostics();
+        if (virtualPlan == null) return null;
+        List<Action> plan = disaggregate(virtualPlan, socById);
+
+        if (full != null && plans++ % checkEvery == 0){
+            List<Action> best = solve.apply(full, socById);
+            if (best != null){
+                double c0 = cost(best, 0), c1 = cost(plan, clippedKw);
+                lastLossPct = 100 * (c1 - c0) / Math.max(Math.abs(c0), 1e-9);
+            }
+        }
+        return plan;
+    }
+
+    /** Splits each virtual battery's net power per tick over its members. */
+    private List<Action> disaggregate(List<Action> virtualPlan, Map<String, Double> socById){
+        Map<String, Integer> cluster = new TreeMap<>();
+        for (int c = 0; c < virtualIds.length; c++) cluster.put(virtualIds[c], c);
+        double[][] netKw = new double[H][members.length];
+        double[] extKw = new double[H];
+        for (Action a : virtualPlan){
+            if (a.tickOffset() >= H) continue;
+            Integer c = cluster.get(a.target());
+            if (c != null) netKw[a.tickOffset()][c] += a.chargeKw();
+            else extKw[a.tickOffset()] += a.extImportKw();
+        }
+
+        Map<String, Double> soc = new TreeMap<>();
+        for (String id : bats.keySet()) soc.put(id, clampSoc(id, socById));
+
+        List<Action> actions = new ArrayList<>();
+        clippedKw = 0;
+        for (int k = 0; k < H; k++){
+            for (int c = 0; c < members.length; c++){
+                double rest = split(members[c], netKw[k][c], soc, k, actions);
+                extKw[k] -= rest;               // unplaced charge is spilled, discharge imported
+            }
+            double ex = Math.max(-extCapKw, Math.min(extCapKw, extKw[k]));
+            clippedKw += Math.abs(extKw[k] - ex);   // left unserved or curtailed
+            if (Math.abs(ex) > 1e-3) actions.add(new Action(k, "External", 0, ex));
+        }
+        return actions;
+    }
+
+    /**
+     * Splits {@code kw} (charge +, discharge –) over {@code ids}, advancing their SoC by one
+     * tick.
+     *
+     * @return the signed power no member could take
+     */
+    private double split(String[] ids, double kw, Map<String, Double> soc, int k,
+                         List<Action> actions){
+        if (Math.abs(kw) <= 1e-3) return 0;
+        boolean charge = kw > 0;
+        int n = ids.length;
+        double[] room = new double[n], weight = new double[n], out = new double[n];
+        for (int i = 0; i < n; i++){
+            var m = bats.get(ids[i]);
+            double s = soc.get(ids[i]);
+            double rate = m.cRate() * m.capacity();
+            room[i] = charge ? Math.min(rate, (m.capacity() - s) / m.etaC())
+                    : Math.min(rate, s * m.etaD());
+            weight[i] = charge ? m.capacity() - s : s;
+        }
+
+        // proportional shares; members that hit their limit are capped and the rest refilled
+        double rest = Math.abs(kw);
+        boolean[] capped = new boolean[n];
+        for (int pass = 0; pass < n && rest > 1e-9; pass++){
+            double total = 0;
+            for (int i = 0; i < n; i++) if (!capped[i]) total += weight[i];
+            if (total <= 0) break;
+            boolean clipped = false;
+            for (int i = 0; i < n; i++){
+                if (capped[i]) continue;
+                if (rest * weight[i] / total >= room[i] - out[i]){
+                    capped[i] = clipped = true;
+                }
+            }
+            if (!clipped){
+                for (int i = 0; i < n; i++) if (!capped[i]) out[i] += rest * weight[i] / total;
+                rest = 0;
+            } else {
+                for (int i = 0; i < n; i++){
+                    if (capped[i] && out[i] < room[i]){
+                        rest -= room[i] - out[i];
+                        out[i] = room[i];
+                    }
+                }
+                rest = Math.max(rest, 0);
+            }
+        }
+
+        for (int i = 0; i < n; i++){
+            if (out[i] <= 1e-3) continue;
+            var m = bats.get(ids[i]);
+            soc.merge(ids[i], charge ? out[i] * m.etaC() : -out[i] / m.etaD(), Double::sum);
+            actions.add(new Action(k, ids[i], charge ? out[i] : -out[i], 0));
+        }
+        return charge ? rest : -rest;
+    }
+
+    private double clampSoc(String id, Map<String, Double> socById){
+        return Math.min(Math.max(socById.getOrDefault(id, 0.0), 0), bats.get(id).capacity());
+    }
+
+    /**
+     * A plan's price under the LP objective: import and battery throughput, plus {@code slackKw}
+     * of unserved load or curtailment. The LP's own slack is not visible in the actions of either
+     * plan; only what the split could not place within the external cap is.
+     */
+    static double cost(List<Action> plan, double slackKw){
+        double c = BatteryLp.SLACK_COST * slackKw;
+        for (Action a : plan)
+            c += BatteryLp.IMPORT_COST * a.extImportKw()
+                    + BatteryLp.LOSS_COST * Math.abs(a.chargeKw());
+        return c;
+    }
+
+    @Override
+    public String diagnostics(){
+        String loss = "virtual fleet: " + Arrays.toString(
+                Arrays.stream(members).mapToInt(m -> m.length).toArray())
+                + " batteries per cluster, optimality loss " + lastLossPct + " %";
+        return innerDiagnostics.isEmpty() ? loss : loss + "; " + innerDiagnostics;
+    }
+
+    @Override
+    public void release(){
+        inner.release();
+        if (full != null) full.release();
+    }
+}
@@ -1,19 +1,44 @@
 package com.energytwin.microgrid.core.scenario;
 
-import org.apache.commons.math3.distribution.MultivariateNormalDistribution;
-import org.apache.commons.math3.linear.*;
-import org.apache.commons.math3.random.RandomGenerator;
-import org.apache.commons.rng.simple.RandomSource;
-
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
 
-/** 50 draws from a Gaussian copula that couples load and PV. */
+/**
+ * Draws from a Gaussian copula that couples load and PV.
+ *
+ * <p>The 2H-vector (load, then PV) has correlation ρ^{|i-j|} and per-entry σ from the quantile
+ * half-range, so only the σ scaling changes between calls. The Cholesky factor of that AR(1)
+ * correlation is known in closed form, and applying it is the recursion
+ * {@code y[0] = z[0], y[i] = ρ·y[i-1] + √(1-ρ²)·z[i]}: O(H) per draw, with nothing to factorise.
+ *
+ * <p>Draws are made in fixed-size chunks, each from its own stream split off a root
+ * {@link SplittableRandom}, so the chunks can run in parallel and the scenarios do not depend on
+ * the number of workers.
+ */
 public final class MonteCarloGenerator implements ScenarioGenerator {
 
+    private static final double RHO = 0.6;      // correlation between neighbouring entries
+    private static final int CHUNK = 256;       // draws per RNG stream
+
     private final int H, N;
-    public MonteCarloGenerator(int horizon, int draws){ H=horizon; N=draws; }
+    private final ForkJoinPool pool;            // null = draw on the caller
+    private final SplittableRandom root;
+
+    public MonteCarloGenerator(int horizon, int draws){ this(horizon, draws, null); }
+
+    /** @param pool workers for the draws, or null to draw on the caller */
+    public MonteCarloGenerator(int horizon, int draws, ForkJoinPool pool){
+        this(horizon, draws, pool, new SplittableRandom());
+    }
+
+    /** @param rng root stream; every call splits fresh streams off it */
+    public MonteCarloGenerator(int horizon, int draws, ForkJoinPool pool, SplittableRandom rng){
+        H=horizon; N=Math.max(1, draws); this.pool=pool; root=rng;
+    }
 
     @Override public List<Scenario> generate(double[][] loadQ, double[][] pvQ){
 
@@ -22,27 +47,37 @@ public final class MonteCarloGenerator implements ScenarioGenerator {
 
         for(int k=0;k<H;k++){
             mu[k]     = loadQ[1][k];                           // mean = median
-            sig[k]    = 0.5*(loadQ[2][k]-loadQ[0][k]);         // σ ≈ half-range
+            sig[k]    = Math.max(0, 0.5*(loadQ[2][k]-loadQ[0][k]));   // σ ≈ half-range
             mu[k+H]   = pvQ[1][k];
-            sig[k+H]  = 0.5*(pvQ[2][k]-pvQ[0][k]);
+            sig[k+H]  = Math.max(0, 0.5*(pvQ[2][k]-pvQ[0][k]));
         }
 
-        /* simple exponential correlation ρ^{|Δt|}, ρ=0.6     */
-        RealMatrix cov = MatrixUtils.createRealIdentityMatrix(2*H);
-        final double rho=0.6;
-        for(int i=0;i<2*H;i++) for(int j=0;j<2*H;j++)
-            cov.setEntry(i,j, Math.pow(rho, Math.abs(i-j))*sig[i]*sig[j]);
-
-        MultivariateNormalDistribution mvn =
-                new MultivariateNormalDistribution((RandomGenerator) RandomSource.XO_RO_SHI_RO_64_S.create(), mu, cov.getData());
-
-        List<Scenario> list = new ArrayList<>(N);
-        for(int d=0; d<N; d++){
-            double[] draw = mvn.sample();
-            double[] L = Arrays.copyOfRange(draw,0,H);
-            double[] P = Arrays.copyOfRange(draw,H,2*H);
-            list.add(new Scenario(L,P, 1.0/N));
+        int chunks = (N + CHUNK - 1) / CHUNK;
+        SplittableRandom[] streams = new SplittableRandom[chunks];
+        for (int c = 0; c < chunks; c++) streams[c] = root.split();
+
+        Scenario[] out = new Scenario[N];
+        IntStream idx = IntStream.range(0, chunks);
+        Runnable body = () -> (pool == null ? idx : idx.parallel())
+                .forEach(c -> draw(streams[c], c * CHUNK, Math.min(N, (c + 1) * CHUNK),
+                        mu, sig, out));
+        if (pool == null) body.run(); else pool.submit(body).join();
+        return new ArrayList<>(Arrays.asList(out));
+    }
+
+    /** Fills {@code out[from..to)} from one stream. */
+    private void draw(SplittableRandom rng, int from, int to, double[] mu, double[] sig,
+                      Scenario[] out){
+        double innov = Math.sqrt(1 - RHO*RHO);
+        for (int d = from; d < to; d++){
+            double[] L = new double[H], P = new double[H];
+            double y = rng.nextGaussian();
+            for (int i = 0; i < 2*H; i++){
+                if (i > 0) y = RHO*y + innov*rng.nextGaussian();
+                double v = mu[i] + sig[i]*y;
+                if (i < H) L[i] = v; else P[i-H] = v;
+            }
+            out[d] = new Scenario(L, P, 1.0/N);
         }
-        return list;
     }
 }
@@ -34,6 +34,12 @@ public class AgentStateRegistry {
     private volatile double[] fanLoLoad = new double[0];
     @Getter
     private volatile double[] fanHiLoad = new double[0];
+    @Getter
+    private volatile double[] fanLevels = new double[0];
+    @Getter
+    private volatile double[][] fanLoad = new double[0][];
+    @Getter
+    private volatile double[][] fanPv = new double[0][];
     private volatile double predictedLoadKw = Double.NaN;
     private volatile double predictedPvKw   = Double.NaN;
     @Getter
@@ -42,6 +48,30 @@ public class AgentStateRegistry {
     private final DoubleAdder squaredErrorLoad   = new DoubleAdder();
     private final DoubleAdder squaredErrorPv     = new DoubleAdder();
     private final LongAdder    errorSamples      = new LongAdder();
+    @Getter
+    private volatile double lastNegotiationMs = Double.NaN;
+    @Getter
+    private volatile double forecastTrainingMs = Double.NaN;
+    @Getter
+    private volatile int forecastTrainingQueue;
+    @Getter
+    private volatile long forecastModelAgeTicks = -1;
+    @Getter
+    private volatile double forecastTrainingUtilization = Double.NaN;
+    @Getter
+    private volatile double forecastPredictionUtilization = Double.NaN;
+    @Getter
+    @Setter
+    private volatile double forecastSnapshotSaveMs = Double.NaN;
+    @Getter
+    @Setter
+    private volatile double forecastSnapshotLoadMs = Double.NaN;
+    @Getter
+    private volatile double plannerSolveMs = Double.NaN;
+    @Getter
+    private volatile String plannerStatus = "";
+    @Getter
+    private volatile long plannerFallbacks;
 
     public double getTotalEnergyDemand() {
         return states.values().stream()
@@ -92,10 +122,41 @@ public class AgentStateRegistry {
     public double currentRmsePv   () { return Math.sqrt(
             squaredErrorPv  .sum()/Math.max(1,errorSamples.sum())); }
 
-    public void setFanChart(double[] loLoad, double[] hiLoad, double[] loPv, double[] hiPv){
-        fanLoLoad = loLoad;
-        fanHiLoad = hiLoad;
-        fanLoPv = loPv;
-        fanHiPv = hiPv;
+    public void recordNegotiationLatency(double millis){
+        lastNegotiationMs = millis;
+    }
+
+    public void setForecastTraining(double trainingMs, int queueDepth, long modelAgeTicks){
+        forecastTrainingMs = trainingMs;
+        forecastTrainingQueue = queueDepth;
+        forecastModelAgeTicks = modelAgeTicks;
+    }
+
+    public void setPlanner(double solveMs, String status, long fallbacks){
+        plannerSolveMs = solveMs;
+        plannerStatus = status;
+        plannerFallbacks = fallbacks;
+    }
+
+    public void setForecastUtilization(double training, double prediction){
+        forecastTrainingUtilization = training;
+        forecastPredictionUtilization = prediction;
+    }
+
+    /**
+     * Publishes a fan chart: {@code load[j]} and {@code pv[j]} are the forecasts at
+     * {@code levels[j]}, levels in increasing order. The lowest and highest level
+     * also become the lo/hi band.
+     */
+    public void setFanChart(double[] levels, double[][] load, double[][] pv){
+        fanLevels = levels;
+        fanLoad = load;
+        fanPv = pv;
+        if (levels.length > 0) {
+            fanLoLoad = load[0];
+            fanHiLoad = load[levels.length - 1];
+            fanLoPv = pv[0];
+            fanHiPv = pv[levels.length - 1];
+        }
     }
 }
@@ -0,0 +1,126 @@
+package com.energytwin.microgrid.service;
+
+import com.energytwin.microgrid.core.forecast.Backtest;
+import com.energytwin.microgrid.core.forecast.Forecaster;
+import com.energytwin.microgrid.core.history.HistoryBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import org.springframework.stereotype.Service;
+
+/**
+ * Records the aggregate load, PV and temperature of the running simulation and backtests
+ * forecaster configurations against the recording (see {@link Backtest}).
+ *
+ * <p>Recording is opt-in: the aggregator starts it when {@code forecast.backtestRecord} is set. The
+ * recording keeps the newest samples up to that capacity, so it can be replayed while the
+ * simulation goes on or after it has stopped.
+ */
+@Service
+public class BacktestService {
+
+  /** Origins per model when the request sets no step; each costs a fit of a batch model. */
+  private static final int DEFAULT_ORIGINS = 100;
+  private static final double[] DEFAULT_LEVELS = {
+    0.05, 0.10, 0.15, 0.20, 0.25, 0.30, 0.35, 0.40, 0.45, 0.50,
+    0.55, 0.60, 0.65, 0.70, 0.75, 0.80, 0.85, 0.90, 0.95
+  };
+
+  private final SimulationConfigService simulationConfigService;
+
+  private HistoryBuffer recording;     // null until a simulation records
+
+  public BacktestService(SimulationConfigService simulationConfigService) {
+    this.simulationConfigService = simulationConfigService;
+  }
+
+  /** Starts a new, empty recording of at most {@code capacity} samples. */
+  public synchronized void start(int capacity) {
+    recording = new HistoryBuffer(Math.max(1, capacity));
+  }
+
+  /** Appends one tick's aggregate sample (kW, kW, °C). */
+  public synchronized void record(double load, double pv, double temp) {
+    if (recording != null) recording.push(load, pv, 0, temp, 0);
+  }
+
+  /** Number of recorded samples. */
+  public synchronized int size() {
+    return recording == null ? 0 : recording.size();
+  }
+
+  /**
+   * Backtests one or more forecaster configurations on the current recording.
+   *
+   * <p>Request keys, all optional: {@code models} (default: every model), {@code window}
+   * (default {@code forecast.H_hist}), {@code horizon} (default {@code forecast.H_pred}),
+   * {@code step} (default: spread about 100 origins over the recording), {@code levels}
+   * (default 0.05 to 0.95 in steps of 0.05) and {@code parallelism} (default: number of cores).
+   *
+   * @return one result per model, in request order
+   * @throws IllegalArgumentException if the request is invalid, names an unknown model, or the
+   *     recording is off or too short
+   */
+  public List<Backtest.Result> run(Map<String, Object> request) {
+    Map<String, Object> fp = simulationConfigService.getForecastParams();
+    Map<String, Object> req = request == null ? Map.of() : request;
+    int window = intParam(req, "window", (int) fp.getOrDefault("H_hist", 24));
+    int horizon = intParam(req, "horizon", (int) fp.getOrDefault("H_pred", 4));
+    int parallelism = intParam(req, "parallelism", Runtime.getRuntime().availableProcessors());
+    double[] levels = levels(req.get("levels"));
+    List<String> models = new ArrayList<>();
+    if (req.get("models") instanceof List<?> list && !list.isEmpty()) {
+      list.forEach(m -> models.add(String.valueOf(m)));
+    } else {
+      models.addAll(Forecaster.MODELS);
+    }
+    for (String model : models) {
+      if (!Forecaster.isModel(model)) {
+        throw new IllegalArgumentException(
+            "Unknown model '" + model + "'; expected one of " + Forecaster.MODELS);
+      }
+    }
+
+    double[] load, pv, temp;
+    long firstHour;
+    synchronized (this) {
+      if (recording == null) {
+        throw new IllegalArgumentException(
+            "Nothing recorded; set forecast.backtestRecord to record the simulation");
+      }
+      load = recording.getLoad();
+      pv = recording.getPv();
+      temp = recording.getTemp();
+      firstHour = recording.getLastHour() - recording.size() + 1;
+    }
+    int all = Backtest.origins(load.length, window, horizon, 1);
+    int step = intParam(req, "step", Math.max(1, (all + DEFAULT_ORIGINS - 1) / DEFAULT_ORIGINS));
+
+    ForkJoinPool pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+    try {
+      List<Backtest.Result> results = new ArrayList<>();
+      for (String model : models) {
+        Backtest.Config cfg = new Backtest.Config(model, window, horizon, step, levels);
+        results.add(Backtest.run(cfg, load, pv, temp, firstHour, pool));
+      }
+      return results;
+    } finally {
+      if (pool != null) pool.shutdown();
+    }
+  }
+
+  private static int intParam(Map<String, Object> req, String key, int def) {
+    Object v = req.get(key);
+    return v instanceof Number n ? n.intValue() : def;
+  }
+
+  private static double[] levels(Object v) {
+    if (!(v instanceof List<?> list) || list.isEmpty()) return DEFAULT_LEVELS;
+    double[] lv = list.stream().mapToDouble(x -> ((Number) x).doubleValue()).toArray();
+    for (double l : lv) {
+      if (!(l > 0 && l < 1)) throw new IllegalArgumentException("Levels must lie in (0, 1)");
+    }
+    return lv;
+  }
+}
@@ -0,0 +1,132 @@
+package com.energytwin.microgrid.service;
+
+import com.energytwin.microgrid.core.forecast.DeviceForecastKernel;
+import com.energytwin.microgrid.registry.AgentStateRegistry;
+import com.energytwin.microgrid.ws.dto.TickDataMessage;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import org.springframework.stereotype.Service;
+
+/**
+ * Forecasts every load and PV source of the running simulation on its own.
+ *
+ * <p>Loads are forecast from the demand they report, sources from their production. All devices
+ * share one {@link DeviceForecastKernel}. It learns every device's newest value each tick and
+ * produces forecasts on request, spreading the devices over a work-stealing pool. The latest
+ * per-device quantiles can be queried at any time.
+ */
+@Service
+public class ForecastService {
+
+  private static final String[] LEVEL_NAMES = {"q05", "q50", "q95"};
+
+  private final AgentStateRegistry registry;
+  private final SimulationConfigService simulationConfigService;
+
+  private String[] names = new String[0];
+  private boolean[] isLoad = new boolean[0];
+  private DeviceForecastKernel kernel;
+  private ForkJoinPool pool;
+
+  private volatile Map<String, double[][]> latest = Map.of();
+  private volatile double lastLearnMs = Double.NaN;
+  private volatile double lastForecastMs = Double.NaN;
+
+  public ForecastService(
+      AgentStateRegistry registry, SimulationConfigService simulationConfigService) {
+    this.registry = registry;
+    this.simulationConfigService = simulationConfigService;
+  }
+
+  /**
+   * Sets up the devices of the current configuration; replaces the models of a previous run.
+   *
+   * @param horizon forecast horizon in ticks
+   * @param parallelism workers of the pool; 1 runs on the caller's thread
+   */
+  public synchronized void start(int horizon, int parallelism) {
+    stop();
+    List<String> deviceNames = new ArrayList<>();
+    List<Boolean> loads = new ArrayList<>();
+    for (Map<String, Object> def : simulationConfigService.getValidatedAgentDefinitions()) {
+      String type = String.valueOf(def.get("type"));
+      if ("load".equals(type) || "energySource".equals(type)) {
+        deviceNames.add((String) def.get("name"));
+        loads.add("load".equals(type));
+      }
+    }
+    names = deviceNames.toArray(new String[0]);
+    isLoad = new boolean[names.length];
+    for (int i = 0; i < names.length; i++) isLoad[i] = loads.get(i);
+
+    long startHour = LocalDateTime.now().toEpochSecond(ZoneOffset.UTC) / 3600;
+    kernel = new DeviceForecastKernel(names.length, horizon, startHour);
+    pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+  }
+
+  /** Drops the models and the workers of the current run. */
+  public synchronized void stop() {
+    if (pool != null) pool.shutdownNow();
+    pool = null;
+    kernel = null;
+    latest = Map.of();
+  }
+
+  /** Learns each device's latest reported value; called once per tick. */
+  public synchronized void observe(double ambientTempC) {
+    if (kernel == null || names.length == 0) return;
+    long start = System.nanoTime();
+    Map<String, TickDataMessage.AgentState> states = registry.all();
+    double[] y = new double[names.length];
+    for (int i = 0; i < names.length; i++) {
+      TickDataMessage.AgentState st = states.get(names[i]);
+      if (st != null) y[i] = isLoad[i] ? st.getDemand() : st.getProduction();
+    }
+    kernel.learn(y, ambientTempC, pool);
+    lastLearnMs = (System.nanoTime() - start) / 1e6;
+  }
+
+  /** Forecasts all devices over the horizon and publishes the result. */
+  public synchronized void forecast() {
+    if (kernel == null || names.length == 0) return;
+    long start = System.nanoTime();
+    double[][][] q = kernel.forecast(pool);
+    Map<String, double[][]> out = new LinkedHashMap<>();
+    for (int i = 0; i < names.length; i++) out.put(names[i], q[i]);
+    latest = out;
+    lastForecastMs = (System.nanoTime() - start) / 1e6;
+  }
+
+  /** Latest {@code [q05, q50, q95][step]} forecast of a device, or null if there is none. */
+  public double[][] getForecast(String device) {
+    return latest.get(device);
+  }
+
+  /** Latest forecast of every device, keyed by device and quantile name. */
+  public Map<String, Map<String, double[]>> getForecasts() {
+    Map<String, Map<String, double[]>> out = new LinkedHashMap<>();
+    latest.forEach((name, q) -> out.put(name, named(q)));
+    return out;
+  }
+
+  /** Quantile name to series, e.g. {@code q05 -> [..]}. */
+  public static Map<String, double[]> named(double[][] q) {
+    Map<String, double[]> m = new LinkedHashMap<>();
+    for (int k = 0; k < q.length; k++) m.put(LEVEL_NAMES[k], q[k]);
+    return m;
+  }
+
+  /** Wall time of the last per-tick update and of the last forecast, in milliseconds. */
+  public Map<String, Object> timings() {
+    Map<String, Object> m = new LinkedHashMap<>();
+    m.put("devices", names.length);
+    m.put("learnMs", lastLearnMs);
+    m.put("forecastMs", lastForecastMs);
+    return m;
+  }
+}
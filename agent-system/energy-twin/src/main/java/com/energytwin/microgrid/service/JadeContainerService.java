@@ -4,14 +4,19 @@ import jade.core.Profile;
 import jade.core.ProfileImpl;
 import jade.core.Runtime;
 import jade.core.Specifier;
-import jade.util.leap.ArrayList;
 import jade.wrapper.AgentController;
 import jade.wrapper.ContainerController;
 import jade.wrapper.StaleProxyException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
@@ -20,50 +25,97 @@ import org.springframework.stereotype.Service;
  * Service to manage the JADE platform.
  *
  * <p>This service first creates a main container (for core services like DF, AMS, etc.), then
- * creates an agent container (non‑main) with TopicManagement enabled.
+ * creates one or more agent containers (non‑main) with TopicManagement enabled. Agents are spread
+ * over the agent containers by {@link Placement}; topic messages are routed between containers by
+ * the TopicManagementService, which is therefore installed on the main container as well.
  *
- * <p>The stopContainer() method stops the agent container on demand (via /simulation/stop endpoint)
+ * <p>All containers live in this JVM: agents reach their Spring services through the static
+ * application context, so they cannot run in a separate process.
+ *
+ * <p>The stopContainer() method stops the agent containers on demand (via /simulation/stop
+ * endpoint)
  */
 @Service
 public class JadeContainerService {
 
+  /** How agents are assigned to agent containers. */
+  public enum Placement {
+    /** By a hash of the agent name; spreads agents of one type evenly. */
+    HASH,
+    /** All agents of one class share a container; classes are dealt out round-robin. */
+    TYPE;
+
+    public static Placement fromConfig(String value) {
+      return "type".equalsIgnoreCase(value) ? TYPE : HASH;
+    }
+  }
+
   private ContainerController mainContainer;
-  private ContainerController agentContainer;
+  private final List<ContainerController> agentContainers = new CopyOnWriteArrayList<>();
+  private final Map<String, Integer> containerOfClass = new ConcurrentHashMap<>();
+  private volatile Placement placement = Placement.HASH;
+  private final StartupTimingService startupTiming;
+
+  /** An agent to launch: local name, agent class and start-up arguments. */
+  public record AgentSpec(String name, String className, Object[] args) {}
+
   private static final ExecutorService jadeExecutor = Executors.newCachedThreadPool();
   private static final Logger logger = LoggerFactory.getLogger(JadeContainerService.class);
 
+  public JadeContainerService(StartupTimingService startupTiming) {
+    this.startupTiming = startupTiming;
+  }
+
   /**
    * Starts the JADE platform:
    *
    * <ul>
    *   <li>Creates a main container (if not already running) and stores it in mainContainer.
-   *   <li>Creates an agent container with TopicManagementService enabled and stores it in
-   *       agentContainer.
+   *   <li>Creates {@code count} agent containers with TopicManagementService enabled and stores
+   *       them in agentContainers.
    * </ul>
+   *
+   * @param count number of agent containers (at least 1).
+   * @param placement how subsequently launched agents are spread over the containers.
    */
-  public synchronized void startContainer() {
+  public synchronized void startContainers(int count, Placement placement) {
     Runtime runtime = Runtime.instance();
 
     // Create a main container if not already running.
     if (mainContainer == null) {
       Profile mainProfile = new ProfileImpl();
       mainProfile.setParameter(Profile.MAIN, "true");
+      mainProfile.setSpecifiers(Profile.SERVICES, topicManagementServices());
       mainContainer = submitTask(() -> runtime.createMainContainer(mainProfile));
       logger.info("Main container created.");
     }
 
-    // Create an agent container with TopicManagementService enabled via Specifier.
-    Profile agentProfile = new ProfileImpl();
-    ArrayList serviceList = new ArrayList();
-    serviceList.add(createTopicManagementSpecifier());
-    agentProfile.setSpecifiers(Profile.SERVICES, serviceList);
-    agentContainer = submitTask(() -> runtime.createAgentContainer(agentProfile));
+    // Create the agent containers with TopicManagementService enabled via Specifier.
+    long start = System.nanoTime();
+    this.placement = placement;
+    agentContainers.clear();
+    containerOfClass.clear();
+    for (int i = 0; i < Math.max(1, count); i++) {
+      Profile agentProfile = new ProfileImpl();
+      agentProfile.setSpecifiers(Profile.SERVICES, topicManagementServices());
+      ContainerController container =
+          submitTask(() -> runtime.createAgentContainer(agentProfile));
 
-    // Check if agentContainer was created successfully.
-    if (agentContainer == null) {
-      throw new RuntimeException("Agent container not created. Mandatory services may be missing.");
+      // Check if the container was created successfully.
+      if (container == null) {
+        throw new RuntimeException(
+            "Agent container not created. Mandatory services may be missing.");
+      }
+      agentContainers.add(container);
     }
-    logger.info("Agent container created.");
+    startupTiming.record(StartupTimingService.Phase.CONTAINER_CREATION, System.nanoTime() - start);
+    logger.info("{} agent container(s) created, placement {}.", agentContainers.size(), placement);
+  }
+
+  private jade.util.leap.ArrayList topicManagementServices() {
+    jade.util.leap.ArrayList serviceList = new jade.util.leap.ArrayList();
+    serviceList.add(createTopicManagementSpecifier());
+    return serviceList;
   }
 
   private Specifier createTopicManagementSpecifier() {
@@ -83,7 +135,8 @@ public class JadeContainerService {
   }
 
   /**
-   * Launches a new JADE agent in the agent container with the given name and class.
+   * Launches a new JADE agent with the given name and class in the agent container chosen by the
+   * current placement.
    *
    * @param agentName the name of the agent.
    * @param agentClassName the fully qualified class name of the agent.
@@ -91,31 +144,101 @@ public class JadeContainerService {
   public void launchAgent(String agentName, String agentClassName) {
     try {
       Object[] args = new Object[] {};
-      AgentController agent = agentContainer.createNewAgent(agentName, agentClassName, args);
+      int slot = containerFor(agentName, agentClassName);
+      AgentController agent =
+          agentContainers.get(slot).createNewAgent(agentName, agentClassName, args);
       agent.start();
-      logger.info("Launched agent: {} ({})", agentName, agentClassName);
+      logger.info("Launched agent: {} ({}) in container {}", agentName, agentClassName, slot);
     } catch (StaleProxyException e) {
       logger.error("Error during JADE agent launch", e);
     }
   }
 
   /**
-   * Stops the agent container gracefully.
+   * Creates and starts a batch of agents concurrently, using up to one thread per available core.
+   * Agents are placed as by {@link #launchAgent}; their setup then runs on their own threads. The
+   * wall-clock time of the batch is recorded as the agent-creation phase.
    *
-   * <p>This method is invoked by the /simulation/stop endpoint to stop the simulation agents.
+   * @param specs the agents to launch.
    */
-  public synchronized void stopContainer() {
-    if (agentContainer != null) {
+  public void launchAgents(List<AgentSpec> specs) {
+    long start = System.nanoTime();
+    int cores = java.lang.Runtime.getRuntime().availableProcessors();
+    int workers = Math.max(1, Math.min(specs.size(), cores));
+    List<Future<?>> tasks = new ArrayList<>(workers);
+    for (int w = 0; w < workers; w++) {
+      int first = w;
+      tasks.add(
+          jadeExecutor.submit(
+              () -> {
+                for (int i = first; i < specs.size(); i += workers) {
+                  AgentSpec spec = specs.get(i);
+                  createAndStart(spec.name(), spec.className(), spec.args());
+                }
+              }));
+    }
+    for (Future<?> task : tasks) {
       try {
-        agentContainer.kill();
-        agentContainer = null;
-        logger.info("Agent container successfully killed.");
-      } catch (Exception e) {
-        logger.error("Error stopping the agent container", e);
-        throw new RuntimeException("Error stopping the agent container", e);
+        task.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException("Interrupted while launching agents", e);
+      } catch (ExecutionException e) {
+        logger.error("Error during JADE agent launch", e.getCause());
       }
-    } else {
+    }
+    startupTiming.record(StartupTimingService.Phase.AGENT_CREATION, System.nanoTime() - start);
+    logger.info(
+        "Launched {} agents on {} threads in {} ms",
+        specs.size(),
+        workers,
+        (System.nanoTime() - start) / 1_000_000);
+  }
+
+  private void createAndStart(String agentName, String agentClassName, Object[] args) {
+    try {
+      int slot = containerFor(agentName, agentClassName);
+      AgentController agent =
+          agentContainers.get(slot).createNewAgent(agentName, agentClassName, args);
+      agent.start();
+    } catch (StaleProxyException e) {
+      logger.error("Error during JADE agent launch of {}", agentName, e);
+    }
+  }
+
+  /** Index of the agent container an agent is placed in. */
+  int containerFor(String agentName, String agentClassName) {
+    int n = agentContainers.size();
+    if (n == 0) {
+      throw new IllegalStateException("No agent container running.");
+    }
+    if (placement == Placement.TYPE) {
+      return containerOfClass.computeIfAbsent(
+          agentClassName, c -> containerOfClass.size() % n);
+    }
+    return Math.floorMod(agentName.hashCode(), n);
+  }
+
+  /**
+   * Stops the agent containers gracefully.
+   *
+   * <p>This method is invoked by the /simulation/stop endpoint to stop the simulation agents.
+   */
+  public synchronized void stopContainer() {
+    if (agentContainers.isEmpty()) {
       logger.warn("Agent container is not running; nothing to stop.");
+      return;
+    }
+    try {
+      for (ContainerController container : agentContainers) {
+        container.kill();
+      }
+      logger.info("{} agent container(s) successfully killed.", agentContainers.size());
+    } catch (Exception e) {
+      logger.error("Error stopping the agent container", e);
+      throw new RuntimeException("Error stopping the agent container", e);
+    } finally {
+      agentContainers.clear();
     }
   }
 }
@@ -1,5 +1,6 @@
 package com.energytwin.microgrid.service;
 
+import com.energytwin.microgrid.core.base.AbstractAggregatorAgent;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.annotation.PostConstruct;
 import lombok.Getter;
@@ -25,6 +26,12 @@ public class SimulationConfigService {
 
   private Map<?, ?> config;
 
+  /** agent name -> agent definition, rebuilt whenever the config changes */
+  private volatile Map<String, Map<String, Object>> agentsByName = Map.of();
+
+  /** member agent name -> feeder name; agents not listed report to the root aggregator */
+  private volatile Map<String, String> feederOfMember = Map.of();
+
   @Getter
   private volatile Map<String,Object>  weatherParams   = Map.of();
   private final AtomicLong weatherVersion  = new AtomicLong(0);
@@ -47,6 +54,8 @@ public class SimulationConfigService {
       if (!newCfg.containsKey("simulation"))
         throw new IllegalArgumentException("missing simulation block");
       this.config = newCfg;
+      this.agentsByName = indexAgents(getValidatedAgentDefinitions());
+      this.feederOfMember = indexFeederMembers(getFeederDefinitions());
 
       Object w = ((Map<?,?>) newCfg.get("simulation")).get("weather");
       if (w instanceof Map<?,?> mp)
@@ -155,6 +164,21 @@ public class SimulationConfigService {
     return (int) metricsPerNTick;
   }
 
+  /**
+   * Returns the tick mode: {@code "realtime"} (wall-clock ticks, the default) or {@code
+   * "lockstep"} (next tick as soon as all agents acknowledged the previous one).
+   */
+  public String getTickMode() {
+    Object mode = getSimulationMap().get("tickMode");
+    return mode == null ? "realtime" : mode.toString();
+  }
+
+  /** Maximum time a lock-step tick waits for missing acknowledgements before moving on. */
+  public long getLockStepTimeoutMillis() {
+    Object timeout = getSimulationMap().get("lockStepTimeoutMillis");
+    return timeout == null ? 5000L : Long.parseLong(timeout.toString());
+  }
+
   /**
    * Validates and retrieves the list of agent definitions from the simulation configuration.
    *
@@ -199,28 +223,132 @@ public class SimulationConfigService {
   }
 
   /**
-   * Iterates over the list of agent definitions and returns the definition for an agent that
-   * matches the expected type and name.
+   * Returns the definition of the agent with the given name if it has the expected type. Lookups go
+   * through a name index built when the configuration is set, so they take constant time.
    *
    * @param expectedType The expected type (e.g., "energySource").
    * @param agentName The name of the agent.
    * @return The agent definition map if found; otherwise, null.
    */
   public Map<String, Object> findAgentDefinition(String expectedType, String agentName) {
-    List<Map<String, Object>> agentsList = this.getValidatedAgentDefinitions();
-    for (Map<String, Object> agentDef : agentsList) {
-      Object typeObj = agentDef.get("type");
-      Object nameObj = agentDef.get("name");
-      if (typeObj instanceof String type && nameObj instanceof String name) {
-        if (expectedType.equalsIgnoreCase(type) && agentName.equals(name)) {
-          return agentDef;
+    Map<String, Object> agentDef = agentsByName.get(agentName);
+    if (agentDef == null || !expectedType.equalsIgnoreCase((String) agentDef.get("type"))) {
+      return null;
+    }
+    return agentDef;
+  }
+
+  private static Map<String, Map<String, Object>> indexAgents(
+      List<Map<String, Object>> agentDefinitions) {
+    Map<String, Map<String, Object>> index = new HashMap<>();
+    for (Map<String, Object> agentDef : agentDefinitions) {
+      if (index.putIfAbsent((String) agentDef.get("name"), agentDef) != null) {
+        logger.warn("Duplicate agent name '{}' in configuration.", agentDef.get("name"));
+      }
+    }
+    return index;
+  }
+
+  /** Deadline of a single CNP round; the round closes earlier once every responder answered. */
+  public long getCnpDeadlineMillis() {
+    Object deadline = getSimulationMap().get("cnpDeadlineMillis");
+    return deadline == null ? 500L : Long.parseLong(deadline.toString());
+  }
+
+  /**
+   * How equally priced CNP proposals share the marginal quantity: {@code "largestFirst"} (default)
+   * or {@code "proRata"}.
+   */
+  public String getCnpTieBreak() {
+    Object tieBreak = getSimulationMap().get("cnpTieBreak");
+    return tieBreak == null ? "largestFirst" : tieBreak.toString();
+  }
+
+  /** Number of in-process JADE agent containers the agents are spread over (default 1). */
+  public int getAgentContainers() {
+    Object containers = getSimulationMap().get("agentContainers");
+    return containers == null ? 1 : Integer.parseInt(containers.toString());
+  }
+
+  /**
+   * How agents are assigned to agent containers: {@code "hash"} of the agent name (default) or
+   * {@code "type"} (one container per agent class).
+   */
+  public String getAgentPlacement() {
+    Object placement = getSimulationMap().get("agentPlacement");
+    return placement == null ? "hash" : placement.toString();
+  }
+
+  /**
+   * Returns the feeder sub-aggregators declared under {@code simulation.feeders}, each a Map with a
+   * String "name" and a List "members" of agent names. Returns an empty list if none are declared.
+   *
+   * @throws IllegalArgumentException if a feeder definition is malformed.
+   */
+  public List<Map<String, Object>> getFeederDefinitions() {
+    Object feedersObj = getSimulationMap().get("feeders");
+    if (feedersObj == null) {
+      return List.of();
+    }
+    if (!(feedersObj instanceof List<?> rawFeeders)) {
+      throw new IllegalArgumentException(
+          "'feeders' is not a List. Found type: " + feedersObj.getClass().getName());
+    }
+    List<Map<String, Object>> feeders = new ArrayList<>();
+    for (Object feederObj : rawFeeders) {
+      if (!(feederObj instanceof Map)) {
+        throw new IllegalArgumentException("Feeder definition is not a Map.");
+      }
+      @SuppressWarnings("unchecked")
+      Map<String, Object> feeder = (Map<String, Object>) feederObj;
+      if (!(feeder.get("name") instanceof String)) {
+        throw new IllegalArgumentException("Feeder definition 'name' is not a String.");
+      }
+      if (!(feeder.get("members") instanceof List)) {
+        throw new IllegalArgumentException(
+            "Feeder '" + feeder.get("name") + "' has no 'members' list.");
+      }
+      feeders.add(feeder);
+    }
+    return feeders;
+  }
+
+  /**
+   * Returns the local name of the aggregator the given agent reports to: the feeder listing it as a
+   * member, or the root aggregator.
+   */
+  public String getParentAggregator(String agentName) {
+    return feederOfMember.getOrDefault(agentName, AbstractAggregatorAgent.ROOT_NAME);
+  }
+
+  private static Map<String, String> indexFeederMembers(List<Map<String, Object>> feeders) {
+    Map<String, String> index = new HashMap<>();
+    for (Map<String, Object> feeder : feeders) {
+      String feederName = (String) feeder.get("name");
+      for (Object member : (List<?>) feeder.get("members")) {
+        String previous = index.put(String.valueOf(member), feederName);
+        if (previous != null) {
+          throw new IllegalArgumentException(
+              "Agent '" + member + "' is a member of feeders '" + previous + "' and '"
+                  + feederName + "'.");
         }
-      } else {
-        logger.error(
-            "Warning: 'type' or 'name' field is not a String in agent definition: {}", agentDef);
       }
     }
-    return null;
+    return index;
+  }
+
+  private Map<String, Object> getSimulationMap() {
+    Object simulationObj = config.get("simulation");
+    if (simulationObj == null) {
+      throw new IllegalArgumentException("Missing 'simulation' key in configuration.");
+    }
+    if (!(simulationObj instanceof Map)) {
+      throw new IllegalArgumentException(
+          "'simulation' is not a Map. Found type: " + simulationObj.getClass().getName());
+    }
+    @SuppressWarnings("unchecked")
+    Map<String, Object> simulationMap = (Map<String, Object>) simulationObj;
+    return simulationMap;
   }
 
   private static List<Object> getAgentsList(Object simulationObj) {
@@ -1,5 +1,6 @@
 package com.energytwin.microgrid.service;
 
+import java.util.concurrent.atomic.AtomicInteger;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.stereotype.Service;
@@ -9,10 +10,24 @@ import org.springframework.stereotype.Service;
 @Service
 public class SimulationControlService {
 
+  /** Smoothing factor of the ticks-per-second moving average. */
+  private static final double THROUGHPUT_ALPHA = 0.1;
+
   @Setter private int tickIntervalMillis = 1000;
   @Setter private double speedUpFactor = 1;
+  @Setter private long lockStepTimeoutMillis = 5000;
   private volatile boolean paused = false;
 
+  /**
+   * In lock-step mode the next tick is broadcast as soon as every tick subscriber acknowledged the
+   * previous one, instead of waiting for the wall-clock tick interval.
+   */
+  @Setter private volatile boolean lockStep = false;
+
+  private final AtomicInteger tickSubscribers = new AtomicInteger();
+  private volatile double ticksPerSecond = 0.0;
+  private long lastTickNanos = 0;
+
   /**
    * Returns the simulation delay.
    *
@@ -29,4 +44,34 @@ public class SimulationControlService {
   public void resume() {
     this.paused = false;
   }
+
+  /** Called once by every agent that subscribes to the tick topic. */
+  public void registerTickSubscriber() {
+    tickSubscribers.incrementAndGet();
+  }
+
+  /** Number of agents whose acknowledgement closes a lock-step tick. */
+  public int getTickSubscriberCount() {
+    return tickSubscribers.get();
+  }
+
+  /** Clears per-run bookkeeping; called before a new set of agents is launched. */
+  public synchronized void resetRun() {
+    tickSubscribers.set(0);
+    ticksPerSecond = 0.0;
+    lastTickNanos = 0;
+  }
+
+  /** Records a broadcast tick and updates the smoothed ticks-per-second throughput. */
+  public synchronized void recordTick() {
+    long now = System.nanoTime();
+    if (lastTickNanos != 0) {
+      double instant = 1e9 / Math.max(1, now - lastTickNanos);
+      ticksPerSecond =
+          ticksPerSecond == 0.0
+              ? instant
+              : THROUGHPUT_ALPHA * instant + (1 - THROUGHPUT_ALPHA) * ticksPerSecond;
+    }
+    lastTickNanos = now;
+  }
 }
@@ -0,0 +1,122 @@
+package com.energytwin.microgrid.service;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import org.springframework.stereotype.Service;
+
+/**
+ * Collects per-phase timings of the last simulation start.
+ *
+ * <p>Container and agent creation are measured once by the launcher (wall clock). Agent setup and
+ * topic subscription run concurrently on the agents' own threads, so for them the total, the
+ * maximum and the number of samples are kept. Agent setup includes the agent's topic subscriptions.
+ * Only the agents of the launched batch count towards readiness.
+ */
+@Service
+public class StartupTimingService {
+
+  /** Startup phases. */
+  public enum Phase {
+    CONTAINER_CREATION,
+    AGENT_CREATION,
+    AGENT_SETUP,
+    TOPIC_SUBSCRIPTION
+  }
+
+  private final Map<Phase, LongAdder> totalNanos = new EnumMap<>(Phase.class);
+  private final Map<Phase, LongAccumulator> maxNanos = new EnumMap<>(Phase.class);
+  private final Map<Phase, LongAdder> samples = new EnumMap<>(Phase.class);
+  private final AtomicLong startedAtNanos = new AtomicLong();
+  private final AtomicLong readyAtNanos = new AtomicLong();
+  private volatile int expectedAgents;
+  private volatile Batch batch = new Batch(Set.of(), new CountDownLatch(0));
+
+  /** Local names of the agents still setting up, and a latch counting them down. */
+  private record Batch(Set<String> pending, CountDownLatch ready) {}
+
+  public StartupTimingService() {
+    for (Phase phase : Phase.values()) {
+      totalNanos.put(phase, new LongAdder());
+      maxNanos.put(phase, new LongAccumulator(Math::max, 0));
+      samples.put(phase, new LongAdder());
+    }
+  }
+
+  /**
+   * Clears all timings; called before a new set of agents is launched.
+   *
+   * @param agents local names of the agents whose setup completes the start.
+   */
+  public synchronized void reset(Collection<String> agents) {
+    for (Phase phase : Phase.values()) {
+      totalNanos.get(phase).reset();
+      maxNanos.get(phase).reset();
+      samples.get(phase).reset();
+    }
+    Set<String> pending = ConcurrentHashMap.newKeySet();
+    pending.addAll(agents);
+    expectedAgents = pending.size();
+    batch = new Batch(pending, new CountDownLatch(pending.size()));
+    readyAtNanos.set(0);
+    startedAtNanos.set(System.nanoTime());
+  }
+
+  /** Adds one measurement of the given phase. */
+  public void record(Phase phase, long nanos) {
+    totalNanos.get(phase).add(nanos);
+    maxNanos.get(phase).accumulate(nanos);
+    samples.get(phase).increment();
+  }
+
+  /**
+   * Called by every agent once its setup has finished. Agents outside the launched batch, such as
+   * the orchestrator, and repeated calls are ignored.
+   */
+  public void agentReady(String agent) {
+    Batch b = batch;
+    if (!b.pending().remove(agent)) {
+      return;
+    }
+    CountDownLatch latch = b.ready();
+    latch.countDown();
+    if (latch.getCount() == 0) {
+      readyAtNanos.compareAndSet(0, System.nanoTime());
+    }
+  }
+
+  /**
+   * Waits until all expected agents finished their setup.
+   *
+   * @return false if the timeout expired first.
+   */
+  public boolean awaitReady(long timeoutMillis) throws InterruptedException {
+    return batch.ready().await(timeoutMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /** Timings in milliseconds, keyed by phase, plus the time from reset until all agents were up. */
+  public Map<String, Object> snapshot() {
+    Map<String, Object> out = new LinkedHashMap<>();
+    for (Phase phase : Phase.values()) {
+      Map<String, Object> p = new LinkedHashMap<>();
+      p.put("totalMs", totalNanos.get(phase).sum() / 1e6);
+      p.put("maxMs", maxNanos.get(phase).get() / 1e6);
+      p.put("samples", samples.get(phase).sum());
+      out.put(phase.name(), p);
+    }
+    long readyAt = readyAtNanos.get();
+    Batch b = batch;
+    out.put("expectedAgents", expectedAgents);
+    out.put("readyAgents", expectedAgents - b.ready().getCount());
+    out.put("untilAllReadyMs", readyAt == 0 ? null : (readyAt - startedAtNanos.get()) / 1e6);
+    return out;
+  }
+}
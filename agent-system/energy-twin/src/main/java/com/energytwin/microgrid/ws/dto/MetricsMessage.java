@@ -13,6 +13,18 @@ public class MetricsMessage {
     private double totalProducedPerNTicks;
     private double totalDemandPerNTicks;
     private double greenEnergyRatioPct;
+    private double ticksPerSecond;
+    private double negotiationLatencyMs;
+    private double forecastTrainingMs;
+    private int forecastTrainingQueue;
+    private long forecastModelAgeTicks;
+    private double forecastTrainingUtilization;
+    private double forecastPredictionUtilization;
+    private double forecastSnapshotSaveMs;
+    private double forecastSnapshotLoadMs;
+    private double plannerSolveMs;
+    private String plannerStatus;
+    private long plannerFallbacks;
 
     private double rmseLoadKw;
     private double rmsePvKw;
@@ -20,6 +20,9 @@ public class TickDataMessage {
     private double[] fanHiLoad;           // length = H_pred : q95
     private double[] fanLoPv;
     private double[] fanHiPv;
+    private double[] fanLevels;           // quantile levels of the rows below
+    private double[][] fanLoad;           // [level][H_pred]
+    private double[][] fanPv;
 
     @Getter
     @Setter
@@ -2,6 +2,7 @@ package com.energytwin.microgrid.ws.simulation;
 
 import com.energytwin.microgrid.registry.AgentStateRegistry;
 import com.energytwin.microgrid.service.SimulationConfigService;
+import com.energytwin.microgrid.service.SimulationControlService;
 import com.energytwin.microgrid.ws.dto.MetricsMessage;
 import com.energytwin.microgrid.ws.dto.TickDataMessage;
 import com.energytwin.microgrid.ws.service.MetricsPublishingService;
@@ -19,6 +20,7 @@ public class SimulationControlServiceWS {
     private long tickCounter = 0;
     private final AgentStateRegistry registry;
     private final SimulationConfigService simulationConfigService;
+    private final SimulationControlService simulationControlService;
 
     private final ScheduledExecutorService exec =
             Executors.newSingleThreadScheduledExecutor();
@@ -31,11 +33,12 @@ public class SimulationControlServiceWS {
 
     private double cnpNegotiations = 0.0;
 
-    public SimulationControlServiceWS(TickPublishingService tickPublisher, MetricsPublishingService metricsPublisher, AgentStateRegistry registry, SimulationConfigService simulationConfigService) {
+    public SimulationControlServiceWS(TickPublishingService tickPublisher, MetricsPublishingService metricsPublisher, AgentStateRegistry registry, SimulationConfigService simulationConfigService, SimulationControlService simulationControlService) {
         this.tickPublisher = tickPublisher;
         this.metricsPublisher = metricsPublisher;
         this.registry = registry;
         this.simulationConfigService = simulationConfigService;
+        this.simulationControlService = simulationControlService;
     }
 
     public void onTickCompleted(){
@@ -57,8 +60,11 @@ public class SimulationControlServiceWS {
 
         tickDataMessage.setFanLoLoad(registry.getFanLoLoad());
         tickDataMessage.setFanHiLoad(registry.getFanHiLoad());
-        tickDataMessage.setFanLoLoad(registry.getFanLoPv());
-        tickDataMessage.setFanHiLoad(registry.getFanHiPv());
+        tickDataMessage.setFanLoPv(registry.getFanLoPv());
+        tickDataMessage.setFanHiPv(registry.getFanHiPv());
+        tickDataMessage.setFanLevels(registry.getFanLevels());
+        tickDataMessage.setFanLoad(registry.getFanLoad());
+        tickDataMessage.setFanPv(registry.getFanPv());
 
         tickPublisher.publish(tickDataMessage);
 
@@ -104,6 +110,18 @@ public class SimulationControlServiceWS {
         double ratioPct = (cumulativeTotalDemand > 0) ? 100.0 * (cumulativeGreenSupply/cumulativeTotalDemand)
                 : 0.0;
         msg.setGreenEnergyRatioPct(ratioPct);
+        msg.setTicksPerSecond(simulationControlService.getTicksPerSecond());
+        msg.setNegotiationLatencyMs(registry.getLastNegotiationMs());
+        msg.setForecastTrainingMs(registry.getForecastTrainingMs());
+        msg.setForecastTrainingQueue(registry.getForecastTrainingQueue());
+        msg.setForecastModelAgeTicks(registry.getForecastModelAgeTicks());
+        msg.setForecastTrainingUtilization(registry.getForecastTrainingUtilization());
+        msg.setForecastPredictionUtilization(registry.getForecastPredictionUtilization());
+        msg.setForecastSnapshotSaveMs(registry.getForecastSnapshotSaveMs());
+        msg.setForecastSnapshotLoadMs(registry.getForecastSnapshotLoadMs());
+        msg.setPlannerSolveMs(registry.getPlannerSolveMs());
+        msg.setPlannerStatus(registry.getPlannerStatus());
+        msg.setPlannerFallbacks(registry.getPlannerFallbacks());
 
         totalProducedPerNTicks = 0.0;
         totalDemandPerNTicks = 0.0;
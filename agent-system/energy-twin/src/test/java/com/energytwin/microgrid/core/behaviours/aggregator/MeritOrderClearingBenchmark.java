@@ -0,0 +1,47 @@
+package com.energytwin.microgrid.core.behaviours.aggregator;
+
+import com.energytwin.microgrid.core.behaviours.aggregator.MeritOrderClearing.TieBreak;
+import java.util.SplittableRandom;
+
+/**
+ * Times the clearing of 10k random proposals. Not part of the test suite; run its {@code main}
+ * from the IDE or with the test classpath.
+ */
+public final class MeritOrderClearingBenchmark {
+
+  private MeritOrderClearingBenchmark() {}
+
+  public static void main(String[] args) {
+    int n = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+    int reps = 200;
+    double[] amount = new double[n];
+    double[] cost = new double[n];
+    double[] accepted = new double[n];
+    double requested = randomOffers(new SplittableRandom(42), amount, cost) / 2;
+
+    for (int r = 0; r < reps; r++) {         // warm-up
+      MeritOrderClearing.clear(amount, cost, n, requested, TieBreak.LARGEST_FIRST, accepted);
+    }
+    long start = System.nanoTime();
+    for (int r = 0; r < reps; r++) {
+      MeritOrderClearing.clear(amount, cost, n, requested, TieBreak.LARGEST_FIRST, accepted);
+    }
+    double ms = (System.nanoTime() - start) / 1e6 / reps;
+    System.out.printf("MeritOrderClearing: %d proposals, %.3f ms per clearing%n", n, ms);
+  }
+
+  /**
+   * Fills offers of 1 to 10 kW at prices in steps of 0.1, so many offers share a price.
+   *
+   * @return the total offered quantity
+   */
+  static double randomOffers(SplittableRandom rng, double[] amount, double[] cost) {
+    double offered = 0;
+    for (int i = 0; i < amount.length; i++) {
+      amount[i] = 1 + rng.nextDouble() * 9;
+      cost[i] = Math.floor(rng.nextDouble() * 100) / 10;
+      offered += amount[i];
+    }
+    return offered;
+  }
+}
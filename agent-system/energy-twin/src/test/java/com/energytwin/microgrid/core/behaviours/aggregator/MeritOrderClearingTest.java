@@ -0,0 +1,104 @@
+package com.energytwin.microgrid.core.behaviours.aggregator;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.energytwin.microgrid.core.behaviours.aggregator.MeritOrderClearing.TieBreak;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+
+class MeritOrderClearingTest {
+
+  private static final double EPS = 1e-9;
+
+  @Test
+  void fillsCheapestFirstAndSplitsTheMarginalOffer() {
+    double[] amount = {5, 3, 4};
+    double[] cost = {2, 1, 3};
+    double[] accepted = new double[3];
+
+    double left = MeritOrderClearing.clear(amount, cost, 3, 6, TieBreak.LARGEST_FIRST, accepted);
+
+    assertEquals(0, left, EPS);
+    assertArrayEquals(new double[] {3, 3, 0}, accepted, EPS);
+  }
+
+  @Test
+  void reportsTheQuantityThatCannotBeAllocated() {
+    double[] amount = {2, -1, 1};
+    double[] cost = {1, 0, 2};
+    double[] accepted = new double[3];
+
+    double left = MeritOrderClearing.clear(amount, cost, 3, 10, TieBreak.LARGEST_FIRST, accepted);
+
+    assertEquals(7, left, EPS);
+    assertArrayEquals(new double[] {2, 0, 1}, accepted, EPS);
+  }
+
+  @Test
+  void ranksEqualPricesByAmountThenArrival() {
+    double[] amount = {1, 4, 4, 2};
+    double[] cost = {1, 1, 1, 1};
+
+    assertArrayEquals(new int[] {1, 2, 3, 0}, MeritOrderClearing.meritOrder(amount, cost, 4));
+  }
+
+  @Test
+  void proRataSharesTheMarginalTierByTheSameFraction() {
+    double[] amount = {2, 6, 2, 5};
+    double[] cost = {1, 2, 2, 3};
+    double[] accepted = new double[4];
+
+    double left = MeritOrderClearing.clear(amount, cost, 4, 6, TieBreak.PRO_RATA, accepted);
+
+    assertEquals(0, left, EPS);
+    assertArrayEquals(new double[] {2, 3, 1, 0}, accepted, EPS);
+  }
+
+  /**
+   * Clears 10k random proposals and checks the result against a plain sort of the same offers:
+   * the merit order, full acceptance up to the marginal offer, its partial fill and the clearing
+   * price. {@link MeritOrderClearingBenchmark} times the same input.
+   */
+  @Test
+  void clearsTenThousandProposals() {
+    int n = 10_000;
+    double[] amount = new double[n];
+    double[] cost = new double[n];
+    double requested =
+        MeritOrderClearingBenchmark.randomOffers(new SplittableRandom(42), amount, cost) / 2;
+    double[] accepted = new double[n];
+
+    double left =
+        MeritOrderClearing.clear(amount, cost, n, requested, TieBreak.LARGEST_FIRST, accepted);
+
+    Integer[] expected = new Integer[n];
+    for (int i = 0; i < n; i++) {
+      expected[i] = i;
+    }
+    Arrays.sort(expected, Comparator.<Integer>comparingDouble(i -> cost[i])
+        .thenComparing(i -> -amount[i]));
+    int[] order = MeritOrderClearing.meritOrder(amount, cost, n);
+    for (int k = 0; k < n; k++) {
+      assertEquals((int) expected[k], order[k], "rank " + k);
+    }
+
+    double before = 0;
+    int marginal = 0;
+    while (before + amount[order[marginal]] < requested) {
+      before += amount[order[marginal++]];
+    }
+    double price = cost[order[marginal]];
+    for (int k = 0; k < n; k++) {
+      int p = order[k];
+      double want = k < marginal ? amount[p] : k == marginal ? requested - before : 0;
+      assertEquals(want, accepted[p], 1e-6, "offer at rank " + k);
+      assertTrue(accepted[p] == 0 || cost[p] <= price, "accepted above the price at rank " + k);
+    }
+    assertEquals(0, left, EPS);
+    assertEquals(requested, Arrays.stream(accepted).sum(), 1e-6);
+  }
+}
@@ -0,0 +1,64 @@
+package com.energytwin.microgrid.core.forecast;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+class BacktestTest {
+
+  private static final double EPS = 1e-12;
+
+  @Test
+  void evenlySpacedLevelsWeighTheSame() {
+    double[] w = Backtest.crpsWeights(new double[] {0.1, 0.3, 0.5, 0.7, 0.9});
+
+    assertArrayEquals(new double[] {0.2, 0.2, 0.2, 0.2, 0.2}, w, EPS);
+  }
+
+  @Test
+  void unevenLevelsAreWeightedByTheirSpacing() {
+    // cell widths 0.05, 0.225, 0.4, 0.225, 0.05 out of 0.95
+    double[] w = Backtest.crpsWeights(new double[] {0.05, 0.1, 0.5, 0.9, 0.95});
+
+    assertArrayEquals(new double[] {0.05, 0.225, 0.4, 0.225, 0.05}, scale(w, 0.95), EPS);
+  }
+
+  @Test
+  void rejectsUnknownModels() {
+    double[] series = new double[48];
+    Backtest.Config cfg = new Backtest.Config("arima", 24, 4, 1, Forecaster.LEVELS);
+
+    assertThrows(IllegalArgumentException.class,
+        () -> Backtest.run(cfg, series, series, series, 0, null));
+  }
+
+  @Test
+  void scoresEveryOriginAtTheRequestedStride() {
+    int n = 24 * 14;
+    double[] load = new double[n];
+    double[] pv = new double[n];
+    double[] temp = new double[n];
+    for (int i = 0; i < n; i++) {
+      load[i] = 40 + 10 * Math.sin(2 * Math.PI * i / 24);
+      pv[i] = Math.max(0, 20 * Math.sin(2 * Math.PI * (i - 6) / 24));
+      temp[i] = 15;
+    }
+    Backtest.Config cfg = new Backtest.Config(Forecaster.SEASONAL, 24 * 7, 4, 6, Forecaster.LEVELS);
+
+    Backtest.Result r = Backtest.run(cfg, load, pv, temp, 0, null);
+
+    assertEquals(Backtest.origins(n, 24 * 7, 4, 6), r.origins());
+    assertEquals(6, r.step());
+    assertEquals(4, r.load().crps().length);
+  }
+
+  private static double[] scale(double[] w, double factor) {
+    double[] out = new double[w.length];
+    for (int j = 0; j < w.length; j++) {
+      out[j] = w[j] * factor;
+    }
+    return out;
+  }
+}
@@ -0,0 +1,72 @@
+package com.energytwin.microgrid.core.forecast;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.energytwin.microgrid.core.history.HistoryBuffer;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/** Checks that the pooled forecaster fits and forecasts exactly like the single thread. */
+class ProbabilisticForecasterParallelTest {
+
+  private static final int HORIZON = 24;
+  private static final int HISTORY = 720;
+  private static final int WORKERS = 4;
+  private static final long SEED = 11;
+
+  private ForkJoinPool pool;
+  private final HistoryBuffer history = new HistoryBuffer(HISTORY, 0);
+
+  @BeforeEach
+  void setUp() {
+    pool = new ForkJoinPool(WORKERS);
+    SplittableRandom rng = new SplittableRandom(7);
+    for (int h = 0; h < HISTORY; h++) {
+      double day = 2 * Math.PI * (h % 24) / 24;
+      double load = 40 + 15 * Math.sin(day - 1.5) + 3 * rng.nextGaussian();
+      double pv = Math.max(0, 30 * Math.sin(day - Math.PI / 2) + 2 * rng.nextGaussian());
+      double temp = 12 + 6 * Math.sin(day - 2) + rng.nextGaussian();
+      history.push(load, pv, pv * 30, temp, 50);
+    }
+  }
+
+  @AfterEach
+  void tearDown() {
+    pool.shutdownNow();
+  }
+
+  @Test
+  void pooledFitAndForecastMatchTheSingleThreadedOnes() {
+    ProbabilisticForecaster single = new ProbabilisticForecaster(HORIZON, null, SEED);
+    ProbabilisticForecaster pooled = new ProbabilisticForecaster(HORIZON, pool, SEED);
+    fit(single);
+    fit(pooled);
+
+    double[][][] expected = single.predictBoth();
+    double[][][] actual = pooled.predictBoth();
+    for (int target = 0; target < 2; target++) {
+      for (int level = 0; level < expected[target].length; level++) {
+        assertArrayEquals(expected[target][level], actual[target][level], 0.0);
+      }
+    }
+    assertBusy(pooled.getLastTrainingUtilization());
+    assertBusy(pooled.getLastPredictionUtilization());
+  }
+
+  private void fit(ProbabilisticForecaster f) {
+    HistoryBuffer.Window window = history.window();
+    f.update(window);
+    for (int h = 0; h < HISTORY; h++) {
+      f.observe(window.load()[h], window.pv()[h], window.temp()[h], h);
+    }
+    assertTrue(f.hasModel());
+  }
+
+  private static void assertBusy(double utilization) {
+    assertTrue(Double.isFinite(utilization) && utilization > 0, "utilization " + utilization);
+  }
+}
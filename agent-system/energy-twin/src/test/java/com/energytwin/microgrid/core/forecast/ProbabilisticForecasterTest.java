@@ -0,0 +1,76 @@
+package com.energytwin.microgrid.core.forecast;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.energytwin.microgrid.core.history.HistoryBuffer;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ProbabilisticForecasterTest {
+
+  private static final int HORIZON = 24;
+  private static final int HISTORY = 240;
+  private static final int CONTEXT = 7;
+
+  private final double[] load = new double[HISTORY + CONTEXT];
+  private final double[] pv = new double[HISTORY + CONTEXT];
+  private final double[] temp = new double[HISTORY + CONTEXT];
+  private ProbabilisticForecaster fitted;
+
+  @BeforeEach
+  void setUp() {
+    SplittableRandom rng = new SplittableRandom(5);
+    for (int h = 0; h < load.length; h++) {
+      double day = 2 * Math.PI * (h % 24) / 24;
+      load[h] = 40 + 15 * Math.sin(day - 1.5) + 3 * rng.nextGaussian();
+      pv[h] = Math.max(0, 30 * Math.sin(day - Math.PI / 2) + 2 * rng.nextGaussian());
+      temp[h] = 12 + 6 * Math.sin(day - 2) + rng.nextGaussian();
+    }
+    HistoryBuffer history = new HistoryBuffer(HISTORY, 0);
+    for (int h = 0; h < HISTORY; h++) {
+      history.push(load[h], pv[h], pv[h] * 30, temp[h], 50);
+    }
+    fitted = new ProbabilisticForecaster(HORIZON, null, 3);
+    fitted.update(history.window());
+    observe(fitted, 0, HISTORY);
+  }
+
+  @Test
+  void forecastFollowsSamplesObservedAfterTheFit() {
+    ProbabilisticForecaster.Model model = fitted.currentModel();
+    double before = fitted.predictBoth()[0][1][0];
+
+    for (int h = HISTORY; h < HISTORY + CONTEXT; h++) {
+      fitted.observe(3 * load[h], pv[h], temp[h], h);       // load jumps, no refit
+    }
+    double after = fitted.predictBoth()[0][1][0];
+
+    assertSame(model, fitted.currentModel());
+    assertTrue(after > before + 10, "q50 load " + before + " -> " + after);
+  }
+
+  @Test
+  void forecastDependsOnTheLastSamplesNotOnTheFittedWindow() {
+    observe(fitted, HISTORY, HISTORY + CONTEXT);
+    ProbabilisticForecaster restored = new ProbabilisticForecaster(HORIZON);
+    restored.restore(fitted.currentModel());
+    observe(restored, HISTORY, HISTORY + CONTEXT);       // only the samples after the fit
+
+    double[][][] expected = fitted.predictBoth();
+    double[][][] actual = restored.predictBoth();
+    for (int target = 0; target < 2; target++) {
+      for (int level = 0; level < expected[target].length; level++) {
+        assertArrayEquals(expected[target][level], actual[target][level], 0.0);
+      }
+    }
+  }
+
+  private void observe(ProbabilisticForecaster f, int from, int to) {
+    for (int h = from; h < to; h++) {
+      f.observe(load[h], pv[h], temp[h], h);
+    }
+  }
+}
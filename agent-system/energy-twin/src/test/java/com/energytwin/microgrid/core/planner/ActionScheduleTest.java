@@ -0,0 +1,83 @@
+package com.energytwin.microgrid.core.planner;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class ActionScheduleTest {
+
+  @Test
+  void handsOutEachTickOnceAtItsOffset() {
+    ActionSchedule schedule = new ActionSchedule(4);
+    Action a = new Action(0, "Battery1", 5, 0);
+    Action b = new Action(0, "External", 0, 2);
+    Action c = new Action(2, "Battery1", -3, 0);
+    schedule.replace(List.of(a, b, c), 10);
+
+    assertEquals(3, schedule.size());
+    assertEquals(List.of(a, b), schedule.due(10));
+    assertEquals(List.of(), schedule.due(11));
+    assertEquals(List.of(c), schedule.due(12));
+    assertEquals(List.of(), schedule.due(12));
+    assertTrue(schedule.isEmpty());
+  }
+
+  @Test
+  void cancelDropsEveryPendingAction() {
+    ActionSchedule schedule = new ActionSchedule(4);
+    schedule.replace(List.of(new Action(0, "Battery1", 5, 0), new Action(1, "Battery1", 5, 0)), 0);
+    schedule.due(0);
+
+    schedule.cancel();
+
+    assertTrue(schedule.isEmpty());
+    assertEquals(List.of(), schedule.due(1));
+  }
+
+  @Test
+  void replaceDropsThePreviousPlanAndTicksAlreadyHandedOut() {
+    ActionSchedule schedule = new ActionSchedule(4);
+    schedule.replace(List.of(new Action(1, "Battery1", 5, 0), new Action(2, "Battery1", 5, 0)), 0);
+    schedule.due(0);
+    schedule.due(1);
+
+    Action late = new Action(2, "Battery2", 1, 0);
+    schedule.replace(List.of(new Action(0, "Battery2", 1, 0), late), 0);   // a late plan
+
+    assertEquals(1, schedule.size());
+    assertEquals(List.of(late), schedule.due(2));
+  }
+
+  @Test
+  void reusesTheRingAcrossManyReplans() {
+    ActionSchedule schedule = new ActionSchedule(3);
+    for (long tick = 0; tick < 20; tick++) {
+      Action now = new Action(0, "Battery" + tick, 1, 0);
+      Action later = new Action(2, "External", 0, tick);
+      schedule.replace(List.of(now, later), tick);      // wraps the ring every three ticks
+      assertEquals(2, schedule.size());
+      assertEquals(List.of(now), schedule.due(tick));
+    }
+    assertEquals(List.of(), schedule.due(20));
+    assertEquals(List.of(new Action(2, "External", 0, 19)), schedule.due(21));
+  }
+
+  @Test
+  void growsForPlansBeyondItsCapacity() {
+    ActionSchedule schedule = new ActionSchedule(2);
+    List<Action> plan = new ArrayList<>();
+    for (int k = 0; k < 10; k++) {
+      plan.add(new Action(k, "Battery1", k, 0));
+    }
+    schedule.replace(plan, 7);
+
+    assertEquals(10, schedule.size());
+    for (int k = 0; k < 10; k++) {
+      assertEquals(List.of(plan.get(k)), schedule.due(7 + k));
+    }
+    assertTrue(schedule.isEmpty());
+  }
+}
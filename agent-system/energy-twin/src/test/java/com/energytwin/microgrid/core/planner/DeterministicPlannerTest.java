@@ -0,0 +1,38 @@
+package com.energytwin.microgrid.core.planner;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import com.energytwin.microgrid.core.scenario.QuantileTreeGenerator;
+import com.energytwin.microgrid.core.scenario.Scenario;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class DeterministicPlannerTest {
+
+  @Test
+  void medianOfTheQuantileTreeIsItsMiddleBranch() {
+    double[][] loadQ = {{8, 9}, {10, 12}, {15, 14}};
+    double[][] pvQ = {{0, 1}, {2, 3}, {6, 4}};
+    List<Scenario> tree = new QuantileTreeGenerator(2).generate(loadQ, pvQ);
+
+    Scenario median = DeterministicPlanner.median(tree);
+
+    assertArrayEquals(loadQ[1], median.loadKw(), 0.0);
+    assertArrayEquals(pvQ[1], median.pvKw(), 0.0);
+  }
+
+  @Test
+  void medianIsTakenStepByStepAndIgnoresOutliers() {
+    List<Scenario> draws = List.of(
+        new Scenario(new double[] {1, 50}, new double[] {0, 0}, 0.2),
+        new Scenario(new double[] {2, 5}, new double[] {1, 9}, 0.2),
+        new Scenario(new double[] {100, 4}, new double[] {2, 1}, 0.2),
+        new Scenario(new double[] {3, 3}, new double[] {3, 2}, 0.2),
+        new Scenario(new double[] {4, 6}, new double[] {4, 3}, 0.2));
+
+    Scenario median = DeterministicPlanner.median(draws);
+
+    assertArrayEquals(new double[] {3, 5}, median.loadKw(), 0.0);
+    assertArrayEquals(new double[] {2, 2}, median.pvKw(), 0.0);
+  }
+}
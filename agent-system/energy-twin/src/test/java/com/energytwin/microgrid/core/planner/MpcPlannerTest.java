@@ -0,0 +1,116 @@
+package com.energytwin.microgrid.core.planner;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.energytwin.microgrid.core.aggregator.AggregatorMetaStore;
+import com.energytwin.microgrid.core.scenario.Scenario;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/** Plans a week ahead (168 ticks) for a fleet of 30 batteries with the default blocking. */
+class MpcPlannerTest {
+
+  private static final int HORIZON = 168;
+  private static final int BATTERIES = 30;
+  private static final int FINE = 12;
+  private static final int BLOCK = 6;
+  private static final double EXT_CAP_KW = 400;
+
+  private Map<String, AggregatorMetaStore.BatteryMeta> bats;
+  private Map<String, Double> soc;
+  private MpcPlanner planner;
+  private List<Action> plan;
+
+  @BeforeEach
+  void setUp() {
+    SplittableRandom rng = new SplittableRandom(3);
+    bats = new TreeMap<>();
+    soc = new TreeMap<>();
+    for (int b = 0; b < BATTERIES; b++) {
+      double capacity = 50 + rng.nextInt(150);
+      double cRate = 0.25 + 0.25 * rng.nextDouble();
+      bats.put("Battery" + b, new AggregatorMetaStore.BatteryMeta(capacity, 0.95, 0.9, cRate));
+      soc.put("Battery" + b, 0.5 * capacity);
+    }
+    planner = new MpcPlanner(HORIZON, bats, EXT_CAP_KW, FINE, BLOCK);
+    plan = planner.plan(List.of(week()), soc);
+  }
+
+  @AfterEach
+  void tearDown() {
+    planner.release();
+  }
+
+  @Test
+  void coversTheHorizonWithFewSteps() {
+    assertEquals(FINE + (HORIZON - FINE) / BLOCK, planner.getSteps());
+    assertNotNull(plan);
+    assertTrue(plan.stream().anyMatch(a -> !"External".equals(a.target())));
+    for (Action a : plan) {
+      assertTrue(a.tickOffset() >= 0 && a.tickOffset() < HORIZON, "offset " + a.tickOffset());
+    }
+  }
+
+  @Test
+  void keepsPowerConstantWithinEachBlock() {
+    Map<String, double[]> power = perTick();
+    for (Map.Entry<String, double[]> e : power.entrySet()) {
+      double[] kw = e.getValue();
+      for (int t = FINE; t < HORIZON; t++) {
+        int blockStart = FINE + (t - FINE) / BLOCK * BLOCK;
+        assertEquals(kw[blockStart], kw[t], 1e-9, e.getKey() + " at tick " + t);
+      }
+    }
+  }
+
+  @Test
+  void keepsEveryBatteryWithinItsPowerAndEnergyLimits() {
+    for (String id : bats.keySet()) {
+      AggregatorMetaStore.BatteryMeta m = bats.get(id);
+      double[] chg = new double[HORIZON];
+      double[] dsg = new double[HORIZON];
+      for (Action a : plan) {
+        if (!id.equals(a.target())) continue;
+        if (a.chargeKw() > 0) chg[a.tickOffset()] += a.chargeKw();
+        else dsg[a.tickOffset()] -= a.chargeKw();
+      }
+      double energy = soc.get(id);
+      for (int t = 0; t < HORIZON; t++) {
+        assertTrue(chg[t] <= m.cRate() * m.capacity() + 1e-6, id + " charge at tick " + t);
+        assertTrue(dsg[t] <= m.cRate() * m.capacity() + 1e-6, id + " discharge at tick " + t);
+        energy += chg[t] * m.etaC() - dsg[t] / m.etaD();
+        assertTrue(energy >= -1e-6 && energy <= m.capacity() + 1e-6, id + " SoC at tick " + t);
+      }
+    }
+  }
+
+  /** Net power per target and tick: battery charge (+) / discharge (–), external import. */
+  private Map<String, double[]> perTick() {
+    Map<String, double[]> power = new TreeMap<>();
+    for (Action a : plan) {
+      double kw = "External".equals(a.target()) ? a.extImportKw() : a.chargeKw();
+      power.computeIfAbsent(a.target(), k -> new double[HORIZON])[a.tickOffset()] += kw;
+    }
+    return power;
+  }
+
+  /** A daily load and PV profile with noise. */
+  private static Scenario week() {
+    SplittableRandom rng = new SplittableRandom(1);
+    double[] load = new double[HORIZON];
+    double[] pv = new double[HORIZON];
+    for (int k = 0; k < HORIZON; k++) {
+      double day = 2 * Math.PI * (k % 24) / 24;
+      load[k] = 300 + 120 * Math.sin(day - 1.5) + 20 * rng.nextGaussian();
+      pv[k] = Math.max(0, 250 * Math.sin(day - Math.PI / 2) + 15 * rng.nextGaussian());
+    }
+    return new Scenario(load, pv, 1);
+  }
+}